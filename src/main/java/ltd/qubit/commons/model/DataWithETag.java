@@ -0,0 +1,216 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import java.time.Instant;
+
+import javax.annotation.Nullable;
+
+import ltd.qubit.commons.lang.Argument;
+import ltd.qubit.commons.lang.Equality;
+import ltd.qubit.commons.lang.Hash;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * A data wrapper with a {@code maxAge} property, a creation time and a version,
+ * providing the metadata of the HTTP conditional caching.
+ *
+ * <p>The version is a fingerprint of the data, which must change whenever the
+ * data changes, e.g., a revision number maintained by the storage, or a 64-bit
+ * digest of the serialized form of the content. It is supplied by the caller
+ * rather than derived from {@link Object#hashCode()}, whose collisions would
+ * let a client keep a modified entity as not modified. It is exposed as a weak
+ * entity tag, so that a client sending the tag back in the
+ * {@code If-None-Match} header of a request could be answered with a
+ * {@code 304 Not Modified} response without the body.</p>
+ *
+ * @param <T>
+ *     The type of data being encapsulated.
+ * @author Haixing Hu
+ */
+public class DataWithETag<T> extends DataWithMaxAge<T> {
+
+  private static final String WEAK_PREFIX = "W/";
+
+  /**
+   * The creation time of this object.
+   */
+  private final Instant createTime;
+
+  /**
+   * The version of the encapsulated object.
+   */
+  private final long version;
+
+  /**
+   * The entity tag built from the version.
+   */
+  private final String etag;
+
+  public DataWithETag(@Nullable final T data, final long maxAge,
+      final Instant createTime, final long version) {
+    super(data, maxAge);
+    this.createTime = Argument.requireNonNull("createTime", createTime);
+    this.version = version;
+    this.etag = WEAK_PREFIX + '"' + Long.toHexString(version) + '"';
+  }
+
+  public Instant getCreateTime() {
+    return createTime;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets the entity tag of this object, i.e., the value of the {@code ETag}
+   * header.
+   *
+   * @return
+   *     the weak entity tag of this object, e.g., {@code W/"1a2b"}.
+   */
+  public String getETag() {
+    return etag;
+  }
+
+  /**
+   * Gets the value of the {@code Cache-Control} header for this object.
+   *
+   * @return
+   *     the value of the {@code Cache-Control} header, with the full maximum
+   *     age of this object in seconds.
+   */
+  public String getCacheControl() {
+    return "max-age=" + (Math.max(getMaxAge(), 0) / 1000);
+  }
+
+  /**
+   * Gets the value of the {@code Cache-Control} header for this object at the
+   * specified time.
+   *
+   * @param now
+   *     The current time.
+   * @return
+   *     the value of the {@code Cache-Control} header, with the remaining
+   *     lifetime of this object in seconds.
+   */
+  public String getCacheControl(final Instant now) {
+    return "max-age=" + (getRemainingAge(now) / 1000);
+  }
+
+  /**
+   * Gets the remaining lifetime of this object at the specified time.
+   *
+   * @param now
+   *     The current time.
+   * @return
+   *     the remaining lifetime of this object in milliseconds, or {@code 0} if
+   *     it has expired.
+   */
+  public long getRemainingAge(final Instant now) {
+    final long age = now.toEpochMilli() - createTime.toEpochMilli();
+    return Math.max(getMaxAge() - Math.max(age, 0), 0);
+  }
+
+  /**
+   * Tests whether this object has expired at the specified time.
+   *
+   * @param now
+   *     The current time.
+   * @return
+   *     Whether this object has expired at the specified time.
+   */
+  public boolean isExpired(final Instant now) {
+    return getRemainingAge(now) == 0;
+  }
+
+  /**
+   * Tests whether this object is not modified for a request with the specified
+   * {@code If-None-Match} header, i.e., whether a {@code 304 Not Modified}
+   * response without the body should be sent.
+   *
+   * <p>The header is evaluated with the weak comparison: it matches if it is
+   * {@code *}, or any of its comma-separated entity tags has the same opaque
+   * tag as the entity tag of this object, whether they are weak or not.</p>
+   *
+   * @param ifNoneMatch
+   *     The value of the {@code If-None-Match} header, or {@code null} if the
+   *     request has no such header.
+   * @return
+   *     Whether the request matches the entity tag of this object.
+   */
+  public boolean isNotModified(@Nullable final String ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    // the opaque tag of this object, including the quotes
+    final int tagStart = WEAK_PREFIX.length();
+    final int tagLength = etag.length() - tagStart;
+    final int n = ifNoneMatch.length();
+    int i = 0;
+    while (i < n) {
+      // skips the separators
+      final char ch = ifNoneMatch.charAt(i);
+      if (ch == ',' || ch == ' ' || ch == '\t') {
+        ++i;
+        continue;
+      }
+      if (ch == '*') {
+        return true;
+      }
+      if (ifNoneMatch.startsWith(WEAK_PREFIX, i)) {
+        i += WEAK_PREFIX.length();
+      }
+      final int start = i;
+      if (i < n && ifNoneMatch.charAt(i) == '"') {
+        i = ifNoneMatch.indexOf('"', i + 1);
+        i = (i < 0 ? n : i + 1);
+      } else {
+        while (i < n && ifNoneMatch.charAt(i) != ',') {
+          ++i;
+        }
+      }
+      if (i - start == tagLength
+          && ifNoneMatch.regionMatches(start, etag, tagStart, tagLength)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!super.equals(o)) {
+      return false;
+    }
+    final DataWithETag<?> other = (DataWithETag<?>) o;
+    return Equality.equals(createTime, other.createTime)
+        && Equality.equals(version, other.version);
+  }
+
+  public int hashCode() {
+    final int multiplier = 7;
+    int result = super.hashCode();
+    result = Hash.combine(result, multiplier, createTime);
+    result = Hash.combine(result, multiplier, version);
+    return result;
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("data", getData())
+        .append("maxAge", getMaxAge())
+        .append("createTime", createTime)
+        .append("version", version)
+        .toString();
+  }
+}
@@ -0,0 +1,418 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ltd.qubit.commons.lang.Argument;
+import ltd.qubit.commons.model.util.HasClock;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * A concurrent read-through cache whose entries expire according to the
+ * {@code maxAge} of the {@link DataWithMaxAge} returned by the loader.
+ * <p>
+ * An entry loaded at time {@code t} is fresh until {@code t + maxAge}, and then
+ * stale for a further window of {@code staleWhileRevalidate} milliseconds:
+ * reading a stale entry returns its value at once, and reloads it in the
+ * background. Reading an entry after the stale window blocks until it is
+ * reloaded. The concurrent loads of the same key are merged into a single call
+ * of the loader, so a hot key with a short maximum age is loaded at most once
+ * at a time, no matter how many threads are reading it.
+ * <p>
+ * The explicit modifications of a key, i.e., {@link #put(Object, DataWithMaxAge)}
+ * and the invalidations, detach the load of the key in progress, whose result
+ * is then returned to its callers but not cached; so a slow load or background
+ * refresh could never overwrite a newer value or bring back an invalidated
+ * one. A background refresh failing with an exception keeps the stale value,
+ * and reports the exception to the uncaught exception handler of the thread
+ * running the refresh.
+ * <p>
+ * The expired entries are evicted lazily when they are read, and eagerly by
+ * {@link #evictExpired()}, which should be called periodically. The entries are
+ * also kept in a queue ordered by their expired times, and in a queue ordered by
+ * their load times, so that when the number of entries exceeds the maximum
+ * size, the entries expired beyond their stale windows are evicted first, and
+ * then the least recently loaded entries (FIFO), without scanning the whole
+ * cache. The reads are lock-free; only the stores and the evictions share a
+ * lock.
+ *
+ * @param <K>
+ *     the type of the keys.
+ * @param <V>
+ *     the type of the values.
+ * @author Haixing Hu
+ * @see DataWithMaxAge
+ */
+@ThreadSafe
+public class MaxAgeCache<K, V> implements HasClock {
+
+  private final Clock clock;
+
+  private final Function<? super K, DataWithMaxAge<V>> loader;
+
+  private final int maximumSize;
+
+  private final long staleWhileRevalidate;
+
+  private final Executor executor;
+
+  private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<K, CompletableFuture<Entry<K, V>>> loadings =
+      new ConcurrentHashMap<>();
+
+  /**
+   * The entries in the order of their expired times. The entries replaced or
+   * removed from the cache are discarded lazily.
+   */
+  @GuardedBy("this")
+  private final PriorityQueue<Entry<K, V>> expirations =
+      new PriorityQueue<>(Comparator.comparingLong(e -> e.expiredTime));
+
+  /**
+   * The entries in the order of their load times. The entries replaced or
+   * removed from the cache are discarded lazily.
+   */
+  @GuardedBy("this")
+  private final ArrayDeque<Entry<K, V>> insertions = new ArrayDeque<>();
+
+  /**
+   * Constructs a {@link MaxAgeCache} without the stale window, refreshing in
+   * the common {@link ForkJoinPool}.
+   *
+   * @param clock
+   *     the clock used to decide whether the entries are expired.
+   * @param loader
+   *     the loader of the values, which returns {@code null} if there is no
+   *     value for a key.
+   * @param maximumSize
+   *     the maximum number of entries.
+   */
+  public MaxAgeCache(final Clock clock,
+      final Function<? super K, DataWithMaxAge<V>> loader,
+      final int maximumSize) {
+    this(clock, loader, maximumSize, 0, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a {@link MaxAgeCache}.
+   *
+   * @param clock
+   *     the clock used to decide whether the entries are expired.
+   * @param loader
+   *     the loader of the values, which returns {@code null} if there is no
+   *     value for a key.
+   * @param maximumSize
+   *     the maximum number of entries.
+   * @param staleWhileRevalidate
+   *     the window after the expiration of an entry, in milliseconds, during
+   *     which its stale value is returned while it is reloaded in the
+   *     background.
+   * @param executor
+   *     the executor running the background reloads.
+   */
+  public MaxAgeCache(final Clock clock,
+      final Function<? super K, DataWithMaxAge<V>> loader,
+      final int maximumSize, final long staleWhileRevalidate,
+      final Executor executor) {
+    this.clock = Argument.requireNonNull("clock", clock);
+    this.loader = Argument.requireNonNull("loader", loader);
+    this.executor = Argument.requireNonNull("executor", executor);
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("The maximum size must be positive: "
+          + maximumSize);
+    }
+    if (staleWhileRevalidate < 0) {
+      throw new IllegalArgumentException("The stale window must not be negative: "
+          + staleWhileRevalidate);
+    }
+    this.maximumSize = maximumSize;
+    this.staleWhileRevalidate = staleWhileRevalidate;
+  }
+
+  @Override
+  public Clock getClock() {
+    return clock;
+  }
+
+  public final int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public final long getStaleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
+  /**
+   * Gets the number of entries in this cache, including the expired entries
+   * not evicted yet.
+   *
+   * @return
+   *     the number of entries in this cache.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the value of a key, loading it if it is not cached or has expired.
+   *
+   * @param key
+   *     the key.
+   * @return
+   *     the value of the key, which may be stale within the stale window; or
+   *     {@code null} if the loader found no value for the key.
+   */
+  @Nullable
+  public V get(final K key) {
+    final DataWithMaxAge<V> data = getData(key);
+    return (data == null ? null : data.getData());
+  }
+
+  /**
+   * Gets the value of a key with its maximum age, loading it if it is not
+   * cached or has expired.
+   *
+   * @param key
+   *     the key.
+   * @return
+   *     the value of the key with its maximum age, which may be stale within
+   *     the stale window; or {@code null} if the loader found no value for the
+   *     key.
+   */
+  @Nullable
+  public DataWithMaxAge<V> getData(final K key) {
+    Argument.requireNonNull("key", key);
+    final Entry<K, V> entry = entries.get(key);
+    if (entry != null) {
+      final long now = clock.millis();
+      if (now < entry.expiredTime) {
+        return entry.data;
+      }
+      if (now - entry.expiredTime < staleWhileRevalidate) {
+        refresh(key);
+        return entry.data;
+      }
+      entries.remove(key, entry);
+    }
+    final Entry<K, V> loaded = load(key);
+    return (loaded == null ? null : loaded.data);
+  }
+
+  /**
+   * Puts a value with its maximum age into this cache.
+   *
+   * @param key
+   *     the key.
+   * @param data
+   *     the value with its maximum age.
+   */
+  public void put(final K key, final DataWithMaxAge<V> data) {
+    Argument.requireNonNull("key", key);
+    Argument.requireNonNull("data", data);
+    final Entry<K, V> entry = new Entry<>(key, data, clock.millis());
+    synchronized (this) {
+      loadings.remove(key);
+      store(entry);
+    }
+  }
+
+  /**
+   * Reloads the value of a key in the background, unless it is being loaded.
+   *
+   * @param key
+   *     the key.
+   */
+  public void refresh(final K key) {
+    if (loadings.containsKey(key)) {
+      return;
+    }
+    final CompletableFuture<Entry<K, V>> future = new CompletableFuture<>();
+    if (loadings.putIfAbsent(key, future) == null) {
+      try {
+        executor.execute(() -> {
+          try {
+            complete(key, future);
+          } catch (final RuntimeException e) {
+            // keeps the stale value until it is expired beyond the window
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+          }
+        });
+      } catch (final RuntimeException e) {
+        loadings.remove(key, future);
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * Invalidates the entry of a key.
+   *
+   * @param key
+   *     the key.
+   */
+  public synchronized void invalidate(final K key) {
+    loadings.remove(key);
+    entries.remove(key);
+  }
+
+  /**
+   * Invalidates all entries of this cache.
+   */
+  public synchronized void invalidateAll() {
+    loadings.clear();
+    entries.clear();
+    expirations.clear();
+    insertions.clear();
+  }
+
+  /**
+   * Evicts the entries expired beyond their stale windows.
+   *
+   * @return
+   *     the number of evicted entries.
+   */
+  public synchronized int evictExpired() {
+    final long now = clock.millis();
+    int result = 0;
+    Entry<K, V> entry;
+    while ((entry = expirations.peek()) != null && isEvictable(entry, now)) {
+      expirations.poll();
+      if (entries.remove(entry.key, entry)) {
+        ++result;
+      }
+    }
+    return result;
+  }
+
+  private boolean isEvictable(final Entry<K, V> entry, final long now) {
+    return now - entry.expiredTime >= staleWhileRevalidate;
+  }
+
+  private boolean isLive(final Entry<K, V> entry) {
+    return entries.get(entry.key) == entry;
+  }
+
+  /**
+   * Loads the value of a key, or waits for the loading of the key in progress.
+   */
+  @Nullable
+  private Entry<K, V> load(final K key) {
+    final CompletableFuture<Entry<K, V>> future = new CompletableFuture<>();
+    final CompletableFuture<Entry<K, V>> existing = loadings.putIfAbsent(key, future);
+    if (existing == null) {
+      return complete(key, future);
+    }
+    try {
+      return existing.join();
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Calls the loader and completes the loading of a key.
+   */
+  @Nullable
+  private Entry<K, V> complete(final K key, final CompletableFuture<Entry<K, V>> future) {
+    try {
+      final DataWithMaxAge<V> data = loader.apply(key);
+      final Entry<K, V> entry = (data == null
+                                 ? null : new Entry<>(key, data, clock.millis()));
+      synchronized (this) {
+        // skips the caching if the load was detached by a modification
+        if (loadings.get(key) == future) {
+          if (entry == null) {
+            entries.remove(key);
+          } else {
+            store(entry);
+          }
+        }
+      }
+      future.complete(entry);
+      return entry;
+    } catch (final RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loadings.remove(key, future);
+    }
+  }
+
+  private synchronized void store(final Entry<K, V> entry) {
+    entries.put(entry.key, entry);
+    expirations.add(entry);
+    insertions.add(entry);
+    if (entries.size() > maximumSize) {
+      evictExpired();
+      while (entries.size() > maximumSize) {
+        final Entry<K, V> victim = insertions.poll();
+        if (victim == null) {
+          break;
+        }
+        if (victim != entry) {
+          entries.remove(victim.key, victim);
+        }
+      }
+    }
+    if (insertions.size() > 2 * Math.max(entries.size(), 1)) {
+      // discards the replaced and removed entries, whose number is at least
+      // the number of the live entries, so the cost is amortized
+      insertions.removeIf(e -> !isLive(e));
+      expirations.removeIf(e -> !isLive(e));
+    }
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("maximumSize", maximumSize)
+        .append("staleWhileRevalidate", staleWhileRevalidate)
+        .append("size", size())
+        .toString();
+  }
+
+  /**
+   * A cached value with its expired time.
+   */
+  private static final class Entry<K, V> {
+    private final K key;
+    private final DataWithMaxAge<V> data;
+    private final long expiredTime;
+
+    Entry(final K key, final DataWithMaxAge<V> data, final long loadTime) {
+      this.key = key;
+      this.data = data;
+      final long maxAge = Math.max(data.getMaxAge(), 0);
+      this.expiredTime = (loadTime > Long.MAX_VALUE - maxAge
+                          ? Long.MAX_VALUE : loadTime + maxAge);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+import javax.annotation.concurrent.Immutable;
+
+import ltd.qubit.commons.lang.Equality;
+import ltd.qubit.commons.lang.Hash;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * This model represents a bounding box of geographical locations, whose
+ * coordinates are expressed in micro-degrees.
+ * <p>
+ * If the bounding box crosses the 180th meridian, its minimum longitude is
+ * greater than its maximum longitude.
+ *
+ * @author Haixing Hu
+ * @see LocationUtils#boundingBox(int, int, double)
+ */
+@Immutable
+public final class BoundingBox implements Serializable {
+
+  @Serial
+  private static final long serialVersionUID = -6061432187733562518L;
+
+  /**
+   * The minimum longitude of this bounding box, in micro-degrees.
+   */
+  private final int minLongitude;
+
+  /**
+   * The maximum longitude of this bounding box, in micro-degrees.
+   */
+  private final int maxLongitude;
+
+  /**
+   * The minimum latitude of this bounding box, in micro-degrees.
+   */
+  private final int minLatitude;
+
+  /**
+   * The maximum latitude of this bounding box, in micro-degrees.
+   */
+  private final int maxLatitude;
+
+  public BoundingBox(final int minLongitude, final int maxLongitude,
+      final int minLatitude, final int maxLatitude) {
+    this.minLongitude = minLongitude;
+    this.maxLongitude = maxLongitude;
+    this.minLatitude = minLatitude;
+    this.maxLatitude = maxLatitude;
+  }
+
+  public int getMinLongitude() {
+    return minLongitude;
+  }
+
+  public int getMaxLongitude() {
+    return maxLongitude;
+  }
+
+  public int getMinLatitude() {
+    return minLatitude;
+  }
+
+  public int getMaxLatitude() {
+    return maxLatitude;
+  }
+
+  /**
+   * Tests whether this bounding box crosses the 180th meridian.
+   *
+   * @return
+   *     {@code true} if this bounding box crosses the 180th meridian;
+   *     {@code false} otherwise.
+   */
+  public boolean isCrossingMeridian() {
+    return minLongitude > maxLongitude;
+  }
+
+  /**
+   * Tests whether this bounding box contains the specified location.
+   *
+   * @param longitude
+   *     the longitude of the location, in micro-degrees.
+   * @param latitude
+   *     the latitude of the location, in micro-degrees.
+   * @return
+   *     {@code true} if this bounding box contains the specified location;
+   *     {@code false} otherwise.
+   */
+  public boolean contains(final int longitude, final int latitude) {
+    if (latitude < minLatitude || latitude > maxLatitude) {
+      return false;
+    }
+    if (minLongitude <= maxLongitude) {
+      return (longitude >= minLongitude && longitude <= maxLongitude);
+    } else {
+      return (longitude >= minLongitude || longitude <= maxLongitude);
+    }
+  }
+
+  /**
+   * Tests whether this bounding box contains the specified location.
+   *
+   * @param location
+   *     the specified location.
+   * @return
+   *     {@code true} if this bounding box contains the specified location;
+   *     {@code false} otherwise.
+   */
+  public boolean contains(final CompactLocation location) {
+    return contains(location.getMicroLongitude(), location.getMicroLatitude());
+  }
+
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if ((o == null) || (getClass() != o.getClass())) {
+      return false;
+    }
+    final BoundingBox other = (BoundingBox) o;
+    return Equality.equals(minLongitude, other.minLongitude)
+        && Equality.equals(maxLongitude, other.maxLongitude)
+        && Equality.equals(minLatitude, other.minLatitude)
+        && Equality.equals(maxLatitude, other.maxLatitude);
+  }
+
+  public int hashCode() {
+    final int multiplier = 7;
+    int result = 3;
+    result = Hash.combine(result, multiplier, minLongitude);
+    result = Hash.combine(result, multiplier, maxLongitude);
+    result = Hash.combine(result, multiplier, minLatitude);
+    result = Hash.combine(result, multiplier, maxLatitude);
+    return result;
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("minLongitude", minLongitude)
+        .append("maxLongitude", maxLongitude)
+        .append("minLatitude", minLatitude)
+        .append("maxLatitude", maxLatitude)
+        .toString();
+  }
+}
@@ -0,0 +1,271 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import ltd.qubit.commons.lang.Equality;
+import ltd.qubit.commons.lang.Hash;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+import ltd.qubit.commons.util.codec.GeoHashCodec;
+import ltd.qubit.commons.util.codec.LocationCoordinateCodec;
+import ltd.qubit.commons.util.codec.MortonCodec;
+
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.fromMicroDegrees;
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.toMicroDegrees;
+
+/**
+ * The compact, fixed-point representation of geographical locations.
+ * <p>
+ * Different from {@link Location}, which stores its coordinates as two
+ * {@link BigDecimal} objects, this class stores each coordinate as a scaled
+ * {@code int} in micro-degrees, i.e., the coordinate in degrees multiplied by
+ * {@link LocationCoordinateCodec#SCALE_FACTOR}. Since the coordinates are
+ * always normalized into the range of {@code [-180, 180]}, the scaled values
+ * always fit in an {@code int}.
+ * <p>
+ * An object of this class takes a single small heap object, and can be
+ * converted to and from a {@link Location} object losslessly at the default
+ * precision {@link Location#PRECISION}. Two compact locations are equal if and
+ * only if their corresponding {@link Location} objects are equal after being
+ * normalized with the default precision.
+ *
+ * @author Haixing Hu
+ * @see Location
+ * @see LocationCoordinateCodec
+ */
+@Immutable
+public final class CompactLocation implements Serializable {
+
+  @Serial
+  private static final long serialVersionUID = 3418572907513680144L;
+
+  /**
+   * Longitude, in micro-degrees.
+   */
+  private final int longitude;
+
+  /**
+   * Latitude, in micro-degrees.
+   */
+  private final int latitude;
+
+  /**
+   * Creates a {@link CompactLocation} from a {@link Location}.
+   *
+   * @param location
+   *     the specified location, which can be {@code null}.
+   * @return
+   *     the compact form of the specified location, or {@code null} if the
+   *     specified location is {@code null}, or any of its coordinates is
+   *     {@code null}.
+   */
+  @Nullable
+  public static CompactLocation of(@Nullable final Location location) {
+    if (location == null) {
+      return null;
+    }
+    final BigDecimal lng = location.getLongitude();
+    final BigDecimal lat = location.getLatitude();
+    if (lng == null || lat == null) {
+      return null;
+    }
+    return new CompactLocation(toMicroDegrees(lng), toMicroDegrees(lat));
+  }
+
+  /**
+   * Constructs a {@link CompactLocation}.
+   *
+   * @param longitude
+   *     the longitude, in micro-degrees.
+   * @param latitude
+   *     the latitude, in micro-degrees.
+   */
+  public CompactLocation(final int longitude, final int latitude) {
+    this.longitude = longitude;
+    this.latitude = latitude;
+  }
+
+  /**
+   * Constructs a {@link CompactLocation}.
+   *
+   * @param longitude
+   *     the longitude, which will be normalized with the default precision.
+   * @param latitude
+   *     the latitude, which will be normalized with the default precision.
+   */
+  public CompactLocation(final BigDecimal longitude, final BigDecimal latitude) {
+    this.longitude = toMicroDegrees(longitude);
+    this.latitude = toMicroDegrees(latitude);
+  }
+
+  /**
+   * Gets the longitude of this location, in micro-degrees.
+   *
+   * @return
+   *     the longitude of this location, in micro-degrees.
+   */
+  public int getMicroLongitude() {
+    return longitude;
+  }
+
+  /**
+   * Gets the latitude of this location, in micro-degrees.
+   *
+   * @return
+   *     the latitude of this location, in micro-degrees.
+   */
+  public int getMicroLatitude() {
+    return latitude;
+  }
+
+  /**
+   * Gets the longitude of this location.
+   *
+   * @return
+   *     the longitude of this location, with {@link Location#PRECISION} digits
+   *     after the decimal point.
+   */
+  public BigDecimal getLongitude() {
+    return fromMicroDegrees(longitude);
+  }
+
+  /**
+   * Gets the latitude of this location.
+   *
+   * @return
+   *     the latitude of this location, with {@link Location#PRECISION} digits
+   *     after the decimal point.
+   */
+  public BigDecimal getLatitude() {
+    return fromMicroDegrees(latitude);
+  }
+
+  /**
+   * Converts this object to a {@link Location} object.
+   *
+   * @return
+   *     the {@link Location} object with the same coordinates as this object.
+   */
+  public Location toLocation() {
+    return new Location(fromMicroDegrees(longitude), fromMicroDegrees(latitude));
+  }
+
+  /**
+   * Computes the Morton code of this location.
+   *
+   * @return
+   *     the Morton code of this location.
+   * @see MortonCodec
+   */
+  public long toMortonCode() {
+    return MortonCodec.encode(longitude, latitude);
+  }
+
+  /**
+   * Computes the geohash of this location.
+   *
+   * @param precision
+   *     the precision of the geohash, i.e., the number of characters.
+   * @return
+   *     the geohash of this location.
+   * @see GeoHashCodec
+   */
+  public String toGeoHash(final int precision) {
+    return new GeoHashCodec(precision).encode(this);
+  }
+
+  /**
+   * Computes the great-circle distance from this location to another location.
+   *
+   * @param other
+   *     the other location.
+   * @return
+   *     the great-circle distance between the two locations, in meters.
+   * @see LocationUtils#haversine(int, int, int, int)
+   */
+  public double distanceTo(final CompactLocation other) {
+    return LocationUtils.haversine(longitude, latitude, other.longitude, other.latitude);
+  }
+
+  /**
+   * Computes the approximate distance from this location to another location
+   * with the equirectangular projection.
+   *
+   * @param other
+   *     the other location.
+   * @return
+   *     the approximate distance between the two locations, in meters.
+   * @see LocationUtils#equirectangular(int, int, int, int)
+   */
+  public double approximateDistanceTo(final CompactLocation other) {
+    return LocationUtils.equirectangular(longitude, latitude, other.longitude, other.latitude);
+  }
+
+  /**
+   * Computes the initial bearing from this location to another location.
+   *
+   * @param other
+   *     the other location.
+   * @return
+   *     the initial bearing, in degrees clockwise from the north, in the range
+   *     of {@code [0, 360)}.
+   * @see LocationUtils#bearing(int, int, int, int)
+   */
+  public double bearingTo(final CompactLocation other) {
+    return LocationUtils.bearing(longitude, latitude, other.longitude, other.latitude);
+  }
+
+  /**
+   * Computes the bounding box of all locations within the specified distance
+   * from this location.
+   *
+   * @param radius
+   *     the distance from this location, in meters.
+   * @return
+   *     the bounding box of all locations within the specified distance from
+   *     this location.
+   * @see LocationUtils#boundingBox(int, int, double)
+   */
+  public BoundingBox boundingBox(final double radius) {
+    return LocationUtils.boundingBox(longitude, latitude, radius);
+  }
+
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if ((o == null) || (getClass() != o.getClass())) {
+      return false;
+    }
+    final CompactLocation other = (CompactLocation) o;
+    return Equality.equals(longitude, other.longitude)
+        && Equality.equals(latitude, other.latitude);
+  }
+
+  public int hashCode() {
+    final int multiplier = 7;
+    int result = 3;
+    result = Hash.combine(result, multiplier, longitude);
+    result = Hash.combine(result, multiplier, latitude);
+    return result;
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("longitude", getLongitude())
+        .append("latitude", getLatitude())
+        .toString();
+  }
+}
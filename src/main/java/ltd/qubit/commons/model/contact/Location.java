@@ -8,6 +8,11 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.model;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -17,6 +22,7 @@ import javax.annotation.Nullable;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
+import ltd.qubit.commons.annotation.Computed;
 import ltd.qubit.commons.annotation.Indexed;
 import ltd.qubit.commons.annotation.Scale;
 import ltd.qubit.commons.annotation.TypeCodec;
@@ -30,6 +36,7 @@ import ltd.qubit.commons.text.jackson.deserializer.LocationCoordinateDeserialize
 import ltd.qubit.commons.text.jackson.serializer.LocationCoordinateSerializer;
 import ltd.qubit.commons.text.tostring.ToStringBuilder;
 import ltd.qubit.commons.util.codec.DecodingException;
+import ltd.qubit.commons.util.codec.GeoHashCodec;
 import ltd.qubit.commons.util.codec.LocationCodec;
 import ltd.qubit.commons.util.codec.LocationCoordinateCodec;
 
@@ -61,6 +68,12 @@ public class Location implements Serializable, Emptyful, Normalizable,
   @Serial
   private static final long serialVersionUID = -4224079873422617869L;
 
+  private static final int NULL_COORDINATE = -1;
+
+  private static final int DECIMAL_COORDINATE = -2;
+
+  private static final int MAX_COMPACT_PRECISION = 9;
+
   /**
    * The number of digits after the decimal point retained when latitude and
    * longitude coordinates are expressed in decimal form.
@@ -89,6 +102,16 @@ public class Location implements Serializable, Emptyful, Normalizable,
   @Indexed
   private BigDecimal latitude;
 
+  /**
+   * Indicates whether the coordinates of this location have been normalized
+   * with the default precision and not modified since then.
+   * <p>
+   * It is marked as computed, so that it is neither normalized nor checked
+   * for emptiness as a property.
+   */
+  @Computed
+  private transient boolean normalized;
+
   /**
    * Create a new {@link Location} object.
    *
@@ -218,11 +241,23 @@ public class Location implements Serializable, Emptyful, Normalizable,
     this.latitude = loc.latitude;
   }
 
+  /**
+   * Constructs a new {@link Location} object.
+   *
+   * @param compact
+   *     the compact form of the location.
+   */
+  public Location(final CompactLocation compact) {
+    this.longitude = compact.getLongitude();
+    this.latitude = compact.getLatitude();
+  }
+
   @Override
   public void assign(final Location other) {
     Argument.requireNonNull("other", other);
     longitude = other.longitude;
     latitude = other.latitude;
+    normalized = other.normalized;
   }
 
   @Override
@@ -236,6 +271,7 @@ public class Location implements Serializable, Emptyful, Normalizable,
 
   public void setLongitude(final BigDecimal longitude) {
     this.longitude = longitude;
+    normalized = false;
   }
 
   public BigDecimal getLatitude() {
@@ -244,6 +280,7 @@ public class Location implements Serializable, Emptyful, Normalizable,
 
   public void setLatitude(final BigDecimal latitude) {
     this.latitude = latitude;
+    normalized = false;
   }
 
   public boolean equals(final Object o) {
@@ -276,6 +313,10 @@ public class Location implements Serializable, Emptyful, Normalizable,
   /**
    * Normalizes the longitude and latitude coordinates of this location with
    * the default precision.
+   * <p>
+   * This location remembers whether it has been normalized with the default
+   * precision, and the mark is cleared by the setters of the coordinates; so
+   * normalizing an unchanged location again does nothing.
    */
   @Override
   public final void normalize() {
@@ -292,7 +333,162 @@ public class Location implements Serializable, Emptyful, Normalizable,
    *     expressed in decimal form.
    */
   public final void normalize(final int precision) {
+    if (normalized && precision == PRECISION) {
+      return;
+    }
     longitude = LocationCoordinateCodec.normalize(longitude, precision);
     latitude = LocationCoordinateCodec.normalize(latitude, precision);
+    normalized = (precision == PRECISION);
+  }
+
+  /**
+   * Converts this location to its compact, fixed-point form.
+   *
+   * @return
+   *     the compact form of this location, whose coordinates are normalized
+   *     with the default precision; or {@code null} if any of the coordinates
+   *     of this location is {@code null}.
+   */
+  @Nullable
+  public CompactLocation toCompact() {
+    return CompactLocation.of(this);
+  }
+
+  /**
+   * Computes the geohash of this location.
+   *
+   * @param precision
+   *     the precision of the geohash, i.e., the number of characters.
+   * @return
+   *     the geohash of this location, or {@code null} if any of the
+   *     coordinates of this location is {@code null}.
+   * @see GeoHashCodec
+   */
+  @Nullable
+  public String toGeoHash(final int precision) {
+    return new GeoHashCodec(precision).encode(this);
+  }
+
+  /**
+   * Computes the great-circle distance from this location to another location.
+   *
+   * @param other
+   *     the other location.
+   * @return
+   *     the great-circle distance between the two locations, in meters.
+   * @throws NullPointerException
+   *     if {@code other} is {@code null}, or any coordinate of the two
+   *     locations is {@code null}.
+   * @see LocationUtils#haversine(double, double, double, double)
+   */
+  public double distanceTo(final Location other) {
+    Argument.requireNonNull("other", other);
+    return LocationUtils.haversine(
+        Argument.requireNonNull("longitude", longitude).doubleValue(),
+        Argument.requireNonNull("latitude", latitude).doubleValue(),
+        Argument.requireNonNull("other.longitude", other.longitude).doubleValue(),
+        Argument.requireNonNull("other.latitude", other.latitude).doubleValue());
+  }
+
+  /**
+   * Computes the initial bearing from this location to another location.
+   *
+   * @param other
+   *     the other location.
+   * @return
+   *     the initial bearing, in degrees clockwise from the north, in the range
+   *     of {@code [0, 360)}.
+   * @throws NullPointerException
+   *     if {@code other} is {@code null}, or any coordinate of the two
+   *     locations is {@code null}.
+   * @see LocationUtils#bearing(double, double, double, double)
+   */
+  public double bearingTo(final Location other) {
+    Argument.requireNonNull("other", other);
+    return LocationUtils.bearing(
+        Argument.requireNonNull("longitude", longitude).doubleValue(),
+        Argument.requireNonNull("latitude", latitude).doubleValue(),
+        Argument.requireNonNull("other.longitude", other.longitude).doubleValue(),
+        Argument.requireNonNull("other.latitude", other.latitude).doubleValue());
+  }
+
+  /**
+   * Writes this location in its compact serialized form.
+   * <p>
+   * Each coordinate is written as a byte of its scale and an {@code int} of
+   * its unscaled value, which covers all coordinates with no more than 9
+   * significant digits, instead of the default serialized form of
+   * {@link BigDecimal}; the other coordinates are written as objects after a
+   * marker byte.
+   * <p>
+   * The earlier versions of this class could not read this form, while this
+   * version still reads their default serialized form.
+   *
+   * @param out
+   *     the output stream.
+   * @throws IOException
+   *     if any I/O error occurred.
+   */
+  @Serial
+  private void writeObject(final ObjectOutputStream out) throws IOException {
+    writeCoordinate(out, longitude);
+    writeCoordinate(out, latitude);
+  }
+
+  /**
+   * Reads this location from its compact or default serialized form.
+   *
+   * @param in
+   *     the input stream.
+   * @throws IOException
+   *     if any I/O error occurred.
+   * @throws ClassNotFoundException
+   *     if the class of a coordinate could not be found.
+   * @see #writeObject(ObjectOutputStream)
+   */
+  @Serial
+  private void readObject(final ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    final int longitudeScale;
+    try {
+      longitudeScale = in.readByte();
+    } catch (final EOFException e) {
+      // written in the default serialized form, which has no block data
+      in.defaultReadObject();
+      return;
+    }
+    longitude = readCoordinate(in, longitudeScale);
+    latitude = readCoordinate(in, in.readByte());
+  }
+
+  private static void writeCoordinate(final ObjectOutputStream out,
+      @Nullable final BigDecimal value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL_COORDINATE);
+    } else if (value.scale() >= 0 && value.scale() <= Byte.MAX_VALUE
+        && value.precision() <= MAX_COMPACT_PRECISION) {
+      out.writeByte(value.scale());
+      out.writeInt(value.unscaledValue().intValue());
+    } else {
+      out.writeByte(DECIMAL_COORDINATE);
+      out.writeObject(value);
+    }
+  }
+
+  @Nullable
+  private static BigDecimal readCoordinate(final ObjectInputStream in,
+      final int scale) throws IOException, ClassNotFoundException {
+    switch (scale) {
+      case NULL_COORDINATE:
+        return null;
+      case DECIMAL_COORDINATE:
+        return (BigDecimal) in.readObject();
+      default:
+        if (scale < 0) {
+          throw new InvalidObjectException("Invalid scale of a coordinate: "
+              + scale);
+        }
+        return BigDecimal.valueOf(in.readInt(), scale);
+    }
   }
 }
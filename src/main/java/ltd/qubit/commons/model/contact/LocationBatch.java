@@ -0,0 +1,426 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ltd.qubit.commons.lang.Argument;
+import ltd.qubit.commons.util.codec.LocationCoordinateCodec;
+import ltd.qubit.commons.util.codec.MortonCodec;
+
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.toMicroDegrees;
+
+/**
+ * A columnar batch of geographical locations.
+ * <p>
+ * The coordinates of the locations are stored in two parallel {@code int}
+ * arrays in micro-degrees (struct-of-arrays), so that the bulk operations of
+ * this class are tight primitive loops without pointer chasing or
+ * {@link java.math.BigDecimal} arithmetic.
+ *
+ * @author Haixing Hu
+ * @see Location
+ * @see CompactLocation
+ * @see LocationUtils
+ */
+@NotThreadSafe
+public class LocationBatch {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+  private int[] longitudes;
+
+  private int[] latitudes;
+
+  private int size;
+
+  /**
+   * Creates a {@link LocationBatch} from a collection of locations.
+   *
+   * @param locations
+   *     the collection of locations, none of which nor whose coordinates can
+   *     be {@code null}. The coordinates will be normalized with the default
+   *     precision.
+   * @return
+   *     the batch of the specified locations, in the iteration order of the
+   *     collection.
+   */
+  public static LocationBatch of(final Collection<Location> locations) {
+    final LocationBatch result = new LocationBatch(locations.size());
+    for (final Location location : locations) {
+      result.add(location);
+    }
+    return result;
+  }
+
+  /**
+   * Creates a {@link LocationBatch} from a collection of compact locations.
+   *
+   * @param locations
+   *     the collection of compact locations, none of which can be
+   *     {@code null}.
+   * @return
+   *     the batch of the specified locations, in the iteration order of the
+   *     collection.
+   */
+  public static LocationBatch ofCompact(final Collection<CompactLocation> locations) {
+    final LocationBatch result = new LocationBatch(locations.size());
+    for (final CompactLocation location : locations) {
+      result.add(location);
+    }
+    return result;
+  }
+
+  /**
+   * Constructs an empty {@link LocationBatch} with the default capacity.
+   */
+  public LocationBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs an empty {@link LocationBatch}.
+   *
+   * @param capacity
+   *     the initial capacity of the batch.
+   */
+  public LocationBatch(final int capacity) {
+    longitudes = new int[capacity];
+    latitudes = new int[capacity];
+  }
+
+  /**
+   * Constructs a {@link LocationBatch} wrapping the specified arrays.
+   * <p>
+   * The arrays are used directly as the storage of the batch, without being
+   * copied.
+   *
+   * @param longitudes
+   *     the longitudes of the locations, in micro-degrees.
+   * @param latitudes
+   *     the latitudes of the locations, in micro-degrees.
+   * @param size
+   *     the number of locations stored in the arrays.
+   */
+  public LocationBatch(final int[] longitudes, final int[] latitudes, final int size) {
+    if (size < 0 || size > longitudes.length || size > latitudes.length) {
+      throw new IllegalArgumentException("Invalid size of the batch: " + size);
+    }
+    this.longitudes = longitudes;
+    this.latitudes = latitudes;
+    this.size = size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Gets the array of the longitudes of this batch.
+   * <p>
+   * The returned array is the internal storage of this batch, and only its
+   * first {@link #size()} elements are valid.
+   *
+   * @return
+   *     the array of the longitudes of this batch, in micro-degrees.
+   */
+  public int[] getLongitudes() {
+    return longitudes;
+  }
+
+  /**
+   * Gets the array of the latitudes of this batch.
+   * <p>
+   * The returned array is the internal storage of this batch, and only its
+   * first {@link #size()} elements are valid.
+   *
+   * @return
+   *     the array of the latitudes of this batch, in micro-degrees.
+   */
+  public int[] getLatitudes() {
+    return latitudes;
+  }
+
+  public int getLongitude(final int index) {
+    checkIndex(index);
+    return longitudes[index];
+  }
+
+  public int getLatitude(final int index) {
+    checkIndex(index);
+    return latitudes[index];
+  }
+
+  /**
+   * Gets the location at the specified index.
+   *
+   * @param index
+   *     the specified index.
+   * @return
+   *     the location at the specified index.
+   */
+  public CompactLocation get(final int index) {
+    checkIndex(index);
+    return new CompactLocation(longitudes[index], latitudes[index]);
+  }
+
+  /**
+   * Appends a location to this batch.
+   *
+   * @param longitude
+   *     the longitude of the location, in micro-degrees.
+   * @param latitude
+   *     the latitude of the location, in micro-degrees.
+   */
+  public void add(final int longitude, final int latitude) {
+    if (size == longitudes.length) {
+      final int n = Math.max(DEFAULT_CAPACITY, size * 2);
+      longitudes = Arrays.copyOf(longitudes, n);
+      latitudes = Arrays.copyOf(latitudes, n);
+    }
+    longitudes[size] = longitude;
+    latitudes[size] = latitude;
+    ++size;
+  }
+
+  /**
+   * Appends a location to this batch.
+   *
+   * @param location
+   *     the location to be appended, whose coordinates will be normalized with
+   *     the default precision.
+   */
+  public void add(final Location location) {
+    Argument.requireNonNull("location", location);
+    add(toMicroDegrees(location.getLongitude()), toMicroDegrees(location.getLatitude()));
+  }
+
+  /**
+   * Appends a location to this batch.
+   *
+   * @param location
+   *     the location to be appended.
+   */
+  public void add(final CompactLocation location) {
+    add(location.getMicroLongitude(), location.getMicroLatitude());
+  }
+
+  /**
+   * Removes all locations from this batch.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Converts this batch into a list of locations.
+   *
+   * @return
+   *     the list of locations in this batch.
+   */
+  public List<Location> toLocations() {
+    final List<Location> result = new ArrayList<>(size);
+    for (int i = 0; i < size; ++i) {
+      result.add(new CompactLocation(longitudes[i], latitudes[i]).toLocation());
+    }
+    return result;
+  }
+
+  /**
+   * Converts this batch into a list of compact locations.
+   *
+   * @return
+   *     the list of compact locations in this batch.
+   */
+  public List<CompactLocation> toCompactLocations() {
+    final List<CompactLocation> result = new ArrayList<>(size);
+    for (int i = 0; i < size; ++i) {
+      result.add(new CompactLocation(longitudes[i], latitudes[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Normalizes all coordinates of this batch into the range of
+   * {@code [-180, 180]}.
+   */
+  public void normalize() {
+    normalize(longitudes, size);
+    normalize(latitudes, size);
+  }
+
+  private static void normalize(final int[] values, final int n) {
+    for (int i = 0; i < n; ++i) {
+      values[i] = LocationCoordinateCodec.normalize(values[i]);
+    }
+  }
+
+  /**
+   * Computes the great-circle distances from a location to all locations of
+   * this batch.
+   *
+   * @param location
+   *     the specified location.
+   * @param distances
+   *     the array where to store the distances, in meters, whose length must be
+   *     at least {@link #size()}.
+   * @return
+   *     the specified array.
+   * @see LocationUtils#haversine(int, int, int[], int[], double[], int)
+   */
+  public double[] distancesTo(final CompactLocation location, final double[] distances) {
+    LocationUtils.haversine(location.getMicroLongitude(), location.getMicroLatitude(),
+        longitudes, latitudes, distances, size);
+    return distances;
+  }
+
+  /**
+   * Computes the great-circle distances from a location to all locations of
+   * this batch.
+   *
+   * @param location
+   *     the specified location.
+   * @return
+   *     the array of distances, in meters.
+   */
+  public double[] distancesTo(final CompactLocation location) {
+    return distancesTo(location, new double[size]);
+  }
+
+  /**
+   * Computes the approximate distances from a location to all locations of
+   * this batch with the equirectangular projection.
+   *
+   * @param location
+   *     the specified location.
+   * @param distances
+   *     the array where to store the distances, in meters, whose length must be
+   *     at least {@link #size()}.
+   * @return
+   *     the specified array.
+   * @see LocationUtils#equirectangular(int, int, int[], int[], double[], int)
+   */
+  public double[] approximateDistancesTo(final CompactLocation location,
+      final double[] distances) {
+    LocationUtils.equirectangular(location.getMicroLongitude(),
+        location.getMicroLatitude(), longitudes, latitudes, distances, size);
+    return distances;
+  }
+
+  /**
+   * Finds the indexes of the locations of this batch inside a bounding box.
+   *
+   * @param box
+   *     the bounding box.
+   * @param indexes
+   *     the array where to store the indexes, whose length must be at least
+   *     {@link #size()}.
+   * @return
+   *     the number of locations inside the bounding box.
+   */
+  public int indexesWithin(final BoundingBox box, final int[] indexes) {
+    final int minLat = box.getMinLatitude();
+    final int maxLat = box.getMaxLatitude();
+    final int minLng = box.getMinLongitude();
+    final int maxLng = box.getMaxLongitude();
+    int count = 0;
+    if (minLng <= maxLng) {
+      for (int i = 0; i < size; ++i) {
+        final int lng = longitudes[i];
+        final int lat = latitudes[i];
+        indexes[count] = i;
+        count += ((lat >= minLat) & (lat <= maxLat) & (lng >= minLng) & (lng <= maxLng)) ? 1 : 0;
+      }
+    } else {
+      for (int i = 0; i < size; ++i) {
+        final int lng = longitudes[i];
+        final int lat = latitudes[i];
+        indexes[count] = i;
+        count += ((lat >= minLat) & (lat <= maxLat) & ((lng >= minLng) | (lng <= maxLng))) ? 1 : 0;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gets the sub-batch of the locations inside a bounding box.
+   *
+   * @param box
+   *     the bounding box.
+   * @return
+   *     a new batch of the locations of this batch inside the bounding box, in
+   *     the same order as in this batch.
+   */
+  public LocationBatch filter(final BoundingBox box) {
+    final int[] indexes = new int[size];
+    final int n = indexesWithin(box, indexes);
+    final int[] lngs = new int[n];
+    final int[] lats = new int[n];
+    for (int i = 0; i < n; ++i) {
+      lngs[i] = longitudes[indexes[i]];
+      lats[i] = latitudes[indexes[i]];
+    }
+    return new LocationBatch(lngs, lats, n);
+  }
+
+  /**
+   * Computes the Morton codes of all locations of this batch.
+   *
+   * @param codes
+   *     the array where to store the Morton codes, whose length must be at
+   *     least {@link #size()}.
+   * @return
+   *     the specified array.
+   * @see MortonCodec
+   */
+  public long[] mortonCodes(final long[] codes) {
+    for (int i = 0; i < size; ++i) {
+      codes[i] = MortonCodec.encode(longitudes[i], latitudes[i]);
+    }
+    return codes;
+  }
+
+  /**
+   * Sorts the locations of this batch by their Morton codes, so that nearby
+   * locations are stored close to each other.
+   * <p>
+   * Since the Morton codes of normalized coordinates are lossless, the
+   * locations are sorted as their codes and then decoded back, without any
+   * permutation array.
+   */
+  public void sortByMortonCode() {
+    final long[] codes = mortonCodes(new long[size]);
+    if (size >= PARALLEL_SORT_THRESHOLD) {
+      Arrays.parallelSort(codes);
+    } else {
+      Arrays.sort(codes);
+    }
+    for (int i = 0; i < size; ++i) {
+      longitudes[i] = MortonCodec.decodeLongitude(codes[i]);
+      latitudes[i] = MortonCodec.decodeLatitude(codes[i]);
+    }
+  }
+
+  private void checkIndex(final int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+}
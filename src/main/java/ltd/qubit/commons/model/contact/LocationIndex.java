@@ -0,0 +1,581 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ltd.qubit.commons.lang.Argument;
+
+import static ltd.qubit.commons.model.LocationUtils.METERS_PER_MICRO_DEGREE;
+import static ltd.qubit.commons.model.LocationUtils.RADIANS_PER_MICRO_DEGREE;
+import static ltd.qubit.commons.model.LocationUtils.haversine;
+import static ltd.qubit.commons.model.LocationUtils.longitudeDelta;
+import static ltd.qubit.commons.model.LocationUtils.longitudeSpan;
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.SCALE_FACTOR;
+
+/**
+ * An in-memory spatial index of objects with geographical locations.
+ * <p>
+ * The index divides the coordinate space into a uniform grid of square cells,
+ * and keeps the objects in per-cell buckets, storing their coordinates in
+ * micro-degrees. A radius query only visits the cells overlapping the bounding
+ * box of the query circle, and a k-nearest query visits the cells in rings
+ * around the query point and stops as soon as no unvisited cell could contain a
+ * closer object.
+ * <p>
+ * The indexed objects are identified by their {@code equals()} and
+ * {@code hashCode()} methods, which must not change while they are indexed.
+ * For mutable models such as {@link Environment}, it is suggested to index
+ * their identifiers or other immutable keys instead.
+ * <p>
+ * This class is thread-safe. Insertions and removals of different objects may
+ * run concurrently, and queries do not block each other except on the same
+ * cell.
+ *
+ * @param <T>
+ *     the type of the indexed objects.
+ * @author Haixing Hu
+ * @see CompactLocation
+ */
+@ThreadSafe
+public class LocationIndex<T> {
+
+  /**
+   * The default size of the cells, in micro-degrees, which is 0.1 degree,
+   * i.e., about 11 kilometers.
+   */
+  public static final int DEFAULT_CELL_SIZE = SCALE_FACTOR / 10;
+
+  private static final long RANGE = 360L * SCALE_FACTOR;
+
+  private static final long OFFSET = 180L * SCALE_FACTOR;
+
+  private final int cellSize;
+
+  private final int columns;
+
+  private final int rows;
+
+  private final ConcurrentHashMap<Long, Cell> cells = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<T, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs an empty {@link LocationIndex} with the default cell size.
+   */
+  public LocationIndex() {
+    this(DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * Constructs an empty {@link LocationIndex}.
+   *
+   * @param cellSize
+   *     the size of the cells, in micro-degrees. It should be about the radius
+   *     of typical queries.
+   */
+  public LocationIndex(final int cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("The cell size must be positive: " + cellSize);
+    }
+    this.cellSize = cellSize;
+    this.columns = (int) ((RANGE + cellSize - 1) / cellSize);
+    this.rows = this.columns;
+  }
+
+  public int getCellSize() {
+    return cellSize;
+  }
+
+  /**
+   * Gets the number of objects in this index.
+   *
+   * @return
+   *     the number of objects in this index.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Tests whether this index is empty.
+   *
+   * @return
+   *     {@code true} if this index is empty; {@code false} otherwise.
+   */
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  /**
+   * Tests whether this index contains the specified object.
+   *
+   * @param item
+   *     the specified object.
+   * @return
+   *     {@code true} if this index contains the specified object; {@code false}
+   *     otherwise.
+   */
+  public boolean contains(final T item) {
+    return entries.containsKey(item);
+  }
+
+  /**
+   * Gets the indexed location of the specified object.
+   *
+   * @param item
+   *     the specified object.
+   * @return
+   *     the indexed location of the specified object, or {@code null} if the
+   *     object is not in this index.
+   */
+  @Nullable
+  public CompactLocation getLocation(final T item) {
+    final Entry entry = entries.get(item);
+    return (entry == null ? null : new CompactLocation(entry.longitude, entry.latitude));
+  }
+
+  /**
+   * Puts an object into this index, or moves it if it is already indexed.
+   *
+   * @param item
+   *     the object to be indexed.
+   * @param location
+   *     the location of the object. If it is {@code null} or any of its
+   *     coordinates is {@code null}, the object will be removed from this
+   *     index.
+   */
+  public void put(final T item, @Nullable final Location location) {
+    final CompactLocation compact = CompactLocation.of(location);
+    if (compact == null) {
+      remove(item);
+    } else {
+      put(item, compact.getMicroLongitude(), compact.getMicroLatitude());
+    }
+  }
+
+  /**
+   * Puts an object into this index, or moves it if it is already indexed.
+   *
+   * @param item
+   *     the object to be indexed.
+   * @param location
+   *     the location of the object.
+   */
+  public void put(final T item, final CompactLocation location) {
+    put(item, location.getMicroLongitude(), location.getMicroLatitude());
+  }
+
+  /**
+   * Puts an object into this index, or moves it if it is already indexed.
+   *
+   * @param item
+   *     the object to be indexed.
+   * @param longitude
+   *     the normalized longitude of the object, in micro-degrees.
+   * @param latitude
+   *     the normalized latitude of the object, in micro-degrees.
+   */
+  public void put(final T item, final int longitude, final int latitude) {
+    Argument.requireNonNull("item", item);
+    final long key = cellKey(longitude, latitude);
+    entries.compute(item, (k, old) -> {
+      if (old != null) {
+        final Cell cell = cells.get(old.cell);
+        if (old.cell == key) {
+          cell.update(k, longitude, latitude);
+          return new Entry(key, longitude, latitude);
+        }
+        cell.remove(k);
+      }
+      cells.computeIfAbsent(key, c -> new Cell()).add(k, longitude, latitude);
+      return new Entry(key, longitude, latitude);
+    });
+  }
+
+  /**
+   * Puts a collection of objects into this index in bulk.
+   * <p>
+   * The objects are grouped by cells before being inserted, so that the
+   * buckets of the cells are allocated only once. Objects without locations
+   * are ignored.
+   *
+   * @param items
+   *     the objects to be indexed.
+   * @param locator
+   *     the function used to get the location of an object.
+   */
+  public void putAll(final Collection<? extends T> items,
+      final Function<? super T, Location> locator) {
+    final Map<T, CompactLocation> map = new HashMap<>(items.size() * 4 / 3 + 1);
+    for (final T item : items) {
+      final CompactLocation location = CompactLocation.of(locator.apply(item));
+      if (location != null) {
+        map.put(item, location);
+      }
+    }
+    putAll(map);
+  }
+
+  /**
+   * Puts a collection of objects into this index in bulk.
+   * <p>
+   * The objects are grouped by cells before being inserted, so that the
+   * buckets of the cells are allocated only once.
+   *
+   * @param items
+   *     the map from the objects to be indexed to their locations.
+   */
+  public void putAll(final Map<? extends T, CompactLocation> items) {
+    final Map<Long, List<T>> groups = new HashMap<>();
+    for (final Map.Entry<? extends T, CompactLocation> e : items.entrySet()) {
+      final CompactLocation location = e.getValue();
+      final long key = cellKey(location.getMicroLongitude(), location.getMicroLatitude());
+      groups.computeIfAbsent(key, k -> new ArrayList<>()).add(e.getKey());
+    }
+    for (final Map.Entry<Long, List<T>> group : groups.entrySet()) {
+      final Cell cell = cells.computeIfAbsent(group.getKey(), c -> new Cell());
+      final List<T> list = group.getValue();
+      cell.reserve(list.size());
+      for (final T item : list) {
+        put(item, items.get(item));
+      }
+    }
+  }
+
+  /**
+   * Removes an object from this index.
+   *
+   * @param item
+   *     the object to be removed.
+   * @return
+   *     {@code true} if the object was in this index; {@code false} otherwise.
+   */
+  public boolean remove(final T item) {
+    final boolean[] removed = new boolean[1];
+    entries.computeIfPresent(item, (k, old) -> {
+      cells.get(old.cell).remove(k);
+      removed[0] = true;
+      return null;
+    });
+    return removed[0];
+  }
+
+  /**
+   * Removes all objects from this index.
+   */
+  public void clear() {
+    for (final T item : entries.keySet()) {
+      remove(item);
+    }
+  }
+
+  /**
+   * Finds all the objects within the specified distance from a location.
+   *
+   * @param center
+   *     the center of the query circle.
+   * @param radius
+   *     the radius of the query circle, in meters.
+   * @return
+   *     the list of objects within the specified distance from the location,
+   *     in no particular order.
+   */
+  public List<T> findWithin(final CompactLocation center, final double radius) {
+    final List<T> result = new ArrayList<>();
+    findWithin(center.getMicroLongitude(), center.getMicroLatitude(), radius, result);
+    return result;
+  }
+
+  /**
+   * Finds all the objects within the specified distance from a location.
+   *
+   * @param longitude
+   *     the longitude of the center of the query circle, in micro-degrees.
+   * @param latitude
+   *     the latitude of the center of the query circle, in micro-degrees.
+   * @param radius
+   *     the radius of the query circle, in meters.
+   * @param result
+   *     the collection where to add the found objects.
+   * @return
+   *     the number of found objects.
+   */
+  public int findWithin(final int longitude, final int latitude,
+      final double radius, final Collection<? super T> result) {
+    final double latSpan = radius / METERS_PER_MICRO_DEGREE;
+    final double lngSpan = longitudeSpan(latitude, radius);
+    final int cx0 = column(longitude);
+    final int cy0 = row(latitude);
+    final int dy = (int) Math.ceil(latSpan / cellSize);
+    final int dx = (int) Math.min(Math.ceil(lngSpan / cellSize), columns / 2);
+    final int minX = -Math.min(dx, (columns - 1) / 2);
+    final int maxX = Math.min(dx, columns / 2);
+    final int minY = Math.max(cy0 - dy, 0);
+    final int maxY = Math.min(cy0 + dy, rows - 1);
+    int count = 0;
+    for (int y = minY; y <= maxY; ++y) {
+      for (int x = minX; x <= maxX; ++x) {
+        final Cell cell = cells.get(packCell(Math.floorMod(cx0 + x, columns), y));
+        if (cell != null) {
+          count += cell.collectWithin(longitude, latitude, lngSpan, latSpan,
+              radius, result);
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Finds the k-nearest objects to a location.
+   *
+   * @param center
+   *     the query location.
+   * @param k
+   *     the maximum number of objects to be found.
+   * @return
+   *     the list of the k-nearest objects, sorted by their distances to the
+   *     query location in ascending order.
+   */
+  public List<T> findNearest(final CompactLocation center, final int k) {
+    return findNearest(center.getMicroLongitude(), center.getMicroLatitude(), k);
+  }
+
+  /**
+   * Finds the k-nearest objects to a location.
+   *
+   * @param longitude
+   *     the longitude of the query location, in micro-degrees.
+   * @param latitude
+   *     the latitude of the query location, in micro-degrees.
+   * @param k
+   *     the maximum number of objects to be found.
+   * @return
+   *     the list of the k-nearest objects, sorted by their distances to the
+   *     query location in ascending order.
+   */
+  public List<T> findNearest(final int longitude, final int latitude, final int k) {
+    if (k <= 0) {
+      return new ArrayList<>();
+    }
+    final PriorityQueue<Candidate<T>> heap = new PriorityQueue<>(k + 1,
+        (a, b) -> Double.compare(b.distance, a.distance));
+    final int cx0 = column(longitude);
+    final int cy0 = row(latitude);
+    final int lowX = -((columns - 1) / 2);
+    final int highX = columns / 2;
+    final int maxRing = Math.max(highX, rows);
+    final int total = entries.size();
+    int visited = 0;
+    for (int r = 0; r <= maxRing; ++r) {
+      for (int dy = -r; dy <= r; ++dy) {
+        final int y = cy0 + dy;
+        if (y < 0 || y >= rows) {
+          continue;
+        }
+        if (dy == -r || dy == r) {
+          for (int dx = Math.max(-r, lowX); dx <= Math.min(r, highX); ++dx) {
+            visited += visitNearest(cx0 + dx, y, longitude, latitude, k, heap);
+          }
+        } else {
+          if (-r >= lowX) {
+            visited += visitNearest(cx0 - r, y, longitude, latitude, k, heap);
+          }
+          if (r <= highX) {
+            visited += visitNearest(cx0 + r, y, longitude, latitude, k, heap);
+          }
+        }
+      }
+      if (visited >= total) {
+        break;
+      }
+      if (heap.size() == k && heap.peek().distance <= ringDistance(latitude, r)) {
+        break;
+      }
+    }
+    final List<Candidate<T>> sorted = new ArrayList<>(heap);
+    sorted.sort((a, b) -> Double.compare(a.distance, b.distance));
+    final List<T> result = new ArrayList<>(sorted.size());
+    for (final Candidate<T> c : sorted) {
+      result.add(c.item);
+    }
+    return result;
+  }
+
+  private int visitNearest(final int x, final int y, final int longitude,
+      final int latitude, final int k, final PriorityQueue<Candidate<T>> heap) {
+    final Cell cell = cells.get(packCell(Math.floorMod(x, columns), y));
+    return (cell == null ? 0 : cell.collectNearest(longitude, latitude, k, heap));
+  }
+
+  /**
+   * Gets the lower bound of the distances from a location to the objects in
+   * the cells outside of the ring of the specified radius around the cell of
+   * the location.
+   */
+  private double ringDistance(final int latitude, final int ring) {
+    final double span = (double) ring * cellSize;
+    final double maxLat = Math.min(Math.abs((double) latitude) + span + cellSize,
+        90.0 * SCALE_FACTOR);
+    // the great-circle distance of a longitude difference dλ at latitude φ is
+    // at least 2/π·R·cos(φ)·dλ for dλ ≤ π
+    final double factor = Math.cos(maxLat * RADIANS_PER_MICRO_DEGREE) * 2 / Math.PI;
+    return span * METERS_PER_MICRO_DEGREE * factor;
+  }
+
+  private int column(final int longitude) {
+    return (int) Math.min((longitude + OFFSET) / cellSize, columns - 1);
+  }
+
+  private int row(final int latitude) {
+    return (int) Math.min(Math.max((latitude + OFFSET) / cellSize, 0), rows - 1);
+  }
+
+  private long cellKey(final int longitude, final int latitude) {
+    return packCell(column(longitude), row(latitude));
+  }
+
+  private static long packCell(final int column, final int row) {
+    return ((long) column << 32) | (row & 0xFFFF_FFFFL);
+  }
+
+  private static final class Entry {
+    final long cell;
+    final int longitude;
+    final int latitude;
+
+    Entry(final long cell, final int longitude, final int latitude) {
+      this.cell = cell;
+      this.longitude = longitude;
+      this.latitude = latitude;
+    }
+  }
+
+  private static final class Candidate<T> {
+    final T item;
+    final double distance;
+
+    Candidate(final T item, final double distance) {
+      this.item = item;
+      this.distance = distance;
+    }
+  }
+
+  /**
+   * A bucket of objects in a cell, storing their coordinates in parallel
+   * arrays.
+   */
+  private static final class Cell {
+    private static final int INITIAL_CAPACITY = 4;
+
+    int size;
+    int[] longitudes = new int[INITIAL_CAPACITY];
+    int[] latitudes = new int[INITIAL_CAPACITY];
+    Object[] items = new Object[INITIAL_CAPACITY];
+
+    synchronized void reserve(final int count) {
+      ensureCapacity(size + count);
+    }
+
+    void ensureCapacity(final int capacity) {
+      if (capacity > items.length) {
+        final int n = Math.max(capacity, items.length * 2);
+        longitudes = Arrays.copyOf(longitudes, n);
+        latitudes = Arrays.copyOf(latitudes, n);
+        items = Arrays.copyOf(items, n);
+      }
+    }
+
+    synchronized void add(final Object item, final int longitude, final int latitude) {
+      ensureCapacity(size + 1);
+      longitudes[size] = longitude;
+      latitudes[size] = latitude;
+      items[size] = item;
+      ++size;
+    }
+
+    synchronized void update(final Object item, final int longitude, final int latitude) {
+      for (int i = 0; i < size; ++i) {
+        if (items[i].equals(item)) {
+          longitudes[i] = longitude;
+          latitudes[i] = latitude;
+          return;
+        }
+      }
+    }
+
+    synchronized void remove(final Object item) {
+      for (int i = 0; i < size; ++i) {
+        if (items[i].equals(item)) {
+          --size;
+          longitudes[i] = longitudes[size];
+          latitudes[i] = latitudes[size];
+          items[i] = items[size];
+          items[size] = null;
+          return;
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T> int collectWithin(final int longitude, final int latitude,
+        final double lngSpan, final double latSpan, final double radius,
+        final Collection<? super T> result) {
+      int count = 0;
+      for (int i = 0; i < size; ++i) {
+        // filters out the points outside the bounding box before computing
+        // the exact distance
+        if (Math.abs((long) latitudes[i] - latitude) > latSpan) {
+          continue;
+        }
+        if (Math.abs(longitudeDelta(longitude, longitudes[i])) > lngSpan) {
+          continue;
+        }
+        if (haversine(longitude, latitude, longitudes[i], latitudes[i]) <= radius) {
+          result.add((T) items[i]);
+          ++count;
+        }
+      }
+      return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T> int collectNearest(final int longitude, final int latitude,
+        final int k, final PriorityQueue<Candidate<T>> heap) {
+      for (int i = 0; i < size; ++i) {
+        if (heap.size() == k) {
+          // the meridian distance is a lower bound of the great-circle distance
+          final long dy = Math.abs((long) latitudes[i] - latitude);
+          if (dy * METERS_PER_MICRO_DEGREE >= heap.peek().distance) {
+            continue;
+          }
+        }
+        final double d = haversine(longitude, latitude, longitudes[i], latitudes[i]);
+        if (heap.size() < k) {
+          heap.add(new Candidate<>((T) items[i], d));
+        } else if (d < heap.peek().distance) {
+          heap.poll();
+          heap.add(new Candidate<>((T) items[i], d));
+        }
+      }
+      return size;
+    }
+  }
+}
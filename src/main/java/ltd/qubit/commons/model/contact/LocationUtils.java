@@ -0,0 +1,420 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.SCALE_FACTOR;
+
+/**
+ * Provides geodesic computations on geographical locations.
+ * <p>
+ * All functions of this class work on primitive coordinates, either in degrees
+ * ({@code double}) or in micro-degrees ({@code int}), and never use
+ * {@link java.math.BigDecimal} arithmetic. The earth is modeled as a sphere
+ * with the mean radius {@value #EARTH_RADIUS} meters.
+ * <p>
+ * The batch functions compute the distances from a single location to the
+ * locations stored in parallel coordinate arrays, in tight loops without
+ * allocations.
+ *
+ * @author Haixing Hu
+ * @see Location
+ * @see CompactLocation
+ * @see BoundingBox
+ */
+@ThreadSafe
+public final class LocationUtils {
+
+  /**
+   * The mean radius of the earth, in meters.
+   */
+  public static final double EARTH_RADIUS = 6_371_008.8;
+
+  /**
+   * The number of radians in one micro-degree.
+   */
+  public static final double RADIANS_PER_MICRO_DEGREE = Math.PI / 180 / SCALE_FACTOR;
+
+  /**
+   * The length of the arc of one micro-degree on a great circle, in meters.
+   */
+  public static final double METERS_PER_MICRO_DEGREE = EARTH_RADIUS * RADIANS_PER_MICRO_DEGREE;
+
+  private static final long MICRO_HALF_ROUND = 180L * SCALE_FACTOR;
+
+  private static final long MICRO_ROUND = 360L * SCALE_FACTOR;
+
+  private static final int MICRO_QUARTER_ROUND = 90 * SCALE_FACTOR;
+
+  private LocationUtils() {}
+
+  /**
+   * Computes the great-circle distance between two locations with the
+   * haversine formula.
+   *
+   * @param lng1
+   *     the longitude of the first location, in degrees.
+   * @param lat1
+   *     the latitude of the first location, in degrees.
+   * @param lng2
+   *     the longitude of the second location, in degrees.
+   * @param lat2
+   *     the latitude of the second location, in degrees.
+   * @return
+   *     the great-circle distance between the two locations, in meters.
+   */
+  public static double haversine(final double lng1, final double lat1,
+      final double lng2, final double lat2) {
+    return haversineRadians(Math.toRadians(lng1), Math.toRadians(lat1),
+        Math.toRadians(lng2), Math.toRadians(lat2));
+  }
+
+  /**
+   * Computes the great-circle distance between two locations with the
+   * haversine formula.
+   *
+   * @param lng1
+   *     the longitude of the first location, in micro-degrees.
+   * @param lat1
+   *     the latitude of the first location, in micro-degrees.
+   * @param lng2
+   *     the longitude of the second location, in micro-degrees.
+   * @param lat2
+   *     the latitude of the second location, in micro-degrees.
+   * @return
+   *     the great-circle distance between the two locations, in meters.
+   */
+  public static double haversine(final int lng1, final int lat1,
+      final int lng2, final int lat2) {
+    return haversineRadians(lng1 * RADIANS_PER_MICRO_DEGREE,
+        lat1 * RADIANS_PER_MICRO_DEGREE,
+        lng2 * RADIANS_PER_MICRO_DEGREE,
+        lat2 * RADIANS_PER_MICRO_DEGREE);
+  }
+
+  private static double haversineRadians(final double lambda1, final double phi1,
+      final double lambda2, final double phi2) {
+    final double sinPhi = Math.sin((phi2 - phi1) / 2);
+    final double sinLambda = Math.sin((lambda2 - lambda1) / 2);
+    final double a = sinPhi * sinPhi
+        + Math.cos(phi1) * Math.cos(phi2) * sinLambda * sinLambda;
+    return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+  }
+
+  /**
+   * Computes the approximate distance between two locations with the
+   * equirectangular projection.
+   * <p>
+   * The approximation is much faster than the haversine formula, and its error
+   * is negligible for distances of a few hundred kilometers far away from the
+   * poles.
+   *
+   * @param lng1
+   *     the longitude of the first location, in degrees.
+   * @param lat1
+   *     the latitude of the first location, in degrees.
+   * @param lng2
+   *     the longitude of the second location, in degrees.
+   * @param lat2
+   *     the latitude of the second location, in degrees.
+   * @return
+   *     the approximate distance between the two locations, in meters.
+   */
+  public static double equirectangular(final double lng1, final double lat1,
+      final double lng2, final double lat2) {
+    double dLng = lng2 - lng1;
+    dLng = (dLng > 180 ? dLng - 360 : (dLng < -180 ? dLng + 360 : dLng));
+    final double x = Math.toRadians(dLng) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+    final double y = Math.toRadians(lat2 - lat1);
+    return EARTH_RADIUS * Math.sqrt(x * x + y * y);
+  }
+
+  /**
+   * Computes the approximate distance between two locations with the
+   * equirectangular projection.
+   *
+   * @param lng1
+   *     the longitude of the first location, in micro-degrees.
+   * @param lat1
+   *     the latitude of the first location, in micro-degrees.
+   * @param lng2
+   *     the longitude of the second location, in micro-degrees.
+   * @param lat2
+   *     the latitude of the second location, in micro-degrees.
+   * @return
+   *     the approximate distance between the two locations, in meters.
+   * @see #equirectangular(double, double, double, double)
+   */
+  public static double equirectangular(final int lng1, final int lat1,
+      final int lng2, final int lat2) {
+    final double cos = Math.cos(((long) lat1 + lat2) / 2.0 * RADIANS_PER_MICRO_DEGREE);
+    final double x = longitudeDelta(lng1, lng2) * cos;
+    final double y = (long) lat2 - lat1;
+    return METERS_PER_MICRO_DEGREE * Math.sqrt(x * x + y * y);
+  }
+
+  /**
+   * Computes the initial bearing from a location to another location.
+   *
+   * @param lng1
+   *     the longitude of the starting location, in degrees.
+   * @param lat1
+   *     the latitude of the starting location, in degrees.
+   * @param lng2
+   *     the longitude of the destination location, in degrees.
+   * @param lat2
+   *     the latitude of the destination location, in degrees.
+   * @return
+   *     the initial bearing, in degrees clockwise from the north, in the range
+   *     of {@code [0, 360)}.
+   */
+  public static double bearing(final double lng1, final double lat1,
+      final double lng2, final double lat2) {
+    final double phi1 = Math.toRadians(lat1);
+    final double phi2 = Math.toRadians(lat2);
+    final double dLambda = Math.toRadians(lng2 - lng1);
+    final double y = Math.sin(dLambda) * Math.cos(phi2);
+    final double x = Math.cos(phi1) * Math.sin(phi2)
+        - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLambda);
+    final double theta = Math.toDegrees(Math.atan2(y, x));
+    return (theta + 360) % 360;
+  }
+
+  /**
+   * Computes the initial bearing from a location to another location.
+   *
+   * @param lng1
+   *     the longitude of the starting location, in micro-degrees.
+   * @param lat1
+   *     the latitude of the starting location, in micro-degrees.
+   * @param lng2
+   *     the longitude of the destination location, in micro-degrees.
+   * @param lat2
+   *     the latitude of the destination location, in micro-degrees.
+   * @return
+   *     the initial bearing, in degrees clockwise from the north, in the range
+   *     of {@code [0, 360)}.
+   */
+  public static double bearing(final int lng1, final int lat1,
+      final int lng2, final int lat2) {
+    return bearing((double) lng1 / SCALE_FACTOR, (double) lat1 / SCALE_FACTOR,
+        (double) lng2 / SCALE_FACTOR, (double) lat2 / SCALE_FACTOR);
+  }
+
+  /**
+   * Computes the bounding box of all locations within the specified distance
+   * from a location.
+   * <p>
+   * If the circle contains a pole, the bounding box covers all longitudes. If
+   * it crosses the 180th meridian, the minimum longitude of the returned box is
+   * greater than its maximum longitude.
+   *
+   * @param longitude
+   *     the longitude of the center, in micro-degrees.
+   * @param latitude
+   *     the latitude of the center, in micro-degrees.
+   * @param radius
+   *     the distance from the center, in meters.
+   * @return
+   *     the bounding box of all locations within the specified distance from
+   *     the center.
+   */
+  public static BoundingBox boundingBox(final int longitude, final int latitude,
+      final double radius) {
+    final double latSpan = radius / METERS_PER_MICRO_DEGREE;
+    final double minLat = latitude - latSpan;
+    final double maxLat = latitude + latSpan;
+    if (minLat <= -MICRO_QUARTER_ROUND || maxLat >= MICRO_QUARTER_ROUND) {
+      return new BoundingBox((int) -MICRO_HALF_ROUND, (int) MICRO_HALF_ROUND,
+          (int) Math.max(Math.floor(minLat), -MICRO_QUARTER_ROUND),
+          (int) Math.min(Math.ceil(maxLat), MICRO_QUARTER_ROUND));
+    }
+    final double lngSpan = longitudeSpan(latitude, radius);
+    if (lngSpan >= MICRO_HALF_ROUND) {
+      return new BoundingBox((int) -MICRO_HALF_ROUND, (int) MICRO_HALF_ROUND,
+          (int) Math.floor(minLat), (int) Math.ceil(maxLat));
+    }
+    long minLng = (long) Math.floor(longitude - lngSpan);
+    long maxLng = (long) Math.ceil(longitude + lngSpan);
+    if (minLng < -MICRO_HALF_ROUND) {
+      minLng += MICRO_ROUND;
+    }
+    if (maxLng > MICRO_HALF_ROUND) {
+      maxLng -= MICRO_ROUND;
+    }
+    return new BoundingBox((int) minLng, (int) maxLng,
+        (int) Math.floor(minLat), (int) Math.ceil(maxLat));
+  }
+
+  /**
+   * Computes the maximum difference of longitudes between a location and the
+   * locations within the specified distance from it.
+   *
+   * @param latitude
+   *     the latitude of the location, in micro-degrees.
+   * @param radius
+   *     the distance from the location, in meters.
+   * @return
+   *     the maximum difference of longitudes, in micro-degrees, which is at
+   *     least 180 degrees if the circle contains a pole.
+   */
+  public static double longitudeSpan(final int latitude, final double radius) {
+    final double latSpan = radius / METERS_PER_MICRO_DEGREE;
+    if (Math.abs((double) latitude) + latSpan >= MICRO_QUARTER_ROUND) {
+      return MICRO_ROUND;
+    }
+    final double sin = Math.sin(radius / EARTH_RADIUS)
+        / Math.cos(latitude * RADIANS_PER_MICRO_DEGREE);
+    return (sin >= 1 ? MICRO_ROUND : Math.asin(sin) / RADIANS_PER_MICRO_DEGREE);
+  }
+
+  /**
+   * Gets the difference of two longitudes, wrapped into {@code [-180, 180]}.
+   *
+   * @param lng1
+   *     the first longitude, in micro-degrees.
+   * @param lng2
+   *     the second longitude, in micro-degrees.
+   * @return
+   *     the wrapped difference {@code lng2 - lng1}, in micro-degrees.
+   */
+  public static long longitudeDelta(final int lng1, final int lng2) {
+    final long d = (long) lng2 - lng1;
+    return (d > MICRO_HALF_ROUND ? d - MICRO_ROUND
+                                 : (d < -MICRO_HALF_ROUND ? d + MICRO_ROUND : d));
+  }
+
+  /**
+   * Computes the haversine distances from a location to a batch of locations.
+   *
+   * @param lng
+   *     the longitude of the location, in degrees.
+   * @param lat
+   *     the latitude of the location, in degrees.
+   * @param lngs
+   *     the longitudes of the batch of locations, in degrees.
+   * @param lats
+   *     the latitudes of the batch of locations, in degrees.
+   * @param distances
+   *     the array where to store the computed distances, in meters.
+   * @param count
+   *     the number of locations in the batch.
+   */
+  public static void haversine(final double lng, final double lat,
+      final double[] lngs, final double[] lats, final double[] distances,
+      final int count) {
+    final double phi = Math.toRadians(lat);
+    final double lambda = Math.toRadians(lng);
+    final double cosPhi = Math.cos(phi);
+    for (int i = 0; i < count; ++i) {
+      final double phi2 = Math.toRadians(lats[i]);
+      final double sinPhi = Math.sin((phi2 - phi) / 2);
+      final double sinLambda = Math.sin((Math.toRadians(lngs[i]) - lambda) / 2);
+      final double a = sinPhi * sinPhi + cosPhi * Math.cos(phi2) * sinLambda * sinLambda;
+      distances[i] = 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+  }
+
+  /**
+   * Computes the haversine distances from a location to a batch of locations.
+   *
+   * @param lng
+   *     the longitude of the location, in micro-degrees.
+   * @param lat
+   *     the latitude of the location, in micro-degrees.
+   * @param lngs
+   *     the longitudes of the batch of locations, in micro-degrees.
+   * @param lats
+   *     the latitudes of the batch of locations, in micro-degrees.
+   * @param distances
+   *     the array where to store the computed distances, in meters.
+   * @param count
+   *     the number of locations in the batch.
+   */
+  public static void haversine(final int lng, final int lat, final int[] lngs,
+      final int[] lats, final double[] distances, final int count) {
+    final double phi = lat * RADIANS_PER_MICRO_DEGREE;
+    final double lambda = lng * RADIANS_PER_MICRO_DEGREE;
+    final double cosPhi = Math.cos(phi);
+    for (int i = 0; i < count; ++i) {
+      final double phi2 = lats[i] * RADIANS_PER_MICRO_DEGREE;
+      final double sinPhi = Math.sin((phi2 - phi) / 2);
+      final double sinLambda = Math.sin((lngs[i] * RADIANS_PER_MICRO_DEGREE - lambda) / 2);
+      final double a = sinPhi * sinPhi + cosPhi * Math.cos(phi2) * sinLambda * sinLambda;
+      distances[i] = 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+  }
+
+  /**
+   * Computes the approximate distances from a location to a batch of locations
+   * with the equirectangular projection.
+   * <p>
+   * Different from {@link #equirectangular(double, double, double, double)},
+   * the projection of the batch version uses the latitude of the specified
+   * location as the reference parallel, so that the loop contains only
+   * arithmetic operations, which can be vectorized by the JIT compiler.
+   *
+   * @param lng
+   *     the longitude of the location, in degrees.
+   * @param lat
+   *     the latitude of the location, in degrees.
+   * @param lngs
+   *     the longitudes of the batch of locations, in degrees.
+   * @param lats
+   *     the latitudes of the batch of locations, in degrees.
+   * @param distances
+   *     the array where to store the computed distances, in meters.
+   * @param count
+   *     the number of locations in the batch.
+   */
+  public static void equirectangular(final double lng, final double lat,
+      final double[] lngs, final double[] lats, final double[] distances,
+      final int count) {
+    final double kx = Math.toRadians(1) * Math.cos(Math.toRadians(lat)) * EARTH_RADIUS;
+    final double ky = Math.toRadians(1) * EARTH_RADIUS;
+    for (int i = 0; i < count; ++i) {
+      double dLng = lngs[i] - lng;
+      dLng = (dLng > 180 ? dLng - 360 : (dLng < -180 ? dLng + 360 : dLng));
+      final double x = dLng * kx;
+      final double y = (lats[i] - lat) * ky;
+      distances[i] = Math.sqrt(x * x + y * y);
+    }
+  }
+
+  /**
+   * Computes the approximate distances from a location to a batch of locations
+   * with the equirectangular projection.
+   *
+   * @param lng
+   *     the longitude of the location, in micro-degrees.
+   * @param lat
+   *     the latitude of the location, in micro-degrees.
+   * @param lngs
+   *     the longitudes of the batch of locations, in micro-degrees.
+   * @param lats
+   *     the latitudes of the batch of locations, in micro-degrees.
+   * @param distances
+   *     the array where to store the computed distances, in meters.
+   * @param count
+   *     the number of locations in the batch.
+   * @see #equirectangular(double, double, double[], double[], double[], int)
+   */
+  public static void equirectangular(final int lng, final int lat,
+      final int[] lngs, final int[] lats, final double[] distances,
+      final int count) {
+    final double kx = METERS_PER_MICRO_DEGREE * Math.cos(lat * RADIANS_PER_MICRO_DEGREE);
+    final double ky = METERS_PER_MICRO_DEGREE;
+    for (int i = 0; i < count; ++i) {
+      final double x = longitudeDelta(lng, lngs[i]) * kx;
+      final double y = ((long) lats[i] - lat) * ky;
+      distances[i] = Math.sqrt(x * x + y * y);
+    }
+  }
+}
@@ -8,6 +8,11 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.model;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 
@@ -33,6 +38,8 @@ public class Environment implements Serializable, Assignable<Environment> {
   @Serial
   private static final long serialVersionUID = 1187646689252728533L;
 
+  private static final int COMPACT_FORM_VERSION = 1;
+
   /**
    * The IP address of the client.
    */
@@ -174,4 +181,61 @@ public class Environment implements Serializable, Assignable<Environment> {
         .append("pushToken", pushToken)
         .toString();
   }
+
+  /**
+   * Writes this environment in its compact serialized form.
+   * <p>
+   * The values of the fields are written in order, without the descriptions
+   * of the fields, after a leading version byte, which lets
+   * {@link #readObject(ObjectInputStream)} tell this form from the default
+   * serialized form of the earlier versions of this class. The earlier
+   * versions could not read this form.
+   *
+   * @param out
+   *     the output stream.
+   * @throws IOException
+   *     if any I/O error occurred.
+   */
+  @Serial
+  private void writeObject(final ObjectOutputStream out) throws IOException {
+    out.writeByte(COMPACT_FORM_VERSION);
+    out.writeObject(ip);
+    out.writeObject(location);
+    out.writeObject(platform);
+    out.writeObject(udid);
+    out.writeObject(pushToken);
+  }
+
+  /**
+   * Reads this environment from its compact or default serialized form.
+   *
+   * @param in
+   *     the input stream.
+   * @throws IOException
+   *     if any I/O error occurred.
+   * @throws ClassNotFoundException
+   *     if the class of a field could not be found.
+   * @see #writeObject(ObjectOutputStream)
+   */
+  @Serial
+  private void readObject(final ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    final int version;
+    try {
+      version = in.readByte();
+    } catch (final EOFException e) {
+      // written in the default serialized form, which has no block data
+      in.defaultReadObject();
+      return;
+    }
+    if (version != COMPACT_FORM_VERSION) {
+      throw new InvalidObjectException("Unsupported serialized form version: "
+          + version);
+    }
+    ip = (String) in.readObject();
+    location = (Location) in.readObject();
+    platform = (Platform) in.readObject();
+    udid = (String) in.readObject();
+    pushToken = (String) in.readObject();
+  }
 }
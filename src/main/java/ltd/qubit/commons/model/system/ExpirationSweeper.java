@@ -0,0 +1,306 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.system;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.annotation.concurrent.Immutable;
+
+import ltd.qubit.commons.model.Expired;
+import ltd.qubit.commons.model.ExpiredReason;
+import ltd.qubit.commons.model.Token;
+import ltd.qubit.commons.model.util.HasClock;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * Provides functions partitioning batches of {@link Token}s and
+ * {@link Expirable}s into the live and expired objects.
+ * <p>
+ * The current time is read from the clock only once per batch, and the expiry
+ * of each object is evaluated against it in a single pass. If the number of
+ * objects is greater than the threshold, the evaluation runs in parallel in the
+ * common {@link java.util.concurrent.ForkJoinPool}. The orders of the objects
+ * in both partitions are the orders in the batch, and the {@code null} elements
+ * are ignored.
+ *
+ * @author Haixing Hu
+ */
+public final class ExpirationSweeper {
+
+  /**
+   * The default threshold of the number of objects below which a batch of
+   * objects is evaluated sequentially in the current thread.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
+
+  private static final byte LIVE = 1;
+
+  private static final byte EXPIRED = 2;
+
+  private ExpirationSweeper() {}
+
+  /**
+   * Partitions a batch of tokens with the default parallelism threshold.
+   *
+   * @param <T>
+   *     the type of the tokens.
+   * @param tokens
+   *     the batch of tokens.
+   * @param clock
+   *     the object providing the current time.
+   * @return
+   *     the partitions of the tokens.
+   * @see #sweepTokens(Collection, HasClock, int)
+   */
+  public static <T extends Token> Result<T> sweepTokens(
+      final Collection<? extends T> tokens, final HasClock clock) {
+    return sweepTokens(tokens, clock, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Partitions a batch of tokens.
+   * <p>
+   * A token is expired if its {@code createTime + maxAge} is not later than the
+   * current time of the clock.
+   *
+   * @param <T>
+   *     the type of the tokens.
+   * @param tokens
+   *     the batch of tokens.
+   * @param clock
+   *     the object providing the current time.
+   * @param threshold
+   *     the maximum number of tokens evaluated sequentially.
+   * @return
+   *     the partitions of the tokens.
+   */
+  public static <T extends Token> Result<T> sweepTokens(
+      final Collection<? extends T> tokens, final HasClock clock,
+      final int threshold) {
+    final long now = clock.now().getEpochSecond();
+    return sweep(tokens, (token) -> token.isExpired(now), now, threshold);
+  }
+
+  /**
+   * Partitions a stream of tokens with the default parallelism threshold.
+   * <p>
+   * The stream is consumed by this function.
+   *
+   * @param <T>
+   *     the type of the tokens.
+   * @param tokens
+   *     the stream of tokens.
+   * @param clock
+   *     the object providing the current time.
+   * @return
+   *     the partitions of the tokens.
+   * @see #sweepTokens(Collection, HasClock, int)
+   */
+  public static <T extends Token> Result<T> sweepTokens(
+      final Stream<? extends T> tokens, final HasClock clock) {
+    return sweepTokens(tokens.collect(Collectors.toList()), clock,
+        DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Partitions a batch of {@link Expirable} objects with the default
+   * parallelism threshold.
+   *
+   * @param <T>
+   *     the type of the objects.
+   * @param objects
+   *     the batch of objects.
+   * @param expiredEpochSecond
+   *     the function computing the expired time of an object, in epoch
+   *     seconds, which should return {@link Long#MAX_VALUE} if the object
+   *     never expires.
+   * @param clock
+   *     the object providing the current time.
+   * @return
+   *     the partitions of the objects.
+   * @see #sweepExpirable(Collection, ToLongFunction, HasClock, int)
+   */
+  public static <T extends Expirable> Result<T> sweepExpirable(
+      final Collection<? extends T> objects,
+      final ToLongFunction<? super T> expiredEpochSecond, final HasClock clock) {
+    return sweepExpirable(objects, expiredEpochSecond, clock,
+        DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Partitions a batch of {@link Expirable} objects.
+   * <p>
+   * An object already having its expiration information is expired, and its
+   * expiration information is kept. Otherwise, if its expired time is not
+   * later than the current time of the clock, it is expired, and its
+   * expiration information is set to an {@link Expired} with its expired time
+   * and the reason {@link ExpiredReason#TIMEOUT}.
+   *
+   * @param <T>
+   *     the type of the objects.
+   * @param objects
+   *     the batch of objects.
+   * @param expiredEpochSecond
+   *     the function computing the expired time of an object, in epoch
+   *     seconds, which should return {@link Long#MAX_VALUE} if the object
+   *     never expires.
+   * @param clock
+   *     the object providing the current time.
+   * @param threshold
+   *     the maximum number of objects evaluated sequentially.
+   * @return
+   *     the partitions of the objects.
+   */
+  public static <T extends Expirable> Result<T> sweepExpirable(
+      final Collection<? extends T> objects,
+      final ToLongFunction<? super T> expiredEpochSecond, final HasClock clock,
+      final int threshold) {
+    final long now = clock.now().getEpochSecond();
+    return sweep(objects, (obj) -> {
+      if (obj.getExpired() != null) {
+        return true;
+      }
+      final long expired = expiredEpochSecond.applyAsLong(obj);
+      if (now < expired) {
+        return false;
+      }
+      obj.setExpired(new Expired(Instant.ofEpochSecond(expired),
+          ExpiredReason.TIMEOUT));
+      return true;
+    }, now, threshold);
+  }
+
+  /**
+   * Partitions a stream of {@link Expirable} objects with the default
+   * parallelism threshold.
+   * <p>
+   * The stream is consumed by this function.
+   *
+   * @param <T>
+   *     the type of the objects.
+   * @param objects
+   *     the stream of objects.
+   * @param expiredEpochSecond
+   *     the function computing the expired time of an object, in epoch
+   *     seconds, which should return {@link Long#MAX_VALUE} if the object
+   *     never expires.
+   * @param clock
+   *     the object providing the current time.
+   * @return
+   *     the partitions of the objects.
+   * @see #sweepExpirable(Collection, ToLongFunction, HasClock, int)
+   */
+  public static <T extends Expirable> Result<T> sweepExpirable(
+      final Stream<? extends T> objects,
+      final ToLongFunction<? super T> expiredEpochSecond, final HasClock clock) {
+    return sweepExpirable(objects.collect(Collectors.toList()),
+        expiredEpochSecond, clock, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Result<T> sweep(final Collection<? extends T> objects,
+      final Predicate<? super T> isExpired, final long now, final int threshold) {
+    final List<? extends T> list;
+    if ((objects instanceof List) && (objects instanceof RandomAccess)) {
+      list = (List<? extends T>) objects;
+    } else {
+      list = (List<? extends T>) Arrays.asList(objects.toArray());
+    }
+    final int n = list.size();
+    // evaluates the objects into a flag array, so that the parallel workers
+    // share no mutable state, and then partitions them in order.
+    final byte[] flags = new byte[n];
+    final IntStream indexes = IntStream.range(0, n);
+    (n > threshold ? indexes.parallel() : indexes).forEach((i) -> {
+      final T obj = list.get(i);
+      if (obj != null) {
+        flags[i] = (isExpired.test(obj) ? EXPIRED : LIVE);
+      }
+    });
+    final List<T> live = new ArrayList<>();
+    final List<T> expired = new ArrayList<>();
+    for (int i = 0; i < n; ++i) {
+      if (flags[i] == LIVE) {
+        live.add(list.get(i));
+      } else if (flags[i] == EXPIRED) {
+        expired.add(list.get(i));
+      }
+    }
+    return new Result<>(now, live, expired);
+  }
+
+  /**
+   * The partitions of a batch of objects.
+   *
+   * @param <T>
+   *     the type of the objects.
+   */
+  @Immutable
+  public static final class Result<T> {
+
+    private final long now;
+    private final List<T> live;
+    private final List<T> expired;
+
+    private Result(final long now, final List<T> live, final List<T> expired) {
+      this.now = now;
+      this.live = Collections.unmodifiableList(live);
+      this.expired = Collections.unmodifiableList(expired);
+    }
+
+    /**
+     * Gets the current time against which the objects were evaluated.
+     *
+     * @return
+     *     the current time, in epoch seconds.
+     */
+    public long getNow() {
+      return now;
+    }
+
+    /**
+     * Gets the objects not expired.
+     *
+     * @return
+     *     the unmodifiable list of the objects not expired.
+     */
+    public List<T> getLive() {
+      return live;
+    }
+
+    /**
+     * Gets the expired objects.
+     *
+     * @return
+     *     the unmodifiable list of the expired objects.
+     */
+    public List<T> getExpired() {
+      return expired;
+    }
+
+    public String toString() {
+      return new ToStringBuilder(this)
+          .append("now", now)
+          .append("live", live.size())
+          .append("expired", expired.size())
+          .toString();
+    }
+  }
+}
@@ -0,0 +1,574 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.system;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ltd.qubit.commons.lang.Argument;
+import ltd.qubit.commons.model.Expired;
+import ltd.qubit.commons.model.ExpiredReason;
+import ltd.qubit.commons.model.Token;
+import ltd.qubit.commons.model.util.HasClock;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * A hierarchical timing wheel firing the expiration of objects, such as
+ * {@link Token}s and {@link Expirable}s.
+ * <p>
+ * The wheel ticks once per second. It has 5 levels: the first level has 256
+ * slots of one second, and each of the other levels has 64 slots, each of
+ * which spans all slots of the previous level; thus the wheel covers about 136
+ * years, and the objects expiring later are parked in the last level until
+ * they come into range. Scheduling and canceling an object take constant time.
+ * Each level keeps a bitmap of its occupied slots, so advancing the wheel jumps
+ * directly to the next tick which has an occupied slot to expire or cascade
+ * down, instead of stepping through every elapsed second; thus the cost of an
+ * advance is proportional to the number of occupied slots it passes, no matter
+ * how much time has elapsed or how many objects are scheduled.
+ * <p>
+ * The wheel does not run a thread itself; the owner should call
+ * {@link #advance()} periodically, e.g., once per second with a scheduled
+ * executor. The listener is called outside the lock of the wheel, so it may
+ * schedule or cancel objects. An exception or error thrown by the listener does
+ * not stop the firing of the other expired objects; the first one is rethrown
+ * after all objects are fired, with the others added as its suppressed
+ * exceptions.
+ *
+ * @param <T>
+ *     the type of the objects to be expired.
+ * @author Haixing Hu
+ */
+@ThreadSafe
+public final class ExpirationWheel<T> implements HasClock {
+
+  private static final int FIRST_LEVEL_BITS = 8;
+
+  private static final int LEVEL_BITS = 6;
+
+  private static final int LEVELS = 5;
+
+  private static final int FIRST_LEVEL_SIZE = 1 << FIRST_LEVEL_BITS;
+
+  private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+
+  /**
+   * The maximum distance, in ticks, between the next tick and the tick where
+   * an object is placed.
+   */
+  private static final long MAX_DISTANCE =
+      (1L << (FIRST_LEVEL_BITS + (LEVELS - 1) * LEVEL_BITS)) - 1;
+
+  /**
+   * Creates an {@link ExpirationWheel} marking the expired {@link Expirable}
+   * objects.
+   * <p>
+   * When an object expires, its expiration information is set to an
+   * {@link Expired} with its expired time and the reason
+   * {@link ExpiredReason#TIMEOUT}, and then the listener is called.
+   *
+   * @param <T>
+   *     the type of the objects to be expired.
+   * @param clock
+   *     the clock used to get the current time.
+   * @param listener
+   *     the listener called after an object is marked as expired, or
+   *     {@code null} if not needed.
+   * @return
+   *     the created {@link ExpirationWheel}.
+   */
+  public static <T extends Expirable> ExpirationWheel<T> ofExpirable(
+      final Clock clock, @Nullable final Consumer<? super T> listener) {
+    return new ExpirationWheel<>(clock, (obj, time) -> {
+      obj.setExpired(new Expired(time, ExpiredReason.TIMEOUT));
+      if (listener != null) {
+        listener.accept(obj);
+      }
+    });
+  }
+
+  private final Clock clock;
+
+  private final BiConsumer<? super T, Instant> listener;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * The sentinels of the slots of all levels.
+   */
+  private final Entry<?>[][] slots;
+
+  /**
+   * The bitmaps of the slots of all levels which may be occupied.
+   * <p>
+   * A bit is set when an entry is placed in its slot, and cleared when the
+   * slot is expired or cascaded down; a slot emptied by canceling its entries
+   * keeps its bit until it is visited.
+   */
+  private final long[][] occupied;
+
+  /**
+   * The next tick to be processed, in epoch seconds.
+   */
+  private long nextTick;
+
+  private int size;
+
+  /**
+   * Constructs an {@link ExpirationWheel}.
+   *
+   * @param clock
+   *     the clock used to get the current time.
+   * @param listener
+   *     the listener called with each expired object and its expired time.
+   */
+  public ExpirationWheel(final Clock clock,
+      final BiConsumer<? super T, Instant> listener) {
+    this.clock = Argument.requireNonNull("clock", clock);
+    this.listener = Argument.requireNonNull("listener", listener);
+    this.slots = new Entry<?>[LEVELS][];
+    this.occupied = new long[LEVELS][];
+    for (int level = 0; level < LEVELS; ++level) {
+      final int n = (level == 0 ? FIRST_LEVEL_SIZE : LEVEL_SIZE);
+      slots[level] = new Entry<?>[n];
+      occupied[level] = new long[(n + Long.SIZE - 1) / Long.SIZE];
+      for (int i = 0; i < n; ++i) {
+        slots[level][i] = new Entry<>(null, 0);
+      }
+    }
+    this.nextTick = clock.instant().getEpochSecond() + 1;
+  }
+
+  @Override
+  public Clock getClock() {
+    return clock;
+  }
+
+  /**
+   * Gets the number of objects scheduled in this wheel.
+   *
+   * @return
+   *     the number of objects scheduled in this wheel.
+   */
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Schedules the expiration of an object.
+   *
+   * @param obj
+   *     the object to be expired.
+   * @param expiredTime
+   *     the time when the object expires. If it is not later than the current
+   *     time of this wheel, the object expires at the next tick.
+   * @return
+   *     the handle of the scheduled expiration, which could be used to cancel
+   *     it.
+   */
+  public Entry<T> schedule(final T obj, final Instant expiredTime) {
+    return schedule(obj, expiredTime.getEpochSecond()
+        + (expiredTime.getNano() > 0 ? 1 : 0));
+  }
+
+  /**
+   * Schedules the expiration of an object.
+   *
+   * @param obj
+   *     the object to be expired.
+   * @param expiredEpochSecond
+   *     the time when the object expires, in epoch seconds. If it is not later
+   *     than the current time of this wheel, the object expires at the next
+   *     tick.
+   * @return
+   *     the handle of the scheduled expiration, which could be used to cancel
+   *     it.
+   */
+  public Entry<T> schedule(final T obj, final long expiredEpochSecond) {
+    Argument.requireNonNull("obj", obj);
+    final Entry<T> entry = new Entry<>(obj, expiredEpochSecond);
+    lock.lock();
+    try {
+      place(entry);
+      ++size;
+    } finally {
+      lock.unlock();
+    }
+    return entry;
+  }
+
+  /**
+   * Schedules the expiration of a token.
+   *
+   * @param <T>
+   *     the type of the tokens to be expired.
+   * @param wheel
+   *     the wheel of the tokens.
+   * @param token
+   *     the token to be expired.
+   * @return
+   *     the handle of the scheduled expiration, which could be used to cancel
+   *     it; or {@code null} if the token never expires.
+   * @see Token#expiredEpochSecond()
+   */
+  @Nullable
+  public static <T extends Token> Entry<T> scheduleToken(
+      final ExpirationWheel<T> wheel, final T token) {
+    final long expired = token.expiredEpochSecond();
+    return (expired == Long.MAX_VALUE ? null : wheel.schedule(token, expired));
+  }
+
+  /**
+   * Cancels a scheduled expiration.
+   *
+   * @param entry
+   *     the handle of the scheduled expiration.
+   * @return
+   *     {@code true} if the expiration was canceled; {@code false} if it has
+   *     already fired or been canceled.
+   */
+  public boolean cancel(final Entry<T> entry) {
+    lock.lock();
+    try {
+      if (entry.prev == null) {
+        return false;
+      }
+      entry.unlink();
+      --size;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all scheduled expirations without firing them.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      for (final Entry<?>[] level : slots) {
+        for (final Entry<?> sentinel : level) {
+          while (sentinel.next != sentinel) {
+            sentinel.next.unlink();
+          }
+        }
+      }
+      for (final long[] bits : occupied) {
+        Arrays.fill(bits, 0L);
+      }
+      size = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Advances this wheel to the current time of its clock, firing all objects
+   * expired since the last advance.
+   *
+   * @return
+   *     the number of objects fired.
+   */
+  public int advance() {
+    return advance(clock.instant().getEpochSecond());
+  }
+
+  /**
+   * Advances this wheel to the specified time, firing all objects expired
+   * since the last advance.
+   *
+   * @param nowEpochSecond
+   *     the current time, in epoch seconds.
+   * @return
+   *     the number of objects fired.
+   * @throws RuntimeException
+   *     the first exception thrown by the listener, if any, after all expired
+   *     objects are fired. A checked exception thrown by the listener is
+   *     wrapped in an {@link UndeclaredThrowableException}.
+   * @throws Error
+   *     the first error thrown by the listener, if it is thrown before any
+   *     exception, after all expired objects are fired.
+   */
+  @SuppressWarnings("unchecked")
+  public int advance(final long nowEpochSecond) {
+    final List<Entry<?>> expired = new ArrayList<>();
+    lock.lock();
+    try {
+      while (size > 0) {
+        final long tick = nextEventTick();
+        if (tick > nowEpochSecond) {
+          break;
+        }
+        // all the ticks skipped have neither expired nor cascaded entries
+        nextTick = tick;
+        tick(expired);
+      }
+      nextTick = Math.max(nextTick, nowEpochSecond + 1);
+    } finally {
+      lock.unlock();
+    }
+    Throwable error = null;
+    for (final Entry<?> entry : expired) {
+      final Entry<T> e = (Entry<T>) entry;
+      try {
+        listener.accept(e.object, Instant.ofEpochSecond(e.expiredEpochSecond));
+      } catch (final Throwable ex) {
+        if (error == null) {
+          error = ex;
+        } else {
+          error.addSuppressed(ex);
+        }
+      }
+    }
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    } else if (error instanceof Error) {
+      throw (Error) error;
+    } else if (error != null) {
+      throw new UndeclaredThrowableException(error);
+    }
+    return expired.size();
+  }
+
+  /**
+   * Gets the next tick, not before the {@link #nextTick}, which has an
+   * occupied slot to be expired or cascaded down.
+   * <p>
+   * The entries in the slot {@code j} of the first level expire at the unique
+   * tick in {@code [nextTick, nextTick + 256)} whose index in the first level
+   * is {@code j}; and the entries in the slot {@code j} of a higher level are
+   * cascaded down at the unique tick in that range of the level, whose indexes
+   * in all lower levels are zero, and whose index in the level is {@code j}.
+   *
+   * @return
+   *     the next tick having an occupied slot, or {@link Long#MAX_VALUE} if all
+   *     slots are empty.
+   */
+  private long nextEventTick() {
+    long result = Long.MAX_VALUE;
+    final int first = slotIndex(nextTick, 0);
+    final int j = nextOccupied(0, first);
+    if (j >= 0) {
+      result = nextTick + ((j - first) & (FIRST_LEVEL_SIZE - 1));
+    }
+    for (int level = 1; level < LEVELS; ++level) {
+      final int shift = FIRST_LEVEL_BITS + (level - 1) * LEVEL_BITS;
+      // the first tick not before the next tick, cascading this level
+      final long start = ((nextTick + (1L << shift) - 1) >>> shift) << shift;
+      if (start >= result) {
+        break;
+      }
+      final int i = slotIndex(start, level);
+      final int k = nextOccupied(level, i);
+      if (k >= 0) {
+        result = Math.min(result,
+            start + ((long) ((k - i) & (LEVEL_SIZE - 1)) << shift));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finds the first occupied slot of a level, searching circularly from the
+   * specified index.
+   *
+   * @return
+   *     the index of the first occupied slot, or -1 if none.
+   */
+  private int nextOccupied(final int level, final int from) {
+    final long[] bits = occupied[level];
+    final int result = firstBit(bits, from, slots[level].length);
+    return (result >= 0 ? result : firstBit(bits, 0, from));
+  }
+
+  private static int firstBit(final long[] bits, final int from, final int to) {
+    for (int w = from >>> 6; (w << 6) < to; ++w) {
+      long word = bits[w];
+      if (w == (from >>> 6)) {
+        word &= (-1L << from);
+      }
+      if (word != 0) {
+        final int i = (w << 6) + Long.numberOfTrailingZeros(word);
+        return (i < to ? i : -1);
+      }
+    }
+    return -1;
+  }
+
+  private void markOccupied(final int level, final int index) {
+    occupied[level][index >>> 6] |= (1L << index);
+  }
+
+  private void markEmpty(final int level, final int index) {
+    occupied[level][index >>> 6] &= ~(1L << index);
+  }
+
+  /**
+   * Processes the next tick.
+   * <p>
+   * When the index of the first level wraps around, the slot of the next level
+   * covering the coming ticks is cascaded down, and so on for higher levels.
+   */
+  private void tick(final List<Entry<?>> expired) {
+    final long tick = nextTick;
+    final int index = (int) (tick & (FIRST_LEVEL_SIZE - 1));
+    if (index == 0) {
+      for (int level = 1; level < LEVELS; ++level) {
+        final int i = slotIndex(tick, level);
+        markEmpty(level, i);
+        cascade(slots[level][i]);
+        if (i != 0) {
+          break;
+        }
+      }
+    }
+    ++nextTick;
+    markEmpty(0, index);
+    Entry<?> entry = slots[0][index].detachAll();
+    while (entry != null) {
+      final Entry<?> next = entry.next;
+      entry.next = null;
+      if (entry.expiredEpochSecond <= tick) {
+        --size;
+        expired.add(entry);
+      } else {
+        // parked in the last level, since it expires out of range
+        place(entry);
+      }
+      entry = next;
+    }
+  }
+
+  private void cascade(final Entry<?> sentinel) {
+    Entry<?> entry = sentinel.detachAll();
+    while (entry != null) {
+      final Entry<?> next = entry.next;
+      entry.next = null;
+      place(entry);
+      entry = next;
+    }
+  }
+
+  private void place(final Entry<?> entry) {
+    final long base = nextTick;
+    final long distance = Math.min(
+        Math.max(entry.expiredEpochSecond - base, 0), MAX_DISTANCE);
+    final long tick = base + distance;
+    int level = 0;
+    long span = FIRST_LEVEL_SIZE;
+    while (distance >= span && level < LEVELS - 1) {
+      ++level;
+      span <<= LEVEL_BITS;
+    }
+    final int index = slotIndex(tick, level);
+    slots[level][index].linkBefore(entry);
+    markOccupied(level, index);
+  }
+
+  private static int slotIndex(final long tick, final int level) {
+    if (level == 0) {
+      return (int) (tick & (FIRST_LEVEL_SIZE - 1));
+    }
+    final int shift = FIRST_LEVEL_BITS + (level - 1) * LEVEL_BITS;
+    return (int) ((tick >>> shift) & (LEVEL_SIZE - 1));
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("nextTick", nextTick)
+        .append("size", size())
+        .toString();
+  }
+
+  /**
+   * The handle of a scheduled expiration.
+   * <p>
+   * It is also a node of the doubly linked list of a slot of the wheel, so it
+   * could be unlinked in constant time.
+   *
+   * @param <T>
+   *     the type of the object to be expired.
+   */
+  public static final class Entry<T> {
+    private final T object;
+    private final long expiredEpochSecond;
+    private Entry<?> prev;
+    private Entry<?> next;
+
+    private Entry(@Nullable final T object, final long expiredEpochSecond) {
+      this.object = object;
+      this.expiredEpochSecond = expiredEpochSecond;
+      if (object == null) {   // a sentinel
+        this.prev = this;
+        this.next = this;
+      }
+    }
+
+    public T getObject() {
+      return object;
+    }
+
+    public Instant getExpiredTime() {
+      return Instant.ofEpochSecond(expiredEpochSecond);
+    }
+
+    private void linkBefore(final Entry<?> entry) {
+      entry.prev = prev;
+      entry.next = this;
+      prev.next = entry;
+      prev = entry;
+    }
+
+    /**
+     * Detaches all entries from the list of this sentinel.
+     *
+     * @return
+     *     the first detached entry, whose {@code next} links form a chain
+     *     ended with {@code null}, and whose {@code prev} links are cleared;
+     *     or {@code null} if the list is empty.
+     */
+    @Nullable
+    private Entry<?> detachAll() {
+      if (next == this) {
+        return null;
+      }
+      final Entry<?> first = next;
+      prev.next = null;
+      for (Entry<?> e = first; e != null; e = e.next) {
+        e.prev = null;
+      }
+      prev = this;
+      next = this;
+      return first;
+    }
+
+    private void unlink() {
+      prev.next = next;
+      next.prev = prev;
+      prev = null;
+      next = null;
+    }
+  }
+}
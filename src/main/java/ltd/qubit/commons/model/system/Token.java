@@ -8,6 +8,10 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.model;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.Instant;
@@ -40,6 +44,10 @@ public class Token implements Serializable, Emptyful, Normalizable, Assignable<T
   @Serial
   private static final long serialVersionUID = 9085346249421191848L;
 
+  private static final int HAS_CREATE_TIME = 0x01;
+
+  private static final int HAS_MAX_AGE = 0x02;
+
   /**
    * The current value of the token.
    */
@@ -70,6 +78,26 @@ public class Token implements Serializable, Emptyful, Normalizable, Assignable<T
   @Unique
   private String previousValue;
 
+  /**
+   * Indicates whether this token has been normalized and not modified since
+   * then.
+   * <p>
+   * It is marked as computed, so that it is neither normalized nor checked
+   * for emptiness as a property.
+   */
+  @Computed
+  private transient boolean normalized;
+
+  /**
+   * The cached expired time of this token, in epoch seconds, rounded up; or
+   * {@link Long#MAX_VALUE} if this token never expires.
+   * <p>
+   * The value {@code 0} means it has not been computed, so a token expired
+   * exactly at the epoch is simply computed each time.
+   */
+  @Computed({"createTime", "maxAge"})
+  private transient volatile long expiredEpochSecond;
+
   public Token() {
     // empty
   }
@@ -89,6 +117,8 @@ public class Token implements Serializable, Emptyful, Normalizable, Assignable<T
     createTime = other.createTime;
     maxAge = other.maxAge;
     previousValue = other.previousValue;
+    normalized = other.normalized;
+    expiredEpochSecond = 0;
   }
 
   @Override
@@ -102,6 +132,7 @@ public class Token implements Serializable, Emptyful, Normalizable, Assignable<T
 
   public void setValue(final String value) {
     this.value = value;
+    normalized = false;
   }
 
   public Instant getCreateTime() {
@@ -110,6 +141,8 @@ public class Token implements Serializable, Emptyful, Normalizable, Assignable<T
 
   public void setCreateTime(final Instant createTime) {
     this.createTime = createTime;
+    normalized = false;
+    expiredEpochSecond = 0;
   }
 
   @Nullable
@@ -119,6 +152,8 @@ public class Token implements Serializable, Emptyful, Normalizable, Assignable<T
 
   public void setMaxAge(@Nullable final Long maxAge) {
     this.maxAge = maxAge;
+    normalized = false;
+    expiredEpochSecond = 0;
   }
 
   public String getPreviousValue() {
@@ -127,6 +162,25 @@ public class Token implements Serializable, Emptyful, Normalizable, Assignable<T
 
   public void setPreviousValue(final String previousValue) {
     this.previousValue = previousValue;
+    normalized = false;
+  }
+
+  /**
+   * Normalizes this token.
+   * <p>
+   * This token remembers whether it has been normalized, and the mark is
+   * cleared by its setters; so normalizing an unchanged token again does
+   * nothing. The mark is ignored for the subclasses of {@link Token}, since
+   * they may have other fields to be normalized.
+   */
+  @Override
+  public void normalize() {
+    final boolean exact = (getClass() == Token.class);
+    if (exact && normalized) {
+      return;
+    }
+    Normalizable.super.normalize();
+    normalized = exact;
   }
 
   public boolean equals(final Object o) {
@@ -176,11 +230,124 @@ public class Token implements Serializable, Emptyful, Normalizable, Assignable<T
   @Computed("expiredTime")
   public boolean isExpired(final Instant now) {
     requireNonNull("now", now);
-    if (maxAge == null) {
-      return false;     // null means never expired
+    final long expired = expiredEpochSecond();
+    final long nowSecond = now.getEpochSecond();
+    if (nowSecond >= expired) {
+      return true;
+    } else if (nowSecond < expired - 1) {
+      return false;
     } else {
-      final Instant expiredTime = createTime.plusSeconds(maxAge);
-      return (expiredTime.compareTo(now) <= 0);
+      // the expired time is in the same second as now, only if the creation
+      // time has a fraction of second, since the maximum age is in seconds.
+      final int nano = createTime.getNano();
+      return (nano > 0) && (nano <= now.getNano());
+    }
+  }
+
+  /**
+   * Tests whether this token has expired at the specified time.
+   * <p>
+   * The expired time of this token is cached, so this function is a single
+   * comparison without allocation.
+   *
+   * @param nowEpochSecond
+   *     The current time, in epoch seconds.
+   * @return
+   *     Whether this token expires relative to the specified time.
+   * @see #isExpired(Instant)
+   */
+  public boolean isExpired(final long nowEpochSecond) {
+    return nowEpochSecond >= expiredEpochSecond();
+  }
+
+  /**
+   * Gets the expired time of this token, i.e., {@code createTime + maxAge}, in
+   * epoch seconds.
+   * <p>
+   * If the expired time has a fraction of second, it is rounded up, so that the
+   * token expires at the returned time. The result is cached until the
+   * creation time or the maximum age of this token is modified.
+   *
+   * @return
+   *     the expired time of this token in epoch seconds, or
+   *     {@link Long#MAX_VALUE} if this token never expires.
+   */
+  public long expiredEpochSecond() {
+    long result = expiredEpochSecond;
+    if (result == 0) {
+      if (maxAge == null) {
+        result = Long.MAX_VALUE;   // null means never expired
+      } else {
+        final Instant expiredTime = createTime.plusSeconds(maxAge);
+        result = expiredTime.getEpochSecond()
+            + (expiredTime.getNano() > 0 ? 1 : 0);
+      }
+      expiredEpochSecond = result;
+    }
+    return result;
+  }
+
+  /**
+   * Writes this token in its compact serialized form.
+   * <p>
+   * Only the values of the fields are written as block data, after a byte of
+   * flags marking the non-null creation time and maximum age, which are
+   * written as primitive values instead of objects.
+   * <p>
+   * <b>Note</b> that the earlier versions of this class, which have no
+   * {@code readObject()}, could not read this form; while this version still
+   * reads their default serialized form. See the serialization notes of
+   * {@link ltd.qubit.commons.model.util.Info} for the rolling upgrades.
+   *
+   * @param out
+   *     the output stream.
+   * @throws IOException
+   *     if any I/O error occurred.
+   */
+  @Serial
+  private void writeObject(final ObjectOutputStream out) throws IOException {
+    out.writeByte((createTime == null ? 0 : HAS_CREATE_TIME)
+        | (maxAge == null ? 0 : HAS_MAX_AGE));
+    out.writeObject(value);
+    if (createTime != null) {
+      out.writeLong(createTime.getEpochSecond());
+      out.writeInt(createTime.getNano());
+    }
+    if (maxAge != null) {
+      out.writeLong(maxAge);
+    }
+    out.writeObject(previousValue);
+  }
+
+  /**
+   * Reads this token from its compact or default serialized form.
+   *
+   * @param in
+   *     the input stream.
+   * @throws IOException
+   *     if any I/O error occurred.
+   * @throws ClassNotFoundException
+   *     if the class of a field could not be found.
+   * @see #writeObject(ObjectOutputStream)
+   */
+  @Serial
+  private void readObject(final ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    final int flags;
+    try {
+      flags = in.readByte();
+    } catch (final EOFException e) {
+      // written in the default serialized form, which has no block data
+      in.defaultReadObject();
+      return;
+    }
+    value = (String) in.readObject();
+    if ((flags & HAS_CREATE_TIME) != 0) {
+      createTime = Instant.ofEpochSecond(in.readLong(), in.readInt());
+    }
+    if ((flags & HAS_MAX_AGE) != 0) {
+      maxAge = in.readLong();
     }
+    previousValue = (String) in.readObject();
   }
 }
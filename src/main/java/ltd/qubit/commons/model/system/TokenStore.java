@@ -0,0 +1,443 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.system;
+
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ltd.qubit.commons.lang.Argument;
+import ltd.qubit.commons.model.Token;
+import ltd.qubit.commons.model.util.HasClock;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * A concurrent in-memory store of {@link Token}s, indexed by both their current
+ * values and their previous values.
+ * <p>
+ * The lookups are lock-free reads of two {@link ConcurrentHashMap}s. Each
+ * stored token is held by a small slot shared by both indexes; the modification
+ * of a token, such as the rotation, locks only its own slot, and replaces the
+ * stored token with a new one. The stored tokens are never exposed: the
+ * functions of this store return copies of them, so modifying a returned token
+ * could not corrupt the indexes or the expiration of the stored one.
+ * <p>
+ * The expired tokens, i.e., the tokens whose {@code createTime + maxAge} is not
+ * later than the current time of the clock, truncated to seconds, are never
+ * returned by the lookups.
+ * They are evicted lazily by the lookups, and eagerly by
+ * {@link #evictExpired()}, which should be called periodically and only visits
+ * the tokens actually expiring with an {@link ExpirationWheel}.
+ * <p>
+ * After a token is rotated, its previous value is accepted only within a grace
+ * period counted from the rotation time, which is much shorter than the maximum
+ * age of the token, so that the requests in flight during the rotation are not
+ * rejected, while a leaked previous value could not be used for long. The
+ * previous value of a token put directly into this store is accepted as long as
+ * the token is not expired.
+ *
+ * @author Haixing Hu
+ */
+@ThreadSafe
+public final class TokenStore implements HasClock {
+
+  /**
+   * The default grace period of the previous values of the rotated tokens, in
+   * seconds.
+   */
+  public static final long DEFAULT_GRACE_PERIOD = 60;
+
+  private final Clock clock;
+
+  private final long gracePeriod;
+
+  private final ConcurrentHashMap<String, Slot> byValue = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, Slot> byPreviousValue =
+      new ConcurrentHashMap<>();
+
+  private final ExpirationWheel<Slot> wheel;
+
+  /**
+   * Constructs a {@link TokenStore} with the default grace period.
+   *
+   * @param clock
+   *     the clock used to decide whether the tokens are expired.
+   */
+  public TokenStore(final Clock clock) {
+    this(clock, DEFAULT_GRACE_PERIOD);
+  }
+
+  /**
+   * Constructs a {@link TokenStore}.
+   *
+   * @param clock
+   *     the clock used to decide whether the tokens are expired.
+   * @param gracePeriod
+   *     the default grace period of the previous values of the rotated tokens,
+   *     in seconds.
+   */
+  public TokenStore(final Clock clock, final long gracePeriod) {
+    this.clock = Argument.requireNonNull("clock", clock);
+    this.gracePeriod = checkGracePeriod(gracePeriod);
+    this.wheel = new ExpirationWheel<>(clock, (slot, time) -> expire(slot));
+  }
+
+  private static long checkGracePeriod(final long gracePeriod) {
+    if (gracePeriod < 0) {
+      throw new IllegalArgumentException("The grace period must not be negative: "
+          + gracePeriod);
+    }
+    return gracePeriod;
+  }
+
+  @Override
+  public Clock getClock() {
+    return clock;
+  }
+
+  public long getGracePeriod() {
+    return gracePeriod;
+  }
+
+  /**
+   * Gets the number of tokens in this store, including the expired tokens not
+   * evicted yet.
+   *
+   * @return
+   *     the number of tokens in this store.
+   */
+  public int size() {
+    return byValue.size();
+  }
+
+  /**
+   * Puts a copy of a token into this store.
+   * <p>
+   * The token previously stored with the same value is removed, and the token
+   * previously indexed by the same previous value is no longer found by that
+   * value.
+   *
+   * @param token
+   *     the token to be stored, whose value must not be {@code null}.
+   * @return
+   *     a copy of the stored token.
+   */
+  public Token put(final Token token) {
+    Argument.requireNonNull("token", token);
+    Argument.requireNonNull("token.value", token.getValue());
+    final Slot slot = new Slot();
+    final Token stored = new Token(token);
+    final Slot replaced;
+    synchronized (slot) {
+      slot.token = stored;
+      replaced = byValue.put(stored.getValue(), slot);
+      if (stored.getPreviousValue() != null) {
+        byPreviousValue.put(stored.getPreviousValue(), slot);
+      }
+      schedule(slot);
+    }
+    retire(replaced);
+    return new Token(stored);
+  }
+
+  /**
+   * Gets the unexpired token with the specified current value.
+   *
+   * @param value
+   *     the current value of the token.
+   * @return
+   *     the token with the specified current value, or {@code null} if there
+   *     is no such token or it has expired.
+   */
+  @Nullable
+  public Token get(final String value) {
+    final Slot slot = byValue.get(value);
+    final Token token = live(slot);
+    return (token != null && value.equals(token.getValue())
+            ? new Token(token) : null);
+  }
+
+  /**
+   * Gets the unexpired token with the specified previous value, within the
+   * grace period after its rotation.
+   * <p>
+   * Unlike the lookups by the current values, this function locks the slot of
+   * the token found, so that the previous value and its grace period are read
+   * consistently.
+   *
+   * @param previousValue
+   *     the previous value of the token.
+   * @return
+   *     the token with the specified previous value, or {@code null} if there
+   *     is no such token, it has expired, or the grace period of its previous
+   *     value has passed.
+   */
+  @Nullable
+  public Token getByPreviousValue(final String previousValue) {
+    final Slot slot = byPreviousValue.get(previousValue);
+    if (live(slot) == null) {
+      return null;
+    }
+    synchronized (slot) {
+      final Token token = slot.token;
+      if (token == null || !previousValue.equals(token.getPreviousValue())) {
+        return null;
+      }
+      if (epochSecond() >= slot.previousExpiredTime) {
+        byPreviousValue.remove(previousValue, slot);
+        return null;
+      }
+      return new Token(token);
+    }
+  }
+
+  /**
+   * Finds the unexpired token whose current value is the specified value, or
+   * whose previous value is the specified value and is within its grace period.
+   *
+   * @param value
+   *     the current or previous value of the token.
+   * @return
+   *     the token found, or {@code null} if there is no such token or it has
+   *     expired.
+   */
+  @Nullable
+  public Token find(final String value) {
+    final Token token = get(value);
+    return (token != null ? token : getByPreviousValue(value));
+  }
+
+  /**
+   * Atomically rotates a token, with the default grace period of this store.
+   *
+   * @param value
+   *     the current value of the token to be rotated.
+   * @param newValue
+   *     the new value of the token.
+   * @return
+   *     the rotated token, or {@code null} if there is no unexpired token with
+   *     the specified current value.
+   * @throws IllegalArgumentException
+   *     if the new value is the same as the current value.
+   * @throws IllegalStateException
+   *     if the new value is already used by another token.
+   * @see #rotate(String, String, long)
+   */
+  @Nullable
+  public Token rotate(final String value, final String newValue) {
+    return rotate(value, newValue, gracePeriod);
+  }
+
+  /**
+   * Atomically rotates a token.
+   * <p>
+   * The current value of the token is moved to its previous value, the
+   * specified new value becomes its current value, and its creation time is
+   * reset to the current time of the clock, while its maximum age is kept. The
+   * previous value is accepted only within the specified grace period after the
+   * rotation, and the old previous value of the token is no longer accepted.
+   *
+   * @param value
+   *     the current value of the token to be rotated.
+   * @param newValue
+   *     the new value of the token.
+   * @param gracePeriod
+   *     the grace period of the previous value, in seconds.
+   * @return
+   *     the rotated token, or {@code null} if there is no unexpired token with
+   *     the specified current value.
+   * @throws IllegalArgumentException
+   *     if the new value is the same as the current value.
+   * @throws IllegalStateException
+   *     if the new value is already used by another token.
+   */
+  @Nullable
+  public Token rotate(final String value, final String newValue,
+      final long gracePeriod) {
+    Argument.requireNonNull("newValue", newValue);
+    if (newValue.equals(value)) {
+      throw new IllegalArgumentException("The new value of the token must be "
+          + "different from its current value: " + newValue);
+    }
+    checkGracePeriod(gracePeriod);
+    final Slot slot = byValue.get(value);
+    if (slot == null) {
+      return null;
+    }
+    synchronized (slot) {
+      final Token old = slot.token;
+      if (old == null || !value.equals(old.getValue()) || isExpired(old)) {
+        return null;      // removed, rotated or expired concurrently
+      }
+      if (byValue.putIfAbsent(newValue, slot) != null) {
+        throw new IllegalStateException("The token value is already used: "
+            + newValue);
+      }
+      final Token rotated = new Token(old);
+      rotated.setValue(newValue);
+      rotated.setPreviousValue(value);
+      rotated.setCreateTime(now());
+      final long rotateTime = rotated.getCreateTime().getEpochSecond();
+      slot.previousExpiredTime = (rotateTime > Long.MAX_VALUE - gracePeriod
+                                  ? Long.MAX_VALUE : rotateTime + gracePeriod);
+      slot.token = rotated;
+      byValue.remove(value, slot);
+      if (old.getPreviousValue() != null) {
+        byPreviousValue.remove(old.getPreviousValue(), slot);
+      }
+      byPreviousValue.put(value, slot);
+      reschedule(slot);
+      return new Token(rotated);
+    }
+  }
+
+  /**
+   * Removes the token with the specified current value.
+   *
+   * @param value
+   *     the current value of the token.
+   * @return
+   *     the removed token, or {@code null} if there is no such token.
+   */
+  @Nullable
+  public Token remove(final String value) {
+    final Slot slot = byValue.get(value);
+    if (slot == null) {
+      return null;
+    }
+    synchronized (slot) {
+      final Token token = slot.token;
+      if (token == null || !value.equals(token.getValue())) {
+        return null;
+      }
+      retire(slot);
+      return token;
+    }
+  }
+
+  /**
+   * Removes all tokens from this store.
+   */
+  public void clear() {
+    for (final Slot slot : byValue.values()) {
+      retire(slot);
+    }
+  }
+
+  /**
+   * Evicts the tokens expired since the last eviction.
+   *
+   * @return
+   *     the number of tokens whose expiration were fired, which may include
+   *     the tokens already removed by the lookups.
+   */
+  public int evictExpired() {
+    return wheel.advance();
+  }
+
+  @Nullable
+  private Token live(@Nullable final Slot slot) {
+    if (slot == null) {
+      return null;
+    }
+    final Token token = slot.token;
+    if (token == null) {
+      return null;
+    }
+    if (isExpired(token)) {
+      expire(slot);
+      return null;
+    }
+    return token;
+  }
+
+  private boolean isExpired(final Token token) {
+    return token.isExpired(epochSecond());
+  }
+
+  private long epochSecond() {
+    return Math.floorDiv(clock.millis(), 1000L);
+  }
+
+  private void expire(final Slot slot) {
+    synchronized (slot) {
+      final Token token = slot.token;
+      if (token != null && isExpired(token)) {
+        retire(slot);
+      }
+    }
+  }
+
+  /**
+   * Removes a slot from both indexes and cancels its expiration.
+   * <p>
+   * The caller must not hold the lock of any other slot.
+   */
+  private void retire(@Nullable final Slot slot) {
+    if (slot == null) {
+      return;
+    }
+    synchronized (slot) {
+      final Token token = slot.token;
+      if (token == null) {
+        return;
+      }
+      slot.token = null;
+      byValue.remove(token.getValue(), slot);
+      if (token.getPreviousValue() != null) {
+        byPreviousValue.remove(token.getPreviousValue(), slot);
+      }
+      if (slot.expiration != null) {
+        wheel.cancel(slot.expiration);
+        slot.expiration = null;
+      }
+    }
+  }
+
+  private void schedule(final Slot slot) {
+    final long expired = slot.token.expiredEpochSecond();
+    if (expired != Long.MAX_VALUE) {
+      slot.expiration = wheel.schedule(slot, expired);
+    }
+  }
+
+  private void reschedule(final Slot slot) {
+    if (slot.expiration != null) {
+      wheel.cancel(slot.expiration);
+      slot.expiration = null;
+    }
+    schedule(slot);
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("size", size())
+        .toString();
+  }
+
+  /**
+   * The slot holding a stored token, shared by both indexes.
+   * <p>
+   * Its fields are modified only with its lock held.
+   */
+  private static final class Slot {
+    @Nullable
+    private volatile Token token;
+    @Nullable
+    private ExpirationWheel.Entry<Slot> expiration;
+    /**
+     * The epoch second since which the previous value of the token is no
+     * longer accepted, i.e., the rotation time plus the grace period.
+     */
+    private long previousExpiredTime = Long.MAX_VALUE;
+  }
+}
@@ -0,0 +1,118 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+
+import ltd.qubit.commons.reflect.BeanInfo;
+import ltd.qubit.commons.reflect.Property;
+
+/**
+ * A pre-generated checker testing whether the objects of a class are empty.
+ * <p>
+ * The checker of a class is generated only once and cached per class with a
+ * {@link ClassValue}. It reads the properties with {@link PropertyAccessor}s
+ * instead of the reflection, ordered cheap-first, i.e., the properties of
+ * scalar types, such as numbers, strings, enumerations and times, are checked
+ * before the properties of containers, which are checked before the properties
+ * of other types, which may be checked recursively. Since an object is empty
+ * only if all its properties are empty, the ordering does not change the result
+ * of the check.
+ * <p>
+ * The checker is immutable after it is created, so it keeps no state shared by
+ * the threads checking the objects.
+ *
+ * @author Haixing Hu
+ * @see Emptyful#isEmpty()
+ */
+@Immutable
+final class EmptinessChecker {
+
+  private static final int SCALAR_COST = 0;
+
+  private static final int CONTAINER_COST = 1;
+
+  private static final int OBJECT_COST = 2;
+
+  private static final ClassValue<EmptinessChecker> CHECKERS = new ClassValue<>() {
+    @Override
+    protected EmptinessChecker computeValue(final Class<?> type) {
+      return new EmptinessChecker(type);
+    }
+  };
+
+  /**
+   * Gets the emptiness checker of a class.
+   *
+   * @param type
+   *     the specified class.
+   * @return
+   *     the cached emptiness checker of the class.
+   */
+  static EmptinessChecker of(final Class<?> type) {
+    return CHECKERS.get(type);
+  }
+
+  private final PropertyAccessor[] accessors;
+
+  private EmptinessChecker(final Class<?> type) {
+    final List<PropertyAccessor> list = new ArrayList<>();
+    for (final Property prop : BeanInfo.of(type).getProperties()) {
+      if (prop.isComputed() || prop.isJdkBuiltIn()) {
+        continue;
+      }
+      list.add(new PropertyAccessor(type, prop, false));
+    }
+    list.sort(Comparator.comparingInt((a) -> cost(a.getProperty().getType())));
+    accessors = list.toArray(new PropertyAccessor[0]);
+  }
+
+  private static int cost(final Class<?> type) {
+    if (type.isPrimitive()
+        || Number.class.isAssignableFrom(type)
+        || CharSequence.class.isAssignableFrom(type)
+        || Boolean.class == type
+        || Character.class == type
+        || type.isEnum()
+        || Temporal.class.isAssignableFrom(type)) {
+      return SCALAR_COST;
+    } else if (type.isArray()
+        || Collection.class.isAssignableFrom(type)
+        || Map.class.isAssignableFrom(type)) {
+      return CONTAINER_COST;
+    } else {
+      return OBJECT_COST;
+    }
+  }
+
+  /**
+   * Tests whether an object is empty, i.e., all its properties, except the
+   * computed and JDK built-in properties, are empty.
+   *
+   * @param obj
+   *     the object to be tested, whose class must be the class of this checker.
+   * @return
+   *     {@code true} if the object is empty; {@code false} otherwise.
+   */
+  boolean isEmpty(final Object obj) {
+    for (final PropertyAccessor accessor : accessors) {
+      if (!Emptyful.isEmpty(accessor.get(obj))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
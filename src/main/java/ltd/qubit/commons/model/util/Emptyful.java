@@ -15,8 +15,6 @@ import javax.annotation.Nullable;
 
 import ltd.qubit.commons.annotation.Computed;
 import ltd.qubit.commons.lang.ArrayUtils;
-import ltd.qubit.commons.reflect.BeanInfo;
-import ltd.qubit.commons.reflect.Property;
 
 /**
  * This interface indicates that an object has a {@code isEmpty()} method to
@@ -35,19 +33,10 @@ public interface Emptyful {
    */
   @Computed
   default boolean isEmpty() {
-    // By default, the reflection mechanism is used to check whether each field
-    // is empty. If all fields are empty, the entire object is empty.
-    final BeanInfo info = BeanInfo.of(this.getClass());
-    for (final Property prop : info.getProperties()) {
-      if (prop.isComputed() || prop.isJdkBuiltIn()) {
-        continue;
-      }
-      final Object value = prop.getValue(this);
-      if (! isEmpty(value)) {
-        return false;
-      }
-    }
-    return true;
+    // By default, each property is checked whether it is empty, with the
+    // accessors generated once per class. If all properties are empty, the
+    // entire object is empty.
+    return EmptinessChecker.of(getClass()).isEmpty(this);
   }
 
   /**
@@ -36,4 +36,20 @@ public interface HasInfo extends Identifiable, WithInfo<Info> {
     final Instant deleteTime = ((this instanceof Deletable) ? ((Deletable) this).getDeleteTime() : null);
     return new Info(id, code, name, deleteTime);
   }
+
+  /**
+   * Gets the canonical instance of the basic information of this object.
+   * <p>
+   * Unlike {@link #getInfo()}, which creates a new object each time, this
+   * method returns the instance shared in the default {@link InfoPool}, which
+   * is read-only and throws an {@link UnsupportedOperationException} on
+   * modification.
+   *
+   * @return
+   *     the canonical instance of the basic information of this object.
+   * @see Info#intern()
+   */
+  default Info internInfo() {
+    return getInfo().intern();
+  }
 }
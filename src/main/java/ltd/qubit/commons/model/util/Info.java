@@ -8,6 +8,10 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.model.util;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.Instant;
@@ -19,6 +23,7 @@ import javax.annotation.Nullable;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
+import ltd.qubit.commons.annotation.Computed;
 import ltd.qubit.commons.annotation.Identifier;
 import ltd.qubit.commons.annotation.Unique;
 import ltd.qubit.commons.lang.Assignable;
@@ -38,6 +43,10 @@ public class Info implements Serializable, Identifiable, Deletable, Emptyful,
   @Serial
   private static final long serialVersionUID = 7281371900014761423L;
 
+  private static final int HAS_ID = 0x01;
+
+  private static final int HAS_DELETE_TIME = 0x02;
+
   /**
    * The unique identifier of the object.
    */
@@ -66,6 +75,23 @@ public class Info implements Serializable, Identifiable, Deletable, Emptyful,
   @Nullable
   protected Instant deleteTime;
 
+  /**
+   * Indicates whether this object has been normalized and not modified since
+   * then.
+   * <p>
+   * It is marked as computed, so that it is neither normalized nor checked
+   * for emptiness as a property.
+   */
+  @Computed
+  private transient boolean normalized;
+
+  /**
+   * Indicates whether this object is a canonical instance in an
+   * {@link InfoPool}, which rejects all modifications.
+   */
+  @Computed
+  private transient boolean frozen;
+
   /**
    * Create a {@link Info} for an object.
    *
@@ -256,7 +282,9 @@ public class Info implements Serializable, Identifiable, Deletable, Emptyful,
 
   @Override
   public void setId(final Long id) {
+    checkNotFrozen();
     this.id = id;
+    normalized = false;
   }
 
   public String getCode() {
@@ -264,7 +292,9 @@ public class Info implements Serializable, Identifiable, Deletable, Emptyful,
   }
 
   public void setCode(final String code) {
+    checkNotFrozen();
     this.code = code;
+    normalized = false;
   }
 
   public String getName() {
@@ -272,7 +302,9 @@ public class Info implements Serializable, Identifiable, Deletable, Emptyful,
   }
 
   public void setName(final String name) {
+    checkNotFrozen();
     this.name = name;
+    normalized = false;
   }
 
   @Override
@@ -283,22 +315,96 @@ public class Info implements Serializable, Identifiable, Deletable, Emptyful,
 
   @Override
   public void setDeleteTime(@Nullable final Instant deleteTime) {
+    checkNotFrozen();
     this.deleteTime = deleteTime;
+    normalized = false;
   }
 
   @Override
   public void assign(final Info other) {
+    checkNotFrozen();
     id = other.id;
     code = other.code;
     name = other.name;
     deleteTime = other.deleteTime;
+    normalized = other.normalized;
   }
 
   public void assign(final StatefulInfo other) {
+    checkNotFrozen();
     id = other.getId();
     code = other.getCode();
     name = other.getName();
     deleteTime = other.getDeleteTime();
+    normalized = false;
+  }
+
+  /**
+   * Normalizes this object.
+   * <p>
+   * This object remembers whether it has been normalized, and the mark is
+   * cleared by its setters; so normalizing an unchanged object again does
+   * nothing. The mark is ignored for the subclasses of {@link Info}, since they
+   * may modify the protected fields directly or have other fields to be
+   * normalized.
+   *
+   * @throws UnsupportedOperationException
+   *     if this object is a canonical instance in an {@link InfoPool}.
+   */
+  @Override
+  public void normalize() {
+    checkNotFrozen();
+    final boolean exact = (getClass() == Info.class);
+    if (exact && normalized) {
+      return;
+    }
+    Normalizable.super.normalize();
+    normalized = exact;
+  }
+
+  /**
+   * Gets the canonical instance of this object in the default
+   * {@link InfoPool}.
+   * <p>
+   * The canonical instance is shared and read-only: its setters, the
+   * {@code assign()} methods and {@link #normalize()} throw an
+   * {@link UnsupportedOperationException}. This object itself is not changed,
+   * and {@link #clone()} of the canonical instance returns a modifiable copy.
+   *
+   * @return
+   *     the canonical instance equal to this object and of the same class.
+   * @see InfoPool#intern(Info)
+   */
+  public Info intern() {
+    return InfoPool.getDefault().intern(this);
+  }
+
+  /**
+   * Tests whether this object is a read-only canonical instance in an
+   * {@link InfoPool}.
+   *
+   * @return
+   *     {@code true} if this object rejects all modifications.
+   */
+  boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Makes this object reject all further modifications.
+   * <p>
+   * Only a newly created copy is frozen by {@link InfoPool}, so the objects
+   * passed to {@link InfoPool#intern(Info)} stay modifiable.
+   */
+  void freeze() {
+    frozen = true;
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException(
+          "The canonical instance of Info is read-only.");
+    }
   }
 
   @Override
@@ -349,4 +455,73 @@ public class Info implements Serializable, Identifiable, Deletable, Emptyful,
             .append("deleteTime", deleteTime)
             .toString();
   }
+
+  /**
+   * Writes this object in its compact serialized form.
+   * <p>
+   * Instead of the default serialized form, which writes the class descriptions
+   * of the boxed ID and the deletion time, only the values of the fields are
+   * written as block data, after a byte of flags marking the non-null ID and
+   * deletion time.
+   * <p>
+   * <b>Note</b> that this form is one-way compatible: streams written in the
+   * default serialized form by the earlier versions of this class, with the
+   * same {@code serialVersionUID}, are still read by
+   * {@link #readObject(ObjectInputStream)}; but the earlier versions could not
+   * read this form, and fail with a {@link java.io.StreamCorruptedException}.
+   * Therefore, in a rolling upgrade, the nodes reading the serialized objects
+   * should be upgraded before the nodes writing them.
+   *
+   * @param out
+   *     the output stream.
+   * @throws IOException
+   *     if any I/O error occurred.
+   */
+  @Serial
+  private void writeObject(final ObjectOutputStream out) throws IOException {
+    out.writeByte((id == null ? 0 : HAS_ID)
+        | (deleteTime == null ? 0 : HAS_DELETE_TIME));
+    if (id != null) {
+      out.writeLong(id);
+    }
+    out.writeObject(code);
+    out.writeObject(name);
+    if (deleteTime != null) {
+      out.writeLong(deleteTime.getEpochSecond());
+      out.writeInt(deleteTime.getNano());
+    }
+  }
+
+  /**
+   * Reads this object from its compact or default serialized form.
+   *
+   * @param in
+   *     the input stream.
+   * @throws IOException
+   *     if any I/O error occurred.
+   * @throws ClassNotFoundException
+   *     if the class of a field could not be found.
+   * @see #writeObject(ObjectOutputStream)
+   */
+  @Serial
+  private void readObject(final ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    final int flags;
+    try {
+      flags = in.readByte();
+    } catch (final EOFException e) {
+      // the default serialized form has no block data, and the failed read
+      // does not consume the values of the fields
+      in.defaultReadObject();
+      return;
+    }
+    if ((flags & HAS_ID) != 0) {
+      id = in.readLong();
+    }
+    code = (String) in.readObject();
+    name = (String) in.readObject();
+    if ((flags & HAS_DELETE_TIME) != 0) {
+      deleteTime = Instant.ofEpochSecond(in.readLong(), in.readInt());
+    }
+  }
 }
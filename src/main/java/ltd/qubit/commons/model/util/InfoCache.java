@@ -0,0 +1,615 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ltd.qubit.commons.lang.Argument;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * A bounded read-through cache of the basic information of objects, indexed by
+ * both IDs and codes.
+ * <p>
+ * The missing entries are loaded with an {@link InfoLoader}; the batch
+ * functions {@link #getAll(Collection)} and {@link #getAllByCodes(Collection)}
+ * load all missing entries with a single call of the loader, which turns the
+ * N+1 lookups of the reference data into one batched load. The concurrent
+ * loads of the same ID or code are merged: a thread missing an entry being
+ * loaded by another thread waits for that load instead of calling the loader
+ * again.
+ * <p>
+ * The explicit modifications, i.e., {@link #put(Info)},
+ * {@link #putAll(Collection)} and the invalidations, advance the generation of
+ * this cache and detach the loads in progress. A load started before a
+ * modification still returns its result to its callers, but neither caches it
+ * nor shares it with the lookups started after the modification, so a slow
+ * load could never bring back an invalidated or replaced entry.
+ * <p>
+ * The lookups are lock-free reads of two {@link ConcurrentHashMap}s; only the
+ * modifications share a lock. Each lookup stamps the entry found with a coarse
+ * clock of about one millisecond, writing the entry only when its stamp
+ * changes, and when the number of cached entries exceeds the maximum size, the
+ * entry with the oldest stamp among a small sample of entries is evicted, which
+ * approximates the eviction of the least recently used entries without
+ * ordering the entries on every read.
+ * <p>
+ * Only the objects with non-null IDs and not marked as deleted are cached; the
+ * deleted objects are still returned from the loader, but putting a deleted
+ * object into the cache invalidates its entries. The objects not found by the
+ * loader are not cached.
+ * <p>
+ * The cached {@link Info} objects are shared, so they must be treated as
+ * read-only.
+ *
+ * @author Haixing Hu
+ * @see InfoLoader
+ */
+@ThreadSafe
+public class InfoCache {
+
+  /**
+   * The number of entries sampled to choose the entry to be evicted.
+   */
+  private static final int EVICTION_SAMPLES = 8;
+
+  private final InfoLoader loader;
+
+  private final int maximumSize;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final ConcurrentHashMap<Long, Entry> byId = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, Entry> byCode = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<Long, CompletableFuture<Info>> loadingIds =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, CompletableFuture<Info>> loadingCodes =
+      new ConcurrentHashMap<>();
+
+  /**
+   * The number of the explicit modifications of this cache.
+   */
+  private volatile long generation;
+
+  /**
+   * The iterator resumed by each eviction to sample the entries.
+   */
+  @GuardedBy("lock")
+  @Nullable
+  private Iterator<Entry> sampler;
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private final LongAdder missCount = new LongAdder();
+
+  private final LongAdder loadCount = new LongAdder();
+
+  private final LongAdder evictionCount = new LongAdder();
+
+  /**
+   * Constructs an {@link InfoCache}.
+   *
+   * @param loader
+   *     the loader used to load the missing entries.
+   * @param maximumSize
+   *     the maximum number of cached entries.
+   */
+  public InfoCache(final InfoLoader loader, final int maximumSize) {
+    this.loader = Argument.requireNonNull("loader", loader);
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("The maximum size must be positive: "
+          + maximumSize);
+    }
+    this.maximumSize = maximumSize;
+  }
+
+  public final int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Gets the number of entries in this cache.
+   *
+   * @return
+   *     the number of entries in this cache.
+   */
+  public int size() {
+    return byId.size();
+  }
+
+  /**
+   * Gets the basic information of the object with the specified ID, loading it
+   * if it is not cached.
+   *
+   * @param id
+   *     the ID of the object.
+   * @return
+   *     the basic information of the object, or {@code null} if no such
+   *     object.
+   */
+  @Nullable
+  public Info get(@Nullable final Long id) {
+    if (id == null) {
+      return null;
+    }
+    final Entry entry = byId.get(id);
+    if (entry != null) {
+      hitCount.increment();
+      return touch(entry);
+    }
+    missCount.increment();
+    return load(List.of(id), loadingIds, loader::loadByIds).get(id);
+  }
+
+  /**
+   * Gets the basic information of the object with the specified code, loading
+   * it if it is not cached.
+   *
+   * @param code
+   *     the code of the object.
+   * @return
+   *     the basic information of the object, or {@code null} if no such
+   *     object.
+   */
+  @Nullable
+  public Info getByCode(@Nullable final String code) {
+    if (code == null) {
+      return null;
+    }
+    final Entry entry = byCode.get(code);
+    if (entry != null) {
+      hitCount.increment();
+      return touch(entry);
+    }
+    missCount.increment();
+    return load(List.of(code), loadingCodes, loader::loadByCodes).get(code);
+  }
+
+  /**
+   * Gets the basic information of the objects with the specified IDs, loading
+   * all the missing ones with a single call of the loader.
+   *
+   * @param ids
+   *     the IDs of the objects, where the {@code null} and duplicated IDs are
+   *     ignored.
+   * @return
+   *     the map from the IDs to the basic information of the objects found, in
+   *     the order of the specified IDs.
+   */
+  public Map<Long, Info> getAll(final Collection<Long> ids) {
+    return getAll(ids, byId, loadingIds, loader::loadByIds);
+  }
+
+  /**
+   * Gets the basic information of the objects with the specified codes,
+   * loading all the missing ones with a single call of the loader.
+   *
+   * @param codes
+   *     the codes of the objects, where the {@code null} and duplicated codes
+   *     are ignored.
+   * @return
+   *     the map from the codes to the basic information of the objects found,
+   *     in the order of the specified codes.
+   */
+  public Map<String, Info> getAllByCodes(final Collection<String> codes) {
+    return getAll(codes, byCode, loadingCodes, loader::loadByCodes);
+  }
+
+  private <K> Map<K, Info> getAll(final Collection<K> keys,
+      final ConcurrentHashMap<K, Entry> index,
+      final ConcurrentHashMap<K, CompletableFuture<Info>> loadings,
+      final Function<Collection<K>, Map<K, Info>> loadFunction) {
+    final Map<K, Info> result = new LinkedHashMap<>();
+    final List<K> missing = new ArrayList<>();
+    for (final K key : keys) {
+      if (key != null && !result.containsKey(key)) {
+        final Entry entry = index.get(key);
+        result.put(key, (entry == null ? null : touch(entry)));
+        if (entry == null) {
+          missing.add(key);
+        }
+      }
+    }
+    hitCount.add(result.size() - missing.size());
+    if (!missing.isEmpty()) {
+      missCount.add(missing.size());
+      final Map<K, Info> loaded = load(missing, loadings, loadFunction);
+      for (final K key : missing) {
+        final Info info = loaded.get(key);
+        if (info == null) {
+          result.remove(key);
+        } else {
+          result.put(key, info);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Loads the missing entries of the specified keys, calling the loader only
+   * for the keys not being loaded by other threads, and waiting for the loads
+   * of the other keys.
+   *
+   * @return
+   *     the map from the keys to the basic information of the objects found.
+   */
+  private <K> Map<K, Info> load(final List<K> keys,
+      final ConcurrentHashMap<K, CompletableFuture<Info>> loadings,
+      final Function<Collection<K>, Map<K, Info>> loadFunction) {
+    final Map<K, CompletableFuture<Info>> owned = new LinkedHashMap<>();
+    final Map<K, CompletableFuture<Info>> waiting = new HashMap<>();
+    for (final K key : keys) {
+      final CompletableFuture<Info> future = new CompletableFuture<>();
+      final CompletableFuture<Info> existing = loadings.putIfAbsent(key, future);
+      if (existing == null) {
+        owned.put(key, future);
+      } else {
+        waiting.put(key, existing);
+      }
+    }
+    final Map<K, Info> result = new HashMap<>();
+    if (!owned.isEmpty()) {
+      final long startGeneration = generation;
+      try {
+        loadCount.increment();
+        final Map<K, Info> loaded = loadFunction.apply(owned.keySet());
+        publish(loaded.values(), startGeneration);
+        for (final Map.Entry<K, CompletableFuture<Info>> e : owned.entrySet()) {
+          final Info info = loaded.get(e.getKey());
+          e.getValue().complete(info);
+          if (info != null) {
+            result.put(e.getKey(), info);
+          }
+        }
+      } catch (final RuntimeException | Error e) {
+        for (final CompletableFuture<Info> future : owned.values()) {
+          future.completeExceptionally(e);
+        }
+        throw e;
+      } finally {
+        for (final Map.Entry<K, CompletableFuture<Info>> e : owned.entrySet()) {
+          loadings.remove(e.getKey(), e.getValue());
+        }
+      }
+    }
+    for (final Map.Entry<K, CompletableFuture<Info>> e : waiting.entrySet()) {
+      final Info info = join(e.getValue());
+      if (info != null) {
+        result.put(e.getKey(), info);
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private static Info join(final CompletableFuture<Info> future) {
+    try {
+      return future.join();
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw e;
+      }
+    }
+  }
+
+  private static Info touch(final Entry entry) {
+    final long now = stamp();
+    if (entry.accessTime != now) {    // avoids writing the shared entry
+      entry.accessTime = now;
+    }
+    return entry.info;
+  }
+
+  /**
+   * Gets the current access stamp, i.e., the monotonic time in units of about
+   * one millisecond.
+   */
+  private static long stamp() {
+    return System.nanoTime() >> 20;
+  }
+
+  /**
+   * Caches the loaded entries, unless this cache has been modified explicitly
+   * since the load started.
+   */
+  private void publish(final Collection<Info> infos, final long startGeneration) {
+    lock.lock();
+    try {
+      if (generation != startGeneration) {
+        return;
+      }
+      for (final Info info : infos) {
+        putLocked(info);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Advances the generation and detaches the loads in progress, which must be
+   * called with the lock held by each explicit modification.
+   */
+  private void modifiedLocked() {
+    ++generation;
+    loadingIds.clear();
+    loadingCodes.clear();
+  }
+
+  /**
+   * Puts the basic information of an object into this cache.
+   * <p>
+   * If the object has been marked as deleted, its entries are invalidated
+   * instead.
+   *
+   * @param info
+   *     the basic information of the object.
+   */
+  public void put(final Info info) {
+    lock.lock();
+    try {
+      modifiedLocked();
+      putLocked(info);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Puts the basic information of objects into this cache.
+   *
+   * @param infos
+   *     the basic information of the objects.
+   * @see #put(Info)
+   */
+  public void putAll(final Collection<Info> infos) {
+    lock.lock();
+    try {
+      modifiedLocked();
+      for (final Info info : infos) {
+        putLocked(info);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void putLocked(@Nullable final Info info) {
+    if (info == null || info.getId() == null) {
+      return;
+    }
+    removeLocked(byId.get(info.getId()));
+    if (info.getCode() != null) {
+      removeLocked(byCode.get(info.getCode()));
+    }
+    if (info.isDeleted()) {
+      return;
+    }
+    final Entry entry = new Entry(info, stamp());
+    byId.put(info.getId(), entry);
+    if (info.getCode() != null) {
+      byCode.put(info.getCode(), entry);
+    }
+    while (byId.size() > maximumSize) {
+      if (removeLocked(sampleVictimLocked())) {
+        evictionCount.increment();
+      }
+    }
+  }
+
+  /**
+   * Chooses the entry with the oldest access stamp among the next few entries
+   * of the sampling iterator, which restarts when it is exhausted.
+   */
+  @Nullable
+  private Entry sampleVictimLocked() {
+    Entry victim = null;
+    for (int i = 0; i < EVICTION_SAMPLES; ++i) {
+      if (sampler == null || !sampler.hasNext()) {
+        sampler = byId.values().iterator();
+        if (!sampler.hasNext()) {
+          break;
+        }
+      }
+      final Entry entry = sampler.next();
+      if (victim == null || entry.accessTime < victim.accessTime) {
+        victim = entry;
+      }
+    }
+    return victim;
+  }
+
+  private boolean removeLocked(@Nullable final Entry entry) {
+    if (entry == null) {
+      return false;
+    }
+    final Info info = entry.info;
+    final boolean result = byId.remove(info.getId(), entry);
+    if (info.getCode() != null) {
+      byCode.remove(info.getCode(), entry);
+    }
+    return result;
+  }
+
+  /**
+   * Invalidates the entries of an object.
+   *
+   * @param info
+   *     the basic information of the object, whose ID and code are used to
+   *     find the entries to be invalidated.
+   */
+  public void invalidate(final Info info) {
+    lock.lock();
+    try {
+      modifiedLocked();
+      if (info.getId() != null) {
+        removeLocked(byId.get(info.getId()));
+      }
+      if (info.getCode() != null) {
+        removeLocked(byCode.get(info.getCode()));
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Invalidates the entries of the object with the specified ID.
+   *
+   * @param id
+   *     the ID of the object.
+   */
+  public void invalidate(final Long id) {
+    lock.lock();
+    try {
+      modifiedLocked();
+      removeLocked(byId.get(id));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Invalidates the entries of the object with the specified code.
+   *
+   * @param code
+   *     the code of the object.
+   */
+  public void invalidateByCode(final String code) {
+    lock.lock();
+    try {
+      modifiedLocked();
+      removeLocked(byCode.get(code));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Invalidates all entries of this cache.
+   */
+  public void invalidateAll() {
+    lock.lock();
+    try {
+      modifiedLocked();
+      byId.clear();
+      byCode.clear();
+      sampler = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of lookups finding the cached entries.
+   *
+   * @return
+   *     the number of lookups finding the cached entries.
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Gets the number of lookups missing the cached entries.
+   *
+   * @return
+   *     the number of lookups missing the cached entries.
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Gets the number of calls of the loader.
+   *
+   * @return
+   *     the number of calls of the loader.
+   */
+  public long getLoadCount() {
+    return loadCount.sum();
+  }
+
+  /**
+   * Gets the number of entries evicted because of the size limit.
+   *
+   * @return
+   *     the number of entries evicted because of the size limit.
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * Gets the ratio of the lookups finding the cached entries.
+   *
+   * @return
+   *     the ratio of the lookups finding the cached entries, or {@code 1.0} if
+   *     there is no lookup yet.
+   */
+  public double getHitRate() {
+    final long hits = hitCount.sum();
+    final long total = hits + missCount.sum();
+    return (total == 0 ? 1.0 : (double) hits / total);
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("maximumSize", maximumSize)
+        .append("size", size())
+        .append("hitCount", getHitCount())
+        .append("missCount", getMissCount())
+        .append("loadCount", getLoadCount())
+        .append("evictionCount", getEvictionCount())
+        .toString();
+  }
+
+  /**
+   * A cached {@link Info} shared by both indexes, with its approximate access
+   * stamp.
+   */
+  private static final class Entry {
+    private final Info info;
+    /**
+     * The access stamp, written without synchronization by the lookups, so the
+     * concurrent lookups may lose the updates of each other.
+     */
+    private long accessTime;
+
+    Entry(final Info info, final long accessTime) {
+      this.info = info;
+      this.accessTime = accessTime;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The interface of the loaders of the basic information of objects, which is
+ * used by {@link InfoCache} to load the missing entries in batches.
+ *
+ * @author Haixing Hu
+ * @see InfoCache
+ */
+public interface InfoLoader {
+
+  /**
+   * Loads the basic information of the objects with the specified IDs.
+   *
+   * @param ids
+   *     the IDs of the objects to be loaded, which are distinct and not
+   *     {@code null}.
+   * @return
+   *     the map from the IDs to the basic information of the objects found;
+   *     the IDs of the objects not found should not be in the map.
+   */
+  Map<Long, Info> loadByIds(Collection<Long> ids);
+
+  /**
+   * Loads the basic information of the objects with the specified codes.
+   *
+   * @param codes
+   *     the codes of the objects to be loaded, which are distinct and not
+   *     {@code null}.
+   * @return
+   *     the map from the codes to the basic information of the objects found;
+   *     the codes of the objects not found should not be in the map.
+   */
+  Map<String, Info> loadByCodes(Collection<String> codes);
+}
@@ -0,0 +1,214 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ltd.qubit.commons.lang.Equality;
+import ltd.qubit.commons.lang.Hash;
+
+/**
+ * A pool of canonical {@link Info} objects.
+ * <p>
+ * Interning an {@link Info} returns the canonical instance of the same class
+ * and equal to it, so that the repeated reference data share a single object.
+ * The canonical instances are indexed by their classes and their {@code id},
+ * {@code code}, {@code name} and {@code deleteTime}; for a subclass of
+ * {@link Info} with more fields, only one canonical instance is kept for each
+ * combination of these fields, and the {@code equals()} method of the subclass
+ * decides whether it could be shared. The canonical instances are only weakly
+ * referenced by the pool, so they are garbage collected once they are no
+ * longer referenced elsewhere.
+ * <p>
+ * The canonical instances are frozen copies of the interned objects: their
+ * setters, {@code assign()} methods and {@code normalize()} throw an
+ * {@link UnsupportedOperationException}, so the objects sharing them could not
+ * modify each other's data. The objects passed to {@link #intern(Info)} are
+ * never frozen. A subclass of {@link Info} must override {@link Info#clone()}
+ * to return an object of its own class, and its own fields are not guarded
+ * by the freezing.
+ *
+ * @author Haixing Hu
+ * @see Info#intern()
+ */
+@ThreadSafe
+public final class InfoPool {
+
+  private static final InfoPool DEFAULT = new InfoPool();
+
+  /**
+   * Gets the default pool, which is used by {@link Info#intern()}.
+   *
+   * @return
+   *     the default pool.
+   */
+  public static InfoPool getDefault() {
+    return DEFAULT;
+  }
+
+  private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  private final ReferenceQueue<Info> queue = new ReferenceQueue<>();
+
+  /**
+   * Interns an {@link Info} object.
+   *
+   * @param <T>
+   *     the type of the object.
+   * @param info
+   *     the object to be interned, which may be {@code null}.
+   * @return
+   *     the read-only canonical instance equal to the specified object and of
+   *     the same class, which is a frozen copy of the specified object if there
+   *     was no such instance in this pool; or {@code null} if the specified
+   *     object is {@code null}.
+   * @throws IllegalArgumentException
+   *     if the {@link Info#clone()} of the class of the specified object does
+   *     not return an object of the same class.
+   */
+  @SuppressWarnings("unchecked")
+  @Nullable
+  public <T extends Info> T intern(@Nullable final T info) {
+    if (info == null) {
+      return null;
+    }
+    expunge();
+    final Key key = new Key(info);
+    Info copy = null;
+    while (true) {
+      final Entry entry = entries.get(key);
+      final Info canonical = (entry == null ? null : entry.get());
+      if (canonical != null && canonical.getClass() == info.getClass()
+          && canonical.equals(info)) {
+        return (T) canonical;
+      }
+      if (copy == null) {
+        copy = freeze(info);
+      }
+      final Entry newEntry = new Entry(key, copy, queue);
+      if (entry == null) {
+        if (entries.putIfAbsent(key, newEntry) == null) {
+          return (T) copy;
+        }
+      } else if (entries.replace(key, entry, newEntry)) {
+        // the previous canonical instance was collected, or was an instance
+        // of a subclass whose own fields were modified
+        return (T) copy;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of canonical instances in this pool.
+   * <p>
+   * The result may include the instances just collected.
+   *
+   * @return
+   *     the number of canonical instances in this pool.
+   */
+  public int size() {
+    expunge();
+    return entries.size();
+  }
+
+  /**
+   * Removes all canonical instances from this pool.
+   */
+  public void clear() {
+    entries.clear();
+    expunge();
+  }
+
+  private static Info freeze(final Info info) {
+    if (info.isFrozen()) {
+      return info;
+    }
+    final Info copy = info.clone();
+    if (copy.getClass() != info.getClass()) {
+      throw new IllegalArgumentException("The clone() of "
+          + info.getClass().getName() + " must return an object of the same class.");
+    }
+    copy.freeze();
+    return copy;
+  }
+
+  private void expunge() {
+    Reference<? extends Info> ref;
+    while ((ref = queue.poll()) != null) {
+      final Entry entry = (Entry) ref;
+      entries.remove(entry.key, entry);
+    }
+  }
+
+  /**
+   * The key of a canonical instance, which is a snapshot of its class and
+   * fields at the time it was interned.
+   */
+  private static final class Key {
+    private final Class<?> type;
+    private final Long id;
+    private final String code;
+    private final String name;
+    private final Instant deleteTime;
+    private final int hash;
+
+    Key(final Info info) {
+      type = info.getClass();
+      id = info.getId();
+      code = info.getCode();
+      name = info.getName();
+      deleteTime = info.getDeleteTime();
+      final int multiplier = 7;
+      int result = 3;
+      result = Hash.combine(result, multiplier, type.getName());
+      result = Hash.combine(result, multiplier, id);
+      result = Hash.combine(result, multiplier, code);
+      result = Hash.combine(result, multiplier, name);
+      result = Hash.combine(result, multiplier, deleteTime);
+      hash = result;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return (type == other.type)
+          && Equality.equals(id, other.id)
+          && Equality.equals(code, other.code)
+          && Equality.equals(name, other.name)
+          && Equality.equals(deleteTime, other.deleteTime);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class Entry extends WeakReference<Info> {
+    private final Key key;
+
+    Entry(final Key key, final Info info, final ReferenceQueue<Info> queue) {
+      super(info, queue);
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,143 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.time.Instant;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ltd.qubit.commons.model.WithCode;
+import ltd.qubit.commons.model.WithName;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * A read-only view of the basic information of an object implementing
+ * {@link HasInfo}.
+ * <p>
+ * The view reads the basic information directly from the object it is bound
+ * to, without copying it into an {@link Info}. A view could be rebound to
+ * another object with {@link #bind(HasInfo)}, so a single view could be used as
+ * a flyweight when iterating a large number of objects, e.g.,
+ * <pre><code>
+ * final InfoView view = new InfoView();
+ * for (final Product product : products) {
+ *   view.bind(product);
+ *   writer.write(view.getId(), view.getCode(), view.getName());
+ * }
+ * </code></pre>
+ * Whether the class of the bound object implements {@link WithCode},
+ * {@link WithName} and {@link Deletable} is resolved when the view is bound to
+ * an object of a different class, instead of on each read. Call
+ * {@link #toInfo()} to get a detached copy of the basic information.
+ *
+ * @author Haixing Hu
+ * @see HasInfo#getInfo()
+ */
+@NotThreadSafe
+public final class InfoView {
+
+  private HasInfo object;
+
+  private boolean withCode;
+
+  private boolean withName;
+
+  private boolean deletable;
+
+  /**
+   * Constructs an unbound view.
+   */
+  public InfoView() {
+    // empty
+  }
+
+  /**
+   * Constructs a view bound to an object.
+   *
+   * @param object
+   *     the object to be bound to.
+   */
+  public InfoView(final HasInfo object) {
+    bind(object);
+  }
+
+  /**
+   * Binds this view to an object.
+   *
+   * @param object
+   *     the object to be bound to.
+   * @return
+   *     this view.
+   */
+  public InfoView bind(final HasInfo object) {
+    final Class<?> type = object.getClass();
+    if (this.object == null || this.object.getClass() != type) {
+      withCode = WithCode.class.isAssignableFrom(type);
+      withName = WithName.class.isAssignableFrom(type);
+      deletable = Deletable.class.isAssignableFrom(type);
+    }
+    this.object = object;
+    return this;
+  }
+
+  /**
+   * Gets the object this view is bound to.
+   *
+   * @return
+   *     the object this view is bound to, or {@code null} if this view is not
+   *     bound yet.
+   */
+  @Nullable
+  public HasInfo getObject() {
+    return object;
+  }
+
+  public Long getId() {
+    return object.getId();
+  }
+
+  @Nullable
+  public String getCode() {
+    return (withCode ? ((WithCode) object).getCode() : null);
+  }
+
+  @Nullable
+  public String getName() {
+    return (withName ? ((WithName) object).getName() : null);
+  }
+
+  @Nullable
+  public Instant getDeleteTime() {
+    return (deletable ? ((Deletable) object).getDeleteTime() : null);
+  }
+
+  public boolean isDeleted() {
+    return getDeleteTime() != null;
+  }
+
+  /**
+   * Copies the basic information of the bound object into a new {@link Info}.
+   *
+   * @return
+   *     the basic information of the bound object.
+   */
+  public Info toInfo() {
+    return new Info(getId(), getCode(), getName(), getDeleteTime());
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("id", getId())
+        .append("code", getCode())
+        .append("name", getName())
+        .append("deleteTime", getDeleteTime())
+        .toString();
+  }
+}
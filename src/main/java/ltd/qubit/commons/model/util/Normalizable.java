@@ -8,15 +8,17 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.model.util;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
 import ltd.qubit.commons.lang.ArrayUtils;
 import ltd.qubit.commons.lang.StringUtils;
-import ltd.qubit.commons.reflect.BeanInfo;
-import ltd.qubit.commons.reflect.Property;
 
 /**
  * This interface indicates an entity classes can be normalized.
@@ -25,19 +27,26 @@ import ltd.qubit.commons.reflect.Property;
  */
 public interface Normalizable {
 
+  /**
+   * The default threshold of the number of objects below which a batch of
+   * objects is normalized sequentially in the current thread.
+   */
+  int DEFAULT_PARALLEL_THRESHOLD = 1024;
+
   /**
    * Normalizes this object.
+   * <p>
+   * By default, all properties of this object, except the computed, JDK
+   * built-in and read-only properties, are normalized. The accessors of the
+   * properties are generated once per class and cached, so the normalization
+   * does not go through the reflection for each object.
    */
   default void normalize() {
-    // 默认用反射机制正则化此对象的所有属性字段
-    final BeanInfo info = BeanInfo.of(this.getClass());
-    for (final Property prop : info.getProperties()) {
-      if (prop.isComputed() || prop.isJdkBuiltIn() || prop.isReadonly()) {
-        continue;
-      }
-      final Object value = prop.getValue(this);
+    // 默认用预先生成的属性访问器正则化此对象的所有属性字段
+    for (final PropertyAccessor accessor : PropertyAccessor.forNormalization(getClass())) {
+      final Object value = accessor.get(this);
       final Object normalizedValue = normalize(value);
-      prop.setValue(this, normalizedValue);
+      accessor.set(this, normalizedValue);
     }
   }
 
@@ -79,4 +88,109 @@ public interface Normalizable {
       return obj;
     }
   }
+
+  /**
+   * Normalizes a batch of objects with the default parallelism threshold.
+   *
+   * @param objects
+   *     the collection of objects to be normalized, which may contain
+   *     {@code null} elements.
+   * @see #normalizeAll(Collection, int)
+   */
+  static void normalizeAll(final Collection<? extends Normalizable> objects) {
+    normalizeAll(objects, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Normalizes a batch of objects.
+   * <p>
+   * The objects are normalized in place by calling their {@link #normalize()}
+   * method, which also normalizes their nested {@link Normalizable} values in
+   * the same pass; the {@code null} elements are ignored, and the elements
+   * becoming empty are not removed. If the number of objects is greater than
+   * the threshold, the batch is split and normalized in parallel in the common
+   * {@link java.util.concurrent.ForkJoinPool}, so the objects must not share
+   * mutable state with each other.
+   *
+   * @param objects
+   *     the collection of objects to be normalized, which may contain
+   *     {@code null} elements.
+   * @param threshold
+   *     the maximum number of objects normalized sequentially in a single
+   *     task.
+   */
+  static void normalizeAll(final Collection<? extends Normalizable> objects,
+      final int threshold) {
+    final List<? extends Normalizable> list;
+    if ((objects instanceof List) && (objects instanceof RandomAccess)) {
+      list = (List<? extends Normalizable>) objects;
+    } else {
+      list = Arrays.asList(objects.toArray(new Normalizable[0]));
+    }
+    final int n = list.size();
+    if (n <= threshold) {
+      NormalizationTask.normalize(list, 0, n);
+    } else {
+      new NormalizationTask(list, 0, n, threshold).invoke();
+    }
+  }
+
+  /**
+   * Normalizes an array of objects with the default parallelism threshold.
+   *
+   * @param objects
+   *     the array of objects to be normalized, which may contain {@code null}
+   *     elements.
+   * @see #normalizeAll(Collection, int)
+   */
+  static void normalizeAll(final Normalizable[] objects) {
+    normalizeAll(Arrays.asList(objects), DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Normalizes an array of objects.
+   *
+   * @param objects
+   *     the array of objects to be normalized, which may contain {@code null}
+   *     elements.
+   * @param threshold
+   *     the maximum number of objects normalized sequentially in a single
+   *     task.
+   * @see #normalizeAll(Collection, int)
+   */
+  static void normalizeAll(final Normalizable[] objects, final int threshold) {
+    normalizeAll(Arrays.asList(objects), threshold);
+  }
+
+  /**
+   * Normalizes a stream of objects with the default parallelism threshold.
+   * <p>
+   * The stream is consumed by this function.
+   *
+   * @param objects
+   *     the stream of objects to be normalized, which may contain {@code null}
+   *     elements.
+   * @see #normalizeAll(Collection, int)
+   */
+  static void normalizeAll(final Stream<? extends Normalizable> objects) {
+    normalizeAll(objects, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Normalizes a stream of objects.
+   * <p>
+   * The stream is consumed by this function.
+   *
+   * @param objects
+   *     the stream of objects to be normalized, which may contain {@code null}
+   *     elements.
+   * @param threshold
+   *     the maximum number of objects normalized sequentially in a single
+   *     task.
+   * @see #normalizeAll(Collection, int)
+   */
+  static void normalizeAll(final Stream<? extends Normalizable> objects,
+      final int threshold) {
+    normalizeAll(objects.toArray(Normalizable[]::new), threshold);
+  }
 }
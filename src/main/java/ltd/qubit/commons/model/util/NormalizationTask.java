@@ -0,0 +1,78 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A fork-join task normalizing a range of a batch of {@link Normalizable}
+ * objects.
+ * <p>
+ * The range is split in halves recursively until its length is not greater
+ * than the threshold, and then the objects in the range are normalized one by
+ * one, together with their nested {@link Normalizable} values, in the same
+ * task.
+ *
+ * @author Haixing Hu
+ * @see Normalizable#normalizeAll(java.util.Collection, int)
+ */
+final class NormalizationTask extends RecursiveAction {
+
+  @Serial
+  private static final long serialVersionUID = -7361837410245962817L;
+
+  private final List<? extends Normalizable> objects;
+
+  private final int start;
+
+  private final int end;
+
+  private final int threshold;
+
+  NormalizationTask(final List<? extends Normalizable> objects, final int start,
+      final int end, final int threshold) {
+    this.objects = objects;
+    this.start = start;
+    this.end = end;
+    this.threshold = Math.max(1, threshold);
+  }
+
+  @Override
+  protected void compute() {
+    if (end - start <= threshold) {
+      normalize(objects, start, end);
+    } else {
+      final int middle = (start + end) >>> 1;
+      invokeAll(new NormalizationTask(objects, start, middle, threshold),
+          new NormalizationTask(objects, middle, end, threshold));
+    }
+  }
+
+  /**
+   * Normalizes a range of a list of objects in the current thread.
+   *
+   * @param objects
+   *     the list of objects, which may contain {@code null} elements.
+   * @param start
+   *     the index of the first object to be normalized.
+   * @param end
+   *     the index after the last object to be normalized.
+   */
+  static void normalize(final List<? extends Normalizable> objects,
+      final int start, final int end) {
+    for (int i = start; i < end; ++i) {
+      final Normalizable obj = objects.get(i);
+      if (obj != null) {
+        obj.normalize();
+      }
+    }
+  }
+}
@@ -15,6 +15,7 @@ import javax.annotation.Nullable;
 
 import jakarta.validation.constraints.Size;
 
+import ltd.qubit.commons.annotation.Computed;
 import ltd.qubit.commons.annotation.KeyIndex;
 import ltd.qubit.commons.lang.Argument;
 import ltd.qubit.commons.lang.Assignable;
@@ -62,6 +63,31 @@ public class Owner implements Serializable, Assignable<Owner> {
   @Nullable
   private String property;
 
+  /**
+   * The cached hash code of this owner, or {@code 0} if it has not been
+   * computed.
+   */
+  @Computed({"type", "id", "property"})
+  private transient int hash;
+
+  /**
+   * Creates an {@link Owner} with the specified fields as they are.
+   *
+   * @param type
+   *     the name of the type of the owner, in the uppercase-underscore form.
+   * @param id
+   *     the unique identifier of the owner.
+   * @param property
+   *     the name of the property of the owner, in the uppercase-underscore
+   *     form, or {@code null} if not specified.
+   * @return
+   *     the created {@link Owner}.
+   */
+  public static Owner of(final String type, final Long id,
+      @Nullable final String property) {
+    return new Owner(type, id, property);
+  }
+
   public Owner(final Class<?> cls, final Long id) {
     this(UPPER_CAMEL.to(UPPER_UNDERSCORE, cls.getSimpleName()), id, null);
   }
@@ -93,6 +119,7 @@ public class Owner implements Serializable, Assignable<Owner> {
     type = other.type;
     id = other.id;
     property = other.property;
+    hash = other.hash;
   }
 
   @Override
@@ -106,6 +133,7 @@ public class Owner implements Serializable, Assignable<Owner> {
 
   public void setType(final String type) {
     this.type = type;
+    hash = 0;
   }
 
   public Long getId() {
@@ -114,6 +142,7 @@ public class Owner implements Serializable, Assignable<Owner> {
 
   public void setId(final Long id) {
     this.id = id;
+    hash = 0;
   }
 
   @Nullable
@@ -123,6 +152,7 @@ public class Owner implements Serializable, Assignable<Owner> {
 
   public void setProperty(@Nullable final String property) {
     this.property = property;
+    hash = 0;
   }
 
   public boolean equals(@Nullable final Object o) {
@@ -139,14 +169,32 @@ public class Owner implements Serializable, Assignable<Owner> {
   }
 
   public int hashCode() {
-    final int multiplier = 7;
-    int result = 3;
-    result = Hash.combine(result, multiplier, type);
-    result = Hash.combine(result, multiplier, id);
-    result = Hash.combine(result, multiplier, property);
+    int result = hash;
+    if (result == 0) {
+      final int multiplier = 7;
+      result = 3;
+      result = Hash.combine(result, multiplier, type);
+      result = Hash.combine(result, multiplier, id);
+      result = Hash.combine(result, multiplier, property);
+      hash = result;
+    }
     return result;
   }
 
+  /**
+   * Gets the compact binary key of this owner.
+   * <p>
+   * The key is a snapshot of this owner, which is not affected by the later
+   * modifications of this owner.
+   *
+   * @return
+   *     the compact binary key of this owner.
+   * @see OwnerKey
+   */
+  public OwnerKey toKey() {
+    return OwnerKey.of(this);
+  }
+
   public String toString() {
     return new ToStringBuilder(this)
         .append("type", type)
@@ -0,0 +1,371 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ltd.qubit.commons.lang.Argument;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * The compact binary key of an {@link Owner}, packed into two {@code long}s.
+ * <p>
+ * The type and the property of the owner are interned into ordinals, and the
+ * key is laid out as follows, from the most significant bit:
+ * <ul>
+ * <li>32 bits: the ordinal of the type;</li>
+ * <li>64 bits: the ID, with its sign bit flipped, so that the IDs are ordered
+ * as signed numbers when the bits are compared as unsigned numbers;</li>
+ * <li>32 bits: the ordinal of the property, or {@code 0} if the property is
+ * {@code null}.</li>
+ * </ul>
+ * The keys are compared as unsigned 128-bit numbers, which follows the
+ * {@code @KeyIndex} order of the fields of {@link Owner}. <b>Note</b> that the
+ * types and the properties are ordered by their ordinals, i.e., in the order in
+ * which they were first interned in this JVM, instead of their lexical orders;
+ * so all keys of an owner type, or of an owner, are adjacent, and could be
+ * scanned as a range of a sorted map with the bounds returned by
+ * {@link #lowerBound(String)}, {@link #upperBound(String)},
+ * {@link #lowerBound(String, long)} and {@link #upperBound(String, long)}, but
+ * the order between the types is not meaningful, and the ordinals must not be
+ * persisted.
+ * <p>
+ * The interned types and properties are never released, so they should be
+ * drawn from small vocabularies, as the names of the classes and properties
+ * are. Only {@link #of(Owner)} and {@link #of(String, long, String)} intern
+ * names; the bounds only look up the types, so scanning for the arbitrary
+ * types, e.g., given by requests, does not grow the interned vocabulary.
+ *
+ * @author Haixing Hu
+ * @see Owner#toKey()
+ */
+@Immutable
+public final class OwnerKey implements Comparable<OwnerKey> {
+
+  /**
+   * The number of bytes of the binary form of a key.
+   */
+  public static final int BYTES = 2 * Long.BYTES;
+
+  private static final long INT_MASK = 0xFFFFFFFFL;
+
+  private static final Interner TYPES = new Interner();
+
+  private static final Interner PROPERTIES = new Interner();
+
+  private final long high;
+
+  private final long low;
+
+  private final int hash;
+
+  /**
+   * Gets the key of an owner.
+   *
+   * @param owner
+   *     the owner, whose type and ID must not be {@code null}.
+   * @return
+   *     the key of the owner.
+   */
+  public static OwnerKey of(final Owner owner) {
+    Argument.requireNonNull("owner.id", owner.getId());
+    return of(owner.getType(), owner.getId(), owner.getProperty());
+  }
+
+  /**
+   * Gets the key of an owner.
+   *
+   * @param type
+   *     the type of the owner.
+   * @param id
+   *     the ID of the owner.
+   * @param property
+   *     the property of the owner, or {@code null} if not specified.
+   * @return
+   *     the key of the owner.
+   */
+  public static OwnerKey of(final String type, final long id,
+      @Nullable final String property) {
+    Argument.requireNonNull("type", type);
+    final int typeOrdinal = TYPES.intern(type);
+    final int propertyOrdinal = (property == null ? 0 : PROPERTIES.intern(property));
+    return pack(typeOrdinal, id, propertyOrdinal);
+  }
+
+  /**
+   * Gets the least key of the owners of a type.
+   * <p>
+   * The type is not interned by this function. If it has never been interned,
+   * no key of it exists, and the bound is a key of the reserved ordinal
+   * {@code 0} of the types, so that the range between the bounds of the type
+   * is empty.
+   *
+   * @param type
+   *     the type of the owners.
+   * @return
+   *     the least key of the owners of the type.
+   */
+  public static OwnerKey lowerBound(final String type) {
+    return pack(TYPES.lookup(type), Long.MIN_VALUE, 0);
+  }
+
+  /**
+   * Gets the greatest key of the owners of a type.
+   * <p>
+   * The type is not interned by this function.
+   *
+   * @param type
+   *     the type of the owners.
+   * @return
+   *     the greatest key of the owners of the type.
+   * @see #lowerBound(String)
+   */
+  public static OwnerKey upperBound(final String type) {
+    return pack(TYPES.lookup(type), Long.MAX_VALUE, -1);
+  }
+
+  /**
+   * Gets the least key of an owner, of all its properties.
+   * <p>
+   * The type is not interned by this function.
+   *
+   * @param type
+   *     the type of the owner.
+   * @param id
+   *     the ID of the owner.
+   * @return
+   *     the least key of the owner.
+   * @see #lowerBound(String)
+   */
+  public static OwnerKey lowerBound(final String type, final long id) {
+    return pack(TYPES.lookup(type), id, 0);
+  }
+
+  /**
+   * Gets the greatest key of an owner, of all its properties.
+   * <p>
+   * The type is not interned by this function.
+   *
+   * @param type
+   *     the type of the owner.
+   * @param id
+   *     the ID of the owner.
+   * @return
+   *     the greatest key of the owner.
+   * @see #lowerBound(String)
+   */
+  public static OwnerKey upperBound(final String type, final long id) {
+    return pack(TYPES.lookup(type), id, -1);
+  }
+
+  /**
+   * Decodes a key from its binary form.
+   *
+   * @param bytes
+   *     the binary form of the key, as returned by {@link #toBytes()}.
+   * @return
+   *     the decoded key.
+   * @throws IllegalArgumentException
+   *     if the binary form is invalid, or refers to the ordinals not interned
+   *     in this JVM.
+   */
+  public static OwnerKey fromBytes(final byte[] bytes) {
+    if (bytes.length != BYTES) {
+      throw new IllegalArgumentException("Invalid length of an owner key: "
+          + bytes.length);
+    }
+    final OwnerKey result = new OwnerKey(readLong(bytes, 0),
+        readLong(bytes, Long.BYTES));
+    TYPES.nameOf(result.typeOrdinal());
+    if (result.propertyOrdinal() != 0) {
+      PROPERTIES.nameOf(result.propertyOrdinal());
+    }
+    return result;
+  }
+
+  private static OwnerKey pack(final int typeOrdinal, final long id,
+      final int propertyOrdinal) {
+    final long flipped = id ^ Long.MIN_VALUE;
+    final long high = ((typeOrdinal & INT_MASK) << Integer.SIZE)
+        | (flipped >>> Integer.SIZE);
+    final long low = (flipped << Integer.SIZE) | (propertyOrdinal & INT_MASK);
+    return new OwnerKey(high, low);
+  }
+
+  private OwnerKey(final long high, final long low) {
+    this.high = high;
+    this.low = low;
+    final long mixed = (high * 0x9E3779B97F4A7C15L) ^ low;
+    this.hash = (int) (mixed ^ (mixed >>> Integer.SIZE));
+  }
+
+  /**
+   * Gets the most significant 64 bits of this key.
+   *
+   * @return
+   *     the most significant 64 bits of this key.
+   */
+  public long getHigh() {
+    return high;
+  }
+
+  /**
+   * Gets the least significant 64 bits of this key.
+   *
+   * @return
+   *     the least significant 64 bits of this key.
+   */
+  public long getLow() {
+    return low;
+  }
+
+  public String getType() {
+    return TYPES.nameOf(typeOrdinal());
+  }
+
+  public long getId() {
+    return ((high << Integer.SIZE) | (low >>> Integer.SIZE)) ^ Long.MIN_VALUE;
+  }
+
+  @Nullable
+  public String getProperty() {
+    final int ordinal = propertyOrdinal();
+    return (ordinal == 0 ? null : PROPERTIES.nameOf(ordinal));
+  }
+
+  private int typeOrdinal() {
+    return (int) (high >>> Integer.SIZE);
+  }
+
+  private int propertyOrdinal() {
+    return (int) low;
+  }
+
+  /**
+   * Converts this key to an {@link Owner}.
+   *
+   * @return
+   *     the owner of this key.
+   */
+  public Owner toOwner() {
+    return Owner.of(getType(), getId(), getProperty());
+  }
+
+  /**
+   * Encodes this key into its binary form, whose lexicographical order of
+   * unsigned bytes is the order of the keys.
+   *
+   * @return
+   *     the binary form of this key, of {@link #BYTES} bytes.
+   */
+  public byte[] toBytes() {
+    final byte[] result = new byte[BYTES];
+    writeLong(result, 0, high);
+    writeLong(result, Long.BYTES, low);
+    return result;
+  }
+
+  private static void writeLong(final byte[] bytes, final int offset,
+      final long value) {
+    for (int i = 0; i < Long.BYTES; ++i) {
+      bytes[offset + i] = (byte) (value >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+    }
+  }
+
+  private static long readLong(final byte[] bytes, final int offset) {
+    long result = 0;
+    for (int i = 0; i < Long.BYTES; ++i) {
+      result = (result << Byte.SIZE) | (bytes[offset + i] & 0xFF);
+    }
+    return result;
+  }
+
+  @Override
+  public int compareTo(final OwnerKey other) {
+    final int result = Long.compareUnsigned(high, other.high);
+    return (result != 0 ? result : Long.compareUnsigned(low, other.low));
+  }
+
+  public boolean equals(@Nullable final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if ((o == null) || (getClass() != o.getClass())) {
+      return false;
+    }
+    final OwnerKey other = (OwnerKey) o;
+    return (high == other.high) && (low == other.low);
+  }
+
+  public int hashCode() {
+    return hash;
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("type", getType())
+        .append("id", getId())
+        .append("property", getProperty())
+        .toString();
+  }
+
+  /**
+   * Interns names into ordinals starting from 1, where the ordinal {@code 0} is
+   * reserved for the names not interned.
+   */
+  @ThreadSafe
+  private static final class Interner {
+    private final ConcurrentHashMap<String, Integer> ordinals =
+        new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private int size;
+
+    int intern(final String name) {
+      final Integer ordinal = ordinals.get(name);
+      return (ordinal != null ? ordinal : add(name));
+    }
+
+    int lookup(final String name) {
+      final Integer ordinal = ordinals.get(name);
+      return (ordinal != null ? ordinal : 0);
+    }
+
+    private synchronized int add(final String name) {
+      final Integer existing = ordinals.get(name);
+      if (existing != null) {
+        return existing;
+      }
+      final int ordinal = ++size;
+      String[] array = names;
+      if (ordinal >= array.length) {
+        final String[] grown = new String[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        array = grown;
+      }
+      array[ordinal] = name;
+      names = array;      // publishes the name before its ordinal
+      ordinals.put(name, ordinal);
+      return ordinal;
+    }
+
+    String nameOf(final int ordinal) {
+      final String[] array = names;
+      final String name = (ordinal > 0 && ordinal < array.length
+                           ? array[ordinal] : null);
+      if (name == null) {
+        throw new IllegalArgumentException("Unknown ordinal: " + ordinal);
+      }
+      return name;
+    }
+  }
+}
@@ -0,0 +1,401 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ltd.qubit.commons.lang.Argument;
+import ltd.qubit.commons.lang.Hash;
+import ltd.qubit.commons.text.tostring.ToStringBuilder;
+
+/**
+ * A concurrent in-memory store of {@link Payload}s, sorted by their owners and
+ * keys.
+ * <p>
+ * The payloads are indexed by a {@link ConcurrentSkipListMap} in the order of
+ * the composite key {@code (owner.type, owner.id, owner.property, key)}, which
+ * follows the {@code @KeyIndex} order of the fields of {@link Owner}, with the
+ * {@code null} components ordered first. Therefore, the payloads of an owner
+ * type, of an owner, or of a property of an owner are adjacent in the index,
+ * and are scanned as a range without visiting other payloads.
+ * <p>
+ * The lookups and scans are lock-free, and the collections returned by the
+ * scans are weakly consistent views. The modifications share a lock, which is
+ * acquired exclusively only by {@link #snapshot()}, so that a snapshot never
+ * observes a partially applied batch of upserts.
+ * <p>
+ * The stored payloads are copies of the payloads put into this store, and must
+ * be treated as read-only.
+ *
+ * @author Haixing Hu
+ */
+@ThreadSafe
+public class PayloadStore {
+
+  private final ConcurrentSkipListMap<Key, Payload> index =
+      new ConcurrentSkipListMap<>();
+
+  /**
+   * The lock whose read lock is shared by the modifications, and whose write
+   * lock is held by the snapshots.
+   */
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Gets the number of payloads in this store.
+   *
+   * @return
+   *     the number of payloads in this store.
+   */
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * Gets the payload of an owner with the specified key.
+   *
+   * @param owner
+   *     the owner of the payload.
+   * @param key
+   *     the key of the payload.
+   * @return
+   *     the payload found, or {@code null} if there is no such payload.
+   */
+  @Nullable
+  public Payload get(final Owner owner, final String key) {
+    return index.get(Key.of(owner, key));
+  }
+
+  /**
+   * Puts a copy of a payload into this store, replacing the payload of the same
+   * owner and key.
+   *
+   * @param payload
+   *     the payload to be stored, whose owner and key must not be
+   *     {@code null}.
+   * @return
+   *     the replaced payload, or {@code null} if there was no such payload.
+   */
+  @Nullable
+  public Payload put(final Payload payload) {
+    final Key key = Key.of(payload);
+    final Payload stored = new Payload(payload);
+    lock.readLock().lock();
+    try {
+      return index.put(key, stored);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Puts copies of a batch of payloads into this store, replacing the payloads
+   * of the same owners and keys.
+   * <p>
+   * The batch is applied atomically with regard to {@link #snapshot()}, but not
+   * to the lookups and scans.
+   *
+   * @param payloads
+   *     the payloads to be stored, whose owners and keys must not be
+   *     {@code null}.
+   */
+  public void putAll(final Collection<Payload> payloads) {
+    final List<Key> keys = new ArrayList<>(payloads.size());
+    final List<Payload> stored = new ArrayList<>(payloads.size());
+    for (final Payload payload : payloads) {
+      keys.add(Key.of(payload));
+      stored.add(new Payload(payload));
+    }
+    lock.readLock().lock();
+    try {
+      for (int i = 0; i < keys.size(); ++i) {
+        index.put(keys.get(i), stored.get(i));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the payload of an owner with the specified key.
+   *
+   * @param owner
+   *     the owner of the payload.
+   * @param key
+   *     the key of the payload.
+   * @return
+   *     the removed payload, or {@code null} if there was no such payload.
+   */
+  @Nullable
+  public Payload remove(final Owner owner, final String key) {
+    lock.readLock().lock();
+    try {
+      return index.remove(Key.of(owner, key));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Removes all payloads of an owner, i.e., with the same type, ID and
+   * property.
+   *
+   * @param owner
+   *     the owner of the payloads.
+   * @return
+   *     the number of removed payloads.
+   */
+  public int removeAll(final Owner owner) {
+    lock.readLock().lock();
+    try {
+      final Collection<Payload> range = range(Key.lower(owner.getType(),
+          owner.getId(), owner.getProperty(), 3), Key.upper(owner.getType(),
+          owner.getId(), owner.getProperty(), 3));
+      final int result = range.size();
+      range.clear();
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Removes all payloads from this store.
+   */
+  public void clear() {
+    lock.readLock().lock();
+    try {
+      index.clear();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Scans the payloads of the owners of the specified type.
+   *
+   * @param type
+   *     the type of the owners.
+   * @return
+   *     the unmodifiable view of the payloads found, in the order of the IDs and
+   *     properties of their owners and their keys.
+   */
+  public Collection<Payload> scan(final String type) {
+    return view(Key.lower(type, null, null, 1), Key.upper(type, null, null, 1));
+  }
+
+  /**
+   * Scans the payloads of the owner with the specified type and ID.
+   *
+   * @param type
+   *     the type of the owner.
+   * @param id
+   *     the ID of the owner.
+   * @return
+   *     the unmodifiable view of the payloads found, of all properties of the
+   *     owner, in the order of the properties and the keys.
+   */
+  public Collection<Payload> scan(final String type, final Long id) {
+    return view(Key.lower(type, id, null, 2), Key.upper(type, id, null, 2));
+  }
+
+  /**
+   * Scans the payloads of a property of the owner with the specified type and
+   * ID.
+   *
+   * @param type
+   *     the type of the owner.
+   * @param id
+   *     the ID of the owner.
+   * @param property
+   *     the property of the owner, or {@code null} for the payloads attached to
+   *     the owner itself.
+   * @return
+   *     the unmodifiable view of the payloads found, in the order of the keys.
+   */
+  public Collection<Payload> scan(final String type, final Long id,
+      @Nullable final String property) {
+    return view(Key.lower(type, id, property, 3),
+        Key.upper(type, id, property, 3));
+  }
+
+  /**
+   * Scans the payloads of an owner, i.e., with the same type, ID and property.
+   *
+   * @param owner
+   *     the owner of the payloads.
+   * @return
+   *     the unmodifiable view of the payloads found, in the order of the keys.
+   */
+  public Collection<Payload> scan(final Owner owner) {
+    return scan(owner.getType(), owner.getId(), owner.getProperty());
+  }
+
+  /**
+   * Takes a snapshot of all payloads in this store.
+   * <p>
+   * The modifications are blocked while the snapshot is taken.
+   *
+   * @return
+   *     the list of all payloads in this store, in the order of their owners
+   *     and keys.
+   */
+  public List<Payload> snapshot() {
+    lock.writeLock().lock();
+    try {
+      return new ArrayList<>(index.values());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private Collection<Payload> range(final Key lower, final Key upper) {
+    return index.subMap(lower, true, upper, true).values();
+  }
+
+  private Collection<Payload> view(final Key lower, final Key upper) {
+    return Collections.unmodifiableCollection(range(lower, upper));
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("size", size())
+        .toString();
+  }
+
+  /**
+   * The composite key {@code (type, id, property, key)} of a payload, or a
+   * bound of the range of the keys with the same first components.
+   */
+  @Immutable
+  private static final class Key implements Comparable<Key> {
+
+    private static final int FULL_LENGTH = 4;
+
+    @Nullable
+    private final String type;
+    @Nullable
+    private final Long id;
+    @Nullable
+    private final String property;
+    @Nullable
+    private final String key;
+
+    /**
+     * The number of the significant components, which is
+     * {@link #FULL_LENGTH} for the keys of payloads.
+     */
+    private final int length;
+
+    /**
+     * Whether this bound is ordered after, rather than before, all keys with
+     * the same significant components.
+     */
+    private final boolean upper;
+
+    static Key of(final Payload payload) {
+      Argument.requireNonNull("payload.owner", payload.getOwner());
+      Argument.requireNonNull("payload.key", payload.getKey());
+      return of(payload.getOwner(), payload.getKey());
+    }
+
+    static Key of(final Owner owner, final String key) {
+      return new Key(owner.getType(), owner.getId(), owner.getProperty(), key,
+          FULL_LENGTH, false);
+    }
+
+    static Key lower(@Nullable final String type, @Nullable final Long id,
+        @Nullable final String property, final int length) {
+      return new Key(type, id, property, null, length, false);
+    }
+
+    static Key upper(@Nullable final String type, @Nullable final Long id,
+        @Nullable final String property, final int length) {
+      return new Key(type, id, property, null, length, true);
+    }
+
+    private Key(@Nullable final String type, @Nullable final Long id,
+        @Nullable final String property, @Nullable final String key,
+        final int length, final boolean upper) {
+      this.type = type;
+      this.id = id;
+      this.property = property;
+      this.key = key;
+      this.length = length;
+      this.upper = upper;
+    }
+
+    @Override
+    public int compareTo(final Key other) {
+      final int n = Math.min(length, other.length);
+      for (int i = 0; i < n; ++i) {
+        final int result;
+        if (i == 0) {
+          result = compare(type, other.type);
+        } else if (i == 1) {
+          result = compare(id, other.id);
+        } else if (i == 2) {
+          result = compare(property, other.property);
+        } else {
+          result = compare(key, other.key);
+        }
+        if (result != 0) {
+          return result;
+        }
+      }
+      if (length == other.length) {
+        return Boolean.compare(upper, other.upper);
+      } else if (length < other.length) {
+        return (upper ? 1 : -1);
+      } else {
+        return (other.upper ? -1 : 1);
+      }
+    }
+
+    private static <T extends Comparable<T>> int compare(@Nullable final T x,
+        @Nullable final T y) {
+      if (x == y) {
+        return 0;
+      } else if (x == null) {
+        return -1;
+      } else if (y == null) {
+        return 1;
+      } else {
+        return x.compareTo(y);
+      }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return (o instanceof Key) && (compareTo((Key) o) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+      final int multiplier = 7;
+      int result = 3;
+      result = Hash.combine(result, multiplier, type);
+      result = Hash.combine(result, multiplier, id);
+      result = Hash.combine(result, multiplier, property);
+      result = Hash.combine(result, multiplier, key);
+      result = Hash.combine(result, multiplier, length);
+      result = Hash.combine(result, multiplier, upper);
+      return result;
+    }
+  }
+}
@@ -0,0 +1,256 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import ltd.qubit.commons.reflect.BeanInfo;
+import ltd.qubit.commons.reflect.Property;
+
+/**
+ * A pre-generated accessor of a property of a class.
+ * <p>
+ * Instead of accessing the property by reflection each time, the getter and
+ * setter of the property are bound once into lambdas generated by the
+ * {@link LambdaMetafactory}, which the JIT compiler could inline into plain
+ * method calls. If a lambda could not be generated, e.g., the property is
+ * accessed through a field, or the class is not accessible, the accessor falls
+ * back to a {@link MethodHandle}, and finally to the {@link Property} itself.
+ * <p>
+ * The accessors of a class are generated only once and cached per class with a
+ * {@link ClassValue}.
+ *
+ * @author Haixing Hu
+ * @see Normalizable#normalize()
+ */
+@Immutable
+final class PropertyAccessor {
+
+  private static final Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final MethodType GETTER_TYPE =
+      MethodType.methodType(Object.class, Object.class);
+
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  private static final ClassValue<PropertyAccessor[]> NORMALIZATION_ACCESSORS =
+      new ClassValue<>() {
+        @Override
+        protected PropertyAccessor[] computeValue(final Class<?> type) {
+          final List<PropertyAccessor> result = new ArrayList<>();
+          for (final Property prop : BeanInfo.of(type).getProperties()) {
+            if (prop.isComputed() || prop.isJdkBuiltIn() || prop.isReadonly()) {
+              continue;
+            }
+            result.add(new PropertyAccessor(type, prop, true));
+          }
+          return result.toArray(new PropertyAccessor[0]);
+        }
+      };
+
+  /**
+   * Gets the accessors of the properties of a class to be normalized.
+   * <p>
+   * The properties are selected with the same rules as the reflective
+   * normalization, i.e., the computed, JDK built-in and read-only properties
+   * are skipped.
+   *
+   * @param type
+   *     the class of the objects to be normalized.
+   * @return
+   *     the cached accessors of the properties of the class to be normalized.
+   *     The returned array must not be modified.
+   */
+  static PropertyAccessor[] forNormalization(final Class<?> type) {
+    return NORMALIZATION_ACCESSORS.get(type);
+  }
+
+  private final Property property;
+
+  private final Function<Object, Object> getter;
+
+  @Nullable
+  private final BiConsumer<Object, Object> setter;
+
+  PropertyAccessor(final Class<?> type, final Property property,
+      final boolean writable) {
+    this.property = property;
+    this.getter = createGetter(type, property);
+    this.setter = (writable ? createSetter(type, property) : null);
+  }
+
+  public Property getProperty() {
+    return property;
+  }
+
+  /**
+   * Gets the value of the property of an object.
+   *
+   * @param obj
+   *     the object.
+   * @return
+   *     the value of the property of the object.
+   */
+  public Object get(final Object obj) {
+    return getter.apply(obj);
+  }
+
+  /**
+   * Sets the value of the property of an object.
+   *
+   * @param obj
+   *     the object.
+   * @param value
+   *     the new value of the property of the object.
+   */
+  public void set(final Object obj, @Nullable final Object value) {
+    if (setter == null) {
+      throw new UnsupportedOperationException("The property is read-only: "
+          + property.getName());
+    }
+    setter.accept(obj, value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> createGetter(final Class<?> type,
+      final Property property) {
+    final Method method = property.getReadMethod();
+    if (method != null) {
+      try {
+        final Lookup lookup = lookupFor(type, method);
+        final MethodHandle handle = lookup.unreflect(method);
+        final CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+            MethodType.methodType(Function.class), GETTER_TYPE.erase(),
+            handle, handle.type().wrap());
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+      } catch (final Throwable e) {
+        // fall back to the method handle
+      }
+    }
+    final MethodHandle handle = getterHandle(type, property);
+    if (handle != null) {
+      return (obj) -> {
+        try {
+          return (Object) handle.invokeExact(obj);
+        } catch (final RuntimeException | Error e) {
+          throw e;
+        } catch (final Throwable e) {
+          throw new UndeclaredThrowableException(e);
+        }
+      };
+    }
+    return property::getValue;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static BiConsumer<Object, Object> createSetter(final Class<?> type,
+      final Property property) {
+    final Method method = property.getWriteMethod();
+    if (method != null) {
+      try {
+        final Lookup lookup = lookupFor(type, method);
+        final MethodHandle handle = lookup.unreflect(method);
+        final CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+            MethodType.methodType(BiConsumer.class), SETTER_TYPE.erase(),
+            handle, handle.type().wrap().changeReturnType(void.class));
+        return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+      } catch (final Throwable e) {
+        // fall back to the method handle
+      }
+    }
+    final MethodHandle handle = setterHandle(type, property);
+    if (handle != null) {
+      return (obj, value) -> {
+        try {
+          handle.invokeExact(obj, value);
+        } catch (final RuntimeException | Error e) {
+          throw e;
+        } catch (final Throwable e) {
+          throw new UndeclaredThrowableException(e);
+        }
+      };
+    }
+    return property::setValue;
+  }
+
+  @Nullable
+  private static MethodHandle getterHandle(final Class<?> type,
+      final Property property) {
+    try {
+      final Method method = property.getReadMethod();
+      if (method != null) {
+        return lookupFor(type, method).unreflect(method).asType(GETTER_TYPE);
+      }
+      final Field field = property.getField();
+      if (field != null) {
+        return lookupFor(type, field).unreflectGetter(field).asType(GETTER_TYPE);
+      }
+    } catch (final IllegalAccessException | RuntimeException e) {
+      // fall back to the property
+    }
+    return null;
+  }
+
+  @Nullable
+  private static MethodHandle setterHandle(final Class<?> type,
+      final Property property) {
+    try {
+      final Method method = property.getWriteMethod();
+      if (method != null) {
+        return lookupFor(type, method).unreflect(method)
+                                      .asType(SETTER_TYPE);
+      }
+      final Field field = property.getField();
+      if (field != null && !Modifier.isFinal(field.getModifiers())) {
+        return lookupFor(type, field).unreflectSetter(field)
+                                     .asType(SETTER_TYPE);
+      }
+    } catch (final IllegalAccessException | RuntimeException e) {
+      // fall back to the property
+    }
+    return null;
+  }
+
+  /**
+   * Gets the lookup used to access a member of a class.
+   * <p>
+   * Public members of public classes are accessed with the lookup of this
+   * class; other members are accessed with a private lookup in the declaring
+   * class of the member, which requires the package of the class to be open to
+   * this module.
+   */
+  private static Lookup lookupFor(final Class<?> type, final Member member)
+      throws IllegalAccessException {
+    final Class<?> declaringClass = member.getDeclaringClass();
+    if (Modifier.isPublic(member.getModifiers())
+        && Modifier.isPublic(declaringClass.getModifiers())
+        && Modifier.isPublic(type.getModifiers())) {
+      return LOOKUP;
+    }
+    return MethodHandles.privateLookupIn(declaringClass, LOOKUP);
+  }
+}
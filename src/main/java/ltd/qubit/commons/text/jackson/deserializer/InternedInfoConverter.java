@@ -0,0 +1,37 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.text.jackson.deserializer;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.databind.util.StdConverter;
+
+import ltd.qubit.commons.model.util.Info;
+import ltd.qubit.commons.model.util.InfoPool;
+
+/**
+ * The JSON deserialization converter replacing the deserialized {@link Info}
+ * objects with their canonical instances in the default {@link InfoPool}.
+ * <p>
+ * It could be enabled on a property with
+ * {@code @JsonDeserialize(converter = InternedInfoConverter.class)}, so that the
+ * repeated reference data in the deserialized objects share single read-only
+ * instances.
+ *
+ * @author Haixing Hu
+ * @see Info#intern()
+ */
+@Immutable
+public class InternedInfoConverter extends StdConverter<Info, Info> {
+
+  @Override
+  public Info convert(final Info value) {
+    return InfoPool.getDefault().intern(value);
+  }
+}
@@ -0,0 +1,172 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.text.jackson.deserializer;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.math.BigDecimal;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import ltd.qubit.commons.model.CompactLocation;
+import ltd.qubit.commons.model.Location;
+import ltd.qubit.commons.text.jackson.serializer.LocationSerializer;
+import ltd.qubit.commons.util.codec.DecodingException;
+import ltd.qubit.commons.util.codec.LocationCodec;
+import ltd.qubit.commons.util.codec.LocationCoordinateCodec;
+
+import static ltd.qubit.commons.text.jackson.serializer.LocationSerializer.LATITUDE_FIELD;
+import static ltd.qubit.commons.text.jackson.serializer.LocationSerializer.LONGITUDE_FIELD;
+
+/**
+ * JSON deserializer for geographical locations.
+ * <p>
+ * This deserializer reads a whole {@link Location} at once, and parses each
+ * coordinate directly from the raw text buffer of the parser into
+ * micro-degrees, without creating intermediate strings. The coordinates are
+ * normalized in the same way as {@link Location#normalize()}.
+ * <p>
+ * It accepts all the following forms of locations:
+ * <ul>
+ * <li>an object of the form
+ * <code>{"longitude":&lt;longitude&gt;,"latitude":&lt;latitude&gt;}</code>,
+ * where unknown fields are ignored;</li>
+ * <li>a compact array of the form {@code [<longitude>,<latitude>]};</li>
+ * <li>a string of the form {@code "<longitude>,<latitude>"}, as encoded by
+ * {@link LocationCodec}.</li>
+ * </ul>
+ * The coordinates could be either numbers or strings.
+ *
+ * @author Haixing Hu
+ * @see LocationSerializer
+ */
+@Immutable
+public class LocationDeserializer extends StdDeserializer<Location> {
+
+  @Serial
+  private static final long serialVersionUID = 4437606367720227313L;
+
+  private static final LocationCodec CODEC = new LocationCodec();
+
+  public LocationDeserializer() {
+    super(Location.class);
+  }
+
+  @Override
+  public Location deserialize(final JsonParser parser,
+      final DeserializationContext context) throws IOException {
+    switch (parser.currentTokenId()) {
+      case JsonTokenId.ID_START_OBJECT:
+        parser.nextToken();
+        return readObject(parser, context);
+      case JsonTokenId.ID_FIELD_NAME:
+        return readObject(parser, context);
+      case JsonTokenId.ID_START_ARRAY:
+        return readArray(parser, context);
+      case JsonTokenId.ID_STRING:
+        return readString(parser, context);
+      default:
+        return (Location) context.handleUnexpectedToken(Location.class, parser);
+    }
+  }
+
+  private Location readObject(final JsonParser parser,
+      final DeserializationContext context) throws IOException {
+    final Location result = new Location();
+    JsonToken token = parser.currentToken();
+    while (token == JsonToken.FIELD_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      if (LONGITUDE_FIELD.equals(name)) {
+        result.setLongitude(readCoordinate(parser, context));
+      } else if (LATITUDE_FIELD.equals(name)) {
+        result.setLatitude(readCoordinate(parser, context));
+      } else {
+        parser.skipChildren();
+      }
+      token = parser.nextToken();
+    }
+    if (token != JsonToken.END_OBJECT) {
+      return (Location) context.handleUnexpectedToken(Location.class, parser);
+    }
+    return result;
+  }
+
+  private Location readArray(final JsonParser parser,
+      final DeserializationContext context) throws IOException {
+    final Location result = new Location();
+    parser.nextToken();
+    result.setLongitude(readCoordinate(parser, context));
+    parser.nextToken();
+    result.setLatitude(readCoordinate(parser, context));
+    if (parser.nextToken() != JsonToken.END_ARRAY) {
+      context.reportWrongTokenException(this, JsonToken.END_ARRAY,
+          "Expected a location array of exactly two coordinates");
+    }
+    return result;
+  }
+
+  private Location readString(final JsonParser parser,
+      final DeserializationContext context) throws IOException {
+    final char[] text = parser.getTextCharacters();
+    final int offset = parser.getTextOffset();
+    final int length = parser.getTextLength();
+    final CompactLocation location;
+    try {
+      location = CODEC.decodeCompact(text, offset, length);
+    } catch (final DecodingException e) {
+      return (Location) context.handleWeirdStringValue(Location.class,
+          parser.getText(), e.getMessage());
+    }
+    return new Location(location);
+  }
+
+  @Nullable
+  private static BigDecimal readCoordinate(final JsonParser parser,
+      final DeserializationContext context) throws IOException {
+    switch (parser.currentTokenId()) {
+      case JsonTokenId.ID_NULL:
+        return null;
+      case JsonTokenId.ID_NUMBER_INT:
+      case JsonTokenId.ID_NUMBER_FLOAT:
+      case JsonTokenId.ID_STRING:
+        break;
+      default:
+        return (BigDecimal) context.handleUnexpectedToken(BigDecimal.class, parser);
+    }
+    final char[] text = parser.getTextCharacters();
+    if (text == null) {
+      // binary formats do not keep the textual representation of numbers
+      return LocationCoordinateCodec.fromMicroDegrees(
+          LocationCoordinateCodec.toMicroDegrees(parser.getDecimalValue()));
+    }
+    final int microDegrees;
+    try {
+      microDegrees = LocationCoordinateCodec.parseMicroDegrees(text,
+          parser.getTextOffset(), parser.getTextLength());
+    } catch (final DecodingException e) {
+      if (parser.currentTokenId() != JsonTokenId.ID_STRING) {
+        // the fast parser does not support the exponent notation of numbers,
+        // e.g., 1.16e2, which is valid in JSON
+        return LocationCoordinateCodec.fromMicroDegrees(
+            LocationCoordinateCodec.toMicroDegrees(parser.getDecimalValue()));
+      }
+      return (BigDecimal) context.handleWeirdStringValue(BigDecimal.class,
+          parser.getText(), e.getMessage());
+    }
+    return LocationCoordinateCodec.fromMicroDegrees(microDegrees);
+  }
+}
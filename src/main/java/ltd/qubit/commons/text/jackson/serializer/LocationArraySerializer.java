@@ -0,0 +1,34 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.text.jackson.serializer;
+
+import java.io.Serial;
+
+import javax.annotation.concurrent.Immutable;
+
+import ltd.qubit.commons.model.Location;
+
+/**
+ * JSON serializer for geographical locations, which writes a location as a
+ * compact array of the form {@code [<longitude>,<latitude>]}.
+ *
+ * @author Haixing Hu
+ * @see Location
+ * @see LocationSerializer
+ */
+@Immutable
+public class LocationArraySerializer extends LocationSerializer {
+
+  @Serial
+  private static final long serialVersionUID = 5395513270946165248L;
+
+  public LocationArraySerializer() {
+    super(true);
+  }
+}
@@ -0,0 +1,121 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.text.jackson.serializer;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.math.BigDecimal;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import ltd.qubit.commons.model.Location;
+import ltd.qubit.commons.text.jackson.deserializer.LocationDeserializer;
+import ltd.qubit.commons.util.codec.LocationCoordinateCodec;
+
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.MAX_FORMATTED_LENGTH;
+
+/**
+ * JSON serializer for geographical locations.
+ * <p>
+ * This serializer writes a whole {@link Location} at once, and writes each
+ * coordinate directly as a number with exactly
+ * {@value LocationCoordinateCodec#SCALE} digits after the decimal point,
+ * without creating intermediate strings. The coordinates are normalized in the
+ * same way as {@link Location#normalize()}.
+ * <p>
+ * By default a location is written as an object of the form
+ * <code>{"longitude":&lt;longitude&gt;,"latitude":&lt;latitude&gt;}</code>,
+ * which is the same as the default bean serialization of {@link Location}. If
+ * the array form is enabled, a location is written as a compact array of the
+ * form {@code [<longitude>,<latitude>]}.
+ * <p>
+ * This serializer is not registered on {@link Location} by default; it could be
+ * enabled with {@code @JsonSerialize(using = LocationSerializer.class)} on a
+ * property, or registered to an {@code ObjectMapper} with a module.
+ *
+ * @author Haixing Hu
+ * @see LocationArraySerializer
+ * @see LocationDeserializer
+ */
+@Immutable
+public class LocationSerializer extends StdSerializer<Location> {
+
+  @Serial
+  private static final long serialVersionUID = -2304846826315870385L;
+
+  public static final String LONGITUDE_FIELD = "longitude";
+
+  public static final String LATITUDE_FIELD = "latitude";
+
+  /**
+   * The buffers of the formatted coordinates, which are reused by the
+   * serializations in the same thread, since
+   * {@link JsonGenerator#writeNumber(char[], int, int)} copies the characters
+   * before it returns.
+   */
+  private static final ThreadLocal<char[]> BUFFERS =
+      ThreadLocal.withInitial(() -> new char[MAX_FORMATTED_LENGTH]);
+
+  private final boolean arrayForm;
+
+  public LocationSerializer() {
+    this(false);
+  }
+
+  /**
+   * Constructs a {@link LocationSerializer}.
+   *
+   * @param arrayForm
+   *     whether to write a location as a compact array of the form
+   *     {@code [<longitude>,<latitude>]}.
+   */
+  public LocationSerializer(final boolean arrayForm) {
+    super(Location.class);
+    this.arrayForm = arrayForm;
+  }
+
+  public final boolean isArrayForm() {
+    return arrayForm;
+  }
+
+  @Override
+  public void serialize(final Location value, final JsonGenerator generator,
+      final SerializerProvider provider) throws IOException {
+    final char[] buffer = BUFFERS.get();
+    if (arrayForm) {
+      generator.writeStartArray(value, 2);
+      writeCoordinate(generator, value.getLongitude(), buffer);
+      writeCoordinate(generator, value.getLatitude(), buffer);
+      generator.writeEndArray();
+    } else {
+      generator.writeStartObject(value);
+      generator.writeFieldName(LONGITUDE_FIELD);
+      writeCoordinate(generator, value.getLongitude(), buffer);
+      generator.writeFieldName(LATITUDE_FIELD);
+      writeCoordinate(generator, value.getLatitude(), buffer);
+      generator.writeEndObject();
+    }
+  }
+
+  private static void writeCoordinate(final JsonGenerator generator,
+      @Nullable final BigDecimal coordinate, final char[] buffer) throws IOException {
+    if (coordinate == null) {
+      generator.writeNull();
+    } else {
+      final int microDegrees = LocationCoordinateCodec.toMicroDegrees(coordinate);
+      final int length = LocationCoordinateCodec.formatMicroDegrees(microDegrees, buffer, 0);
+      generator.writeNumber(buffer, 0, length);
+    }
+  }
+}
@@ -0,0 +1,660 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.util.codec;
+
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ltd.qubit.commons.model.Environment;
+import ltd.qubit.commons.model.Expired;
+import ltd.qubit.commons.model.ExpiredReason;
+import ltd.qubit.commons.model.Location;
+import ltd.qubit.commons.model.Platform;
+import ltd.qubit.commons.model.Token;
+import ltd.qubit.commons.model.util.Info;
+import ltd.qubit.commons.model.util.Owner;
+import ltd.qubit.commons.model.util.Payload;
+
+/**
+ * The compact binary codec of the basic models.
+ * <p>
+ * This codec writes the models directly into, and reads them directly from,
+ * a {@link ByteBuffer}, which is much more compact and faster than the Java
+ * serialization or the JSON serialization. The encoding is as follows:
+ * <ul>
+ * <li>Each top-level object starts with a byte of the {@link #VERSION} of the
+ * encoding schema, followed by the body of the object. Nested objects, e.g.,
+ * the location of an {@link Environment}, only have their bodies.</li>
+ * <li>The body of an object starts with a byte of the presence mask of its
+ * fields, whose i-th bit is set if and only if the i-th field is not
+ * {@code null}, followed by the non-null fields in their declaration
+ * order.</li>
+ * <li>Integers are encoded as ZigZag variable-length integers.</li>
+ * <li>Strings are encoded as the variable-length number of bytes followed by
+ * their UTF-8 bytes.</li>
+ * <li>{@link Instant}s are encoded as their epoch seconds, i.e., the
+ * fractional seconds are truncated, which matches the precision of the time
+ * fields of the models.</li>
+ * <li>Enumerators are encoded as their variable-length ordinals.</li>
+ * <li>Coordinates are encoded as 4-byte integers in micro-degrees, i.e., they
+ * are rounded to {@link LocationCoordinateCodec#SCALE} digits after the
+ * decimal point. Coordinates outside the range of {@code [-180, 180]} are
+ * rejected instead of being wrapped into the range.</li>
+ * </ul>
+ * Since the enumerators are encoded as their ordinals, new enumerators must be
+ * appended to the end of their enumeration classes; and since the fields are
+ * identified by their positions, new fields must be appended to the end of the
+ * bodies with a new {@link #VERSION}.
+ * <p>
+ * The writing functions throw a {@link java.nio.BufferOverflowException} if
+ * there is not enough space remaining in the buffer, and an
+ * {@link IllegalArgumentException} if a coordinate is out of range; in both
+ * cases, the buffer may contain a partially written value.
+ *
+ * @author Haixing Hu
+ */
+@ThreadSafe
+public final class BinaryModelCodec {
+
+  /**
+   * The current version of the encoding schema.
+   */
+  public static final byte VERSION = 1;
+
+  private static final int MAX_VAR_LONG_SHIFT = 63;
+
+  private BinaryModelCodec() {}
+
+  public static void write(final ByteBuffer buffer, final Info info) {
+    buffer.put(VERSION);
+    writeInfo(buffer, info);
+  }
+
+  public static Info readInfo(final ByteBuffer buffer) throws DecodingException {
+    try {
+      checkVersion(buffer);
+      return readInfoBody(buffer);
+    } catch (final BufferUnderflowException e) {
+      throw truncated(e);
+    }
+  }
+
+  public static void write(final ByteBuffer buffer, final Token token) {
+    buffer.put(VERSION);
+    writeToken(buffer, token);
+  }
+
+  public static Token readToken(final ByteBuffer buffer) throws DecodingException {
+    try {
+      checkVersion(buffer);
+      return readTokenBody(buffer);
+    } catch (final BufferUnderflowException e) {
+      throw truncated(e);
+    }
+  }
+
+  public static void write(final ByteBuffer buffer, final Expired expired) {
+    buffer.put(VERSION);
+    writeExpired(buffer, expired);
+  }
+
+  public static Expired readExpired(final ByteBuffer buffer) throws DecodingException {
+    try {
+      checkVersion(buffer);
+      return readExpiredBody(buffer);
+    } catch (final BufferUnderflowException e) {
+      throw truncated(e);
+    }
+  }
+
+  public static void write(final ByteBuffer buffer, final Environment environment) {
+    buffer.put(VERSION);
+    writeEnvironment(buffer, environment);
+  }
+
+  public static Environment readEnvironment(final ByteBuffer buffer)
+      throws DecodingException {
+    try {
+      checkVersion(buffer);
+      return readEnvironmentBody(buffer);
+    } catch (final BufferUnderflowException e) {
+      throw truncated(e);
+    }
+  }
+
+  public static void write(final ByteBuffer buffer, final Payload payload) {
+    buffer.put(VERSION);
+    writePayload(buffer, payload);
+  }
+
+  public static Payload readPayload(final ByteBuffer buffer) throws DecodingException {
+    try {
+      checkVersion(buffer);
+      return readPayloadBody(buffer);
+    } catch (final BufferUnderflowException e) {
+      throw truncated(e);
+    }
+  }
+
+  public static void write(final ByteBuffer buffer, final Owner owner) {
+    buffer.put(VERSION);
+    writeOwner(buffer, owner);
+  }
+
+  public static Owner readOwner(final ByteBuffer buffer) throws DecodingException {
+    try {
+      checkVersion(buffer);
+      return readOwnerBody(buffer);
+    } catch (final BufferUnderflowException e) {
+      throw truncated(e);
+    }
+  }
+
+  public static void write(final ByteBuffer buffer, final Location location) {
+    buffer.put(VERSION);
+    writeLocation(buffer, location);
+  }
+
+  public static Location readLocation(final ByteBuffer buffer) throws DecodingException {
+    try {
+      checkVersion(buffer);
+      return readLocationBody(buffer);
+    } catch (final BufferUnderflowException e) {
+      throw truncated(e);
+    }
+  }
+
+  private static void writeInfo(final ByteBuffer buffer, final Info info) {
+    final Long id = info.getId();
+    final String code = info.getCode();
+    final String name = info.getName();
+    final Instant deleteTime = info.getDeleteTime();
+    buffer.put((byte) (bit(id, 0) | bit(code, 1) | bit(name, 2) | bit(deleteTime, 3)));
+    if (id != null) {
+      writeLong(buffer, id);
+    }
+    if (code != null) {
+      writeString(buffer, code);
+    }
+    if (name != null) {
+      writeString(buffer, name);
+    }
+    if (deleteTime != null) {
+      writeInstant(buffer, deleteTime);
+    }
+  }
+
+  private static Info readInfoBody(final ByteBuffer buffer) throws DecodingException {
+    final int mask = buffer.get();
+    final Info result = new Info();
+    if ((mask & 0x01) != 0) {
+      result.setId(readLong(buffer));
+    }
+    if ((mask & 0x02) != 0) {
+      result.setCode(readString(buffer));
+    }
+    if ((mask & 0x04) != 0) {
+      result.setName(readString(buffer));
+    }
+    if ((mask & 0x08) != 0) {
+      result.setDeleteTime(readInstant(buffer));
+    }
+    return result;
+  }
+
+  private static void writeToken(final ByteBuffer buffer, final Token token) {
+    final String value = token.getValue();
+    final Instant createTime = token.getCreateTime();
+    final Long maxAge = token.getMaxAge();
+    final String previousValue = token.getPreviousValue();
+    buffer.put((byte) (bit(value, 0)
+        | bit(createTime, 1)
+        | bit(maxAge, 2)
+        | bit(previousValue, 3)));
+    if (value != null) {
+      writeString(buffer, value);
+    }
+    if (createTime != null) {
+      writeInstant(buffer, createTime);
+    }
+    if (maxAge != null) {
+      writeLong(buffer, maxAge);
+    }
+    if (previousValue != null) {
+      writeString(buffer, previousValue);
+    }
+  }
+
+  private static Token readTokenBody(final ByteBuffer buffer) throws DecodingException {
+    final int mask = buffer.get();
+    final Token result = new Token();
+    if ((mask & 0x01) != 0) {
+      result.setValue(readString(buffer));
+    }
+    if ((mask & 0x02) != 0) {
+      result.setCreateTime(readInstant(buffer));
+    }
+    if ((mask & 0x04) != 0) {
+      result.setMaxAge(readLong(buffer));
+    }
+    if ((mask & 0x08) != 0) {
+      result.setPreviousValue(readString(buffer));
+    }
+    return result;
+  }
+
+  private static void writeExpired(final ByteBuffer buffer, final Expired expired) {
+    final Instant time = expired.getTime();
+    final ExpiredReason reason = expired.getReason();
+    buffer.put((byte) (bit(time, 0) | bit(reason, 1)));
+    if (time != null) {
+      writeInstant(buffer, time);
+    }
+    if (reason != null) {
+      writeVarLong(buffer, reason.ordinal());
+    }
+  }
+
+  private static Expired readExpiredBody(final ByteBuffer buffer)
+      throws DecodingException {
+    final int mask = buffer.get();
+    final Expired result = new Expired();
+    if ((mask & 0x01) != 0) {
+      result.setTime(readInstant(buffer));
+    }
+    if ((mask & 0x02) != 0) {
+      result.setReason(readEnum(buffer, ExpiredReason.values()));
+    }
+    return result;
+  }
+
+  private static void writeEnvironment(final ByteBuffer buffer,
+      final Environment environment) {
+    final String ip = environment.getIp();
+    final Location location = environment.getLocation();
+    final Platform platform = environment.getPlatform();
+    final String udid = environment.getUdid();
+    final String pushToken = environment.getPushToken();
+    buffer.put((byte) (bit(ip, 0)
+        | bit(location, 1)
+        | bit(platform, 2)
+        | bit(udid, 3)
+        | bit(pushToken, 4)));
+    if (ip != null) {
+      writeString(buffer, ip);
+    }
+    if (location != null) {
+      writeLocation(buffer, location);
+    }
+    if (platform != null) {
+      writeVarLong(buffer, platform.ordinal());
+    }
+    if (udid != null) {
+      writeString(buffer, udid);
+    }
+    if (pushToken != null) {
+      writeString(buffer, pushToken);
+    }
+  }
+
+  private static Environment readEnvironmentBody(final ByteBuffer buffer)
+      throws DecodingException {
+    final int mask = buffer.get();
+    final Environment result = new Environment();
+    if ((mask & 0x01) != 0) {
+      result.setIp(readString(buffer));
+    }
+    if ((mask & 0x02) != 0) {
+      result.setLocation(readLocationBody(buffer));
+    }
+    if ((mask & 0x04) != 0) {
+      result.setPlatform(readEnum(buffer, Platform.values()));
+    }
+    if ((mask & 0x08) != 0) {
+      result.setUdid(readString(buffer));
+    }
+    if ((mask & 0x10) != 0) {
+      result.setPushToken(readString(buffer));
+    }
+    return result;
+  }
+
+  private static void writePayload(final ByteBuffer buffer, final Payload payload) {
+    final Long id = payload.getId();
+    final Owner owner = payload.getOwner();
+    final String key = payload.getKey();
+    final String value = payload.getValue();
+    final String description = payload.getDescription();
+    buffer.put((byte) (bit(id, 0)
+        | bit(owner, 1)
+        | bit(key, 2)
+        | bit(value, 3)
+        | bit(description, 4)));
+    if (id != null) {
+      writeLong(buffer, id);
+    }
+    if (owner != null) {
+      writeOwner(buffer, owner);
+    }
+    if (key != null) {
+      writeString(buffer, key);
+    }
+    if (value != null) {
+      writeString(buffer, value);
+    }
+    if (description != null) {
+      writeString(buffer, description);
+    }
+  }
+
+  private static Payload readPayloadBody(final ByteBuffer buffer)
+      throws DecodingException {
+    final int mask = buffer.get();
+    final Payload result = new Payload();
+    if ((mask & 0x01) != 0) {
+      result.setId(readLong(buffer));
+    }
+    if ((mask & 0x02) != 0) {
+      result.setOwner(readOwnerBody(buffer));
+    }
+    if ((mask & 0x04) != 0) {
+      result.setKey(readString(buffer));
+    }
+    if ((mask & 0x08) != 0) {
+      result.setValue(readString(buffer));
+    }
+    if ((mask & 0x10) != 0) {
+      result.setDescription(readString(buffer));
+    }
+    return result;
+  }
+
+  private static void writeOwner(final ByteBuffer buffer, final Owner owner) {
+    final String type = owner.getType();
+    final Long id = owner.getId();
+    final String property = owner.getProperty();
+    buffer.put((byte) (bit(type, 0) | bit(id, 1) | bit(property, 2)));
+    if (type != null) {
+      writeString(buffer, type);
+    }
+    if (id != null) {
+      writeLong(buffer, id);
+    }
+    if (property != null) {
+      writeString(buffer, property);
+    }
+  }
+
+  private static Owner readOwnerBody(final ByteBuffer buffer) throws DecodingException {
+    final int mask = buffer.get();
+    final String type = ((mask & 0x01) != 0 ? readString(buffer) : null);
+    final Long id = ((mask & 0x02) != 0 ? readLong(buffer) : null);
+    final String property = ((mask & 0x04) != 0 ? readString(buffer) : null);
+    return Owner.of(type, id, property);
+  }
+
+  private static void writeLocation(final ByteBuffer buffer, final Location location) {
+    final BigDecimal longitude = location.getLongitude();
+    final BigDecimal latitude = location.getLatitude();
+    checkCoordinate("longitude", longitude);
+    checkCoordinate("latitude", latitude);
+    buffer.put((byte) (bit(longitude, 0) | bit(latitude, 1)));
+    if (longitude != null) {
+      buffer.putInt(LocationCoordinateCodec.toMicroDegrees(longitude));
+    }
+    if (latitude != null) {
+      buffer.putInt(LocationCoordinateCodec.toMicroDegrees(latitude));
+    }
+  }
+
+  private static void checkCoordinate(final String name,
+      @Nullable final BigDecimal value) {
+    // toMicroDegrees() would silently wrap the value into [-180, 180]
+    if (value != null
+        && (value.compareTo(LocationCoordinateCodec.MIN_COORDINATE) < 0
+        || value.compareTo(LocationCoordinateCodec.MAX_COORDINATE) > 0)) {
+      throw new IllegalArgumentException("The " + name
+          + " is out of the range of [-180, 180]: " + value);
+    }
+  }
+
+  private static Location readLocationBody(final ByteBuffer buffer) {
+    final int mask = buffer.get();
+    final Location result = new Location();
+    if ((mask & 0x01) != 0) {
+      result.setLongitude(LocationCoordinateCodec.fromMicroDegrees(buffer.getInt()));
+    }
+    if ((mask & 0x02) != 0) {
+      result.setLatitude(LocationCoordinateCodec.fromMicroDegrees(buffer.getInt()));
+    }
+    return result;
+  }
+
+  private static int bit(@Nullable final Object field, final int index) {
+    return (field == null ? 0 : (1 << index));
+  }
+
+  private static void checkVersion(final ByteBuffer buffer) throws DecodingException {
+    final byte version = buffer.get();
+    if (version < 1 || version > VERSION) {
+      throw new DecodingException("Unsupported binary encoding version: " + version);
+    }
+  }
+
+  private static DecodingException truncated(final BufferUnderflowException e) {
+    return new DecodingException("The binary encoding is truncated.", e);
+  }
+
+  /**
+   * Writes a {@code long} value as a ZigZag variable-length integer.
+   *
+   * @param buffer
+   *     the buffer to write to.
+   * @param value
+   *     the value to be written.
+   */
+  public static void writeLong(final ByteBuffer buffer, final long value) {
+    writeVarLong(buffer, (value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Reads a {@code long} value encoded as a ZigZag variable-length integer.
+   *
+   * @param buffer
+   *     the buffer to read from.
+   * @return
+   *     the value read from the buffer.
+   * @throws DecodingException
+   *     if the encoding is malformed.
+   */
+  public static long readLong(final ByteBuffer buffer) throws DecodingException {
+    final long v = readVarLong(buffer);
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+  /**
+   * Writes an unsigned variable-length integer, with 7 bits in each byte.
+   *
+   * @param buffer
+   *     the buffer to write to.
+   * @param value
+   *     the value to be written, treated as an unsigned integer.
+   */
+  public static void writeVarLong(final ByteBuffer buffer, final long value) {
+    long v = value;
+    while ((v & ~0x7FL) != 0) {
+      buffer.put((byte) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    buffer.put((byte) v);
+  }
+
+  /**
+   * Reads an unsigned variable-length integer, with 7 bits in each byte.
+   *
+   * @param buffer
+   *     the buffer to read from.
+   * @return
+   *     the value read from the buffer.
+   * @throws DecodingException
+   *     if the encoding is malformed, i.e., it is longer than 10 bytes, or its
+   *     10th byte has any bit other than the highest bit of the value.
+   */
+  public static long readVarLong(final ByteBuffer buffer) throws DecodingException {
+    long result = 0;
+    for (int shift = 0; shift < Long.SIZE; shift += 7) {
+      final byte b = buffer.get();
+      if (shift == MAX_VAR_LONG_SHIFT && (b & ~0x01) != 0) {
+        // the 10th byte holds only the highest bit of the value
+        break;
+      }
+      result |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw new DecodingException("Malformed variable-length integer.");
+  }
+
+  /**
+   * Writes an {@link Instant} as its epoch seconds.
+   *
+   * @param buffer
+   *     the buffer to write to.
+   * @param instant
+   *     the instant to be written, whose fractional seconds are truncated.
+   */
+  public static void writeInstant(final ByteBuffer buffer, final Instant instant) {
+    writeLong(buffer, instant.getEpochSecond());
+  }
+
+  /**
+   * Reads an {@link Instant} encoded as its epoch seconds.
+   *
+   * @param buffer
+   *     the buffer to read from.
+   * @return
+   *     the instant read from the buffer.
+   * @throws DecodingException
+   *     if the encoding is malformed.
+   */
+  public static Instant readInstant(final ByteBuffer buffer) throws DecodingException {
+    final long seconds = readLong(buffer);
+    try {
+      return Instant.ofEpochSecond(seconds);
+    } catch (final DateTimeException e) {
+      throw new DecodingException("Invalid epoch second: " + seconds, e);
+    }
+  }
+
+  /**
+   * Writes a string as its variable-length number of UTF-8 bytes followed by
+   * the UTF-8 bytes.
+   * <p>
+   * The characters are encoded directly into the buffer, without creating an
+   * intermediate byte array.
+   *
+   * @param buffer
+   *     the buffer to write to.
+   * @param str
+   *     the string to be written.
+   */
+  public static void writeString(final ByteBuffer buffer, final String str) {
+    final int n = str.length();
+    writeVarLong(buffer, utf8Length(str));
+    for (int i = 0; i < n; ++i) {
+      final char ch = str.charAt(i);
+      if (ch < 0x80) {
+        buffer.put((byte) ch);
+      } else if (ch < 0x800) {
+        buffer.put((byte) (0xC0 | (ch >>> 6)));
+        buffer.put((byte) (0x80 | (ch & 0x3F)));
+      } else if (Character.isHighSurrogate(ch) && (i + 1 < n)
+          && Character.isLowSurrogate(str.charAt(i + 1))) {
+        final int cp = Character.toCodePoint(ch, str.charAt(++i));
+        buffer.put((byte) (0xF0 | (cp >>> 18)));
+        buffer.put((byte) (0x80 | ((cp >>> 12) & 0x3F)));
+        buffer.put((byte) (0x80 | ((cp >>> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (cp & 0x3F)));
+      } else if (Character.isSurrogate(ch)) {
+        buffer.put((byte) '?');   // unpaired surrogate, same as String.getBytes()
+      } else {
+        buffer.put((byte) (0xE0 | (ch >>> 12)));
+        buffer.put((byte) (0x80 | ((ch >>> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (ch & 0x3F)));
+      }
+    }
+  }
+
+  /**
+   * Reads a string encoded as its variable-length number of UTF-8 bytes
+   * followed by the UTF-8 bytes.
+   *
+   * @param buffer
+   *     the buffer to read from.
+   * @return
+   *     the string read from the buffer.
+   * @throws DecodingException
+   *     if the encoding is malformed.
+   */
+  public static String readString(final ByteBuffer buffer) throws DecodingException {
+    final long length = readVarLong(buffer);
+    if (length < 0 || length > buffer.remaining()) {
+      throw new DecodingException("Invalid length of string: " + length);
+    }
+    final int n = (int) length;
+    final String result;
+    if (buffer.hasArray()) {
+      final int offset = buffer.arrayOffset() + buffer.position();
+      result = new String(buffer.array(), offset, n, StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + n);
+    } else {
+      final byte[] bytes = new byte[n];
+      buffer.get(bytes);
+      result = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return result;
+  }
+
+  private static int utf8Length(final String str) {
+    final int n = str.length();
+    int result = n;
+    for (int i = 0; i < n; ++i) {
+      final char ch = str.charAt(i);
+      if (ch >= 0x80) {
+        if (ch < 0x800) {
+          result += 1;
+        } else if (Character.isHighSurrogate(ch) && (i + 1 < n)
+            && Character.isLowSurrogate(str.charAt(i + 1))) {
+          result += 2;    // 4 bytes for 2 chars
+          ++i;
+        } else if (!Character.isSurrogate(ch)) {
+          result += 2;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static <E extends Enum<E>> E readEnum(final ByteBuffer buffer,
+      final E[] values) throws DecodingException {
+    final long ordinal = readVarLong(buffer);
+    if (ordinal < 0 || ordinal >= values.length) {
+      throw new DecodingException("Invalid enumerator ordinal: " + ordinal);
+    }
+    return values[(int) ordinal];
+  }
+}
@@ -0,0 +1,414 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.util.codec;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import javax.annotation.concurrent.Immutable;
+
+import ltd.qubit.commons.model.CompactLocation;
+import ltd.qubit.commons.model.Location;
+
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.SCALE_FACTOR;
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.fromMicroDegrees;
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.toMicroDegrees;
+import static ltd.qubit.commons.util.codec.MortonCodec.compact;
+import static ltd.qubit.commons.util.codec.MortonCodec.interleave;
+
+/**
+ * The encoder and decoder of the geohash of geolocation locations.
+ * <p>
+ * A geohash of precision {@code p} is a string of {@code p} characters in the
+ * base32 alphabet {@value #ALPHABET}, encoding {@code 5p} bits obtained by
+ * alternately bisecting the longitude range {@code [-180, 180]} and the
+ * latitude range {@code [-90, 90]}, starting from the longitude. The maximum
+ * precision is {@value #MAX_PRECISION}.
+ * <p>
+ * Besides the string form, this class also provides the static functions
+ * working on the bits of geohashes stored in {@code long} values, which are
+ * computed from the micro-degree coordinates with pure integer arithmetic and
+ * allocate nothing. The bits of a geohash are sortable, and all locations
+ * inside a geohash cell share the same prefix, so that a cell can be scanned
+ * as the key range {@code [minKey(bits, p), maxKey(bits, p)]} of the geohashes
+ * of the maximum precision.
+ *
+ * @author Haixing Hu
+ * @see Location
+ * @see MortonCodec
+ */
+@Immutable
+public class GeoHashCodec implements Codec<Location, String> {
+
+  /**
+   * The base32 alphabet used by geohashes.
+   */
+  public static final String ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+  /**
+   * The maximum precision of geohashes, i.e., the maximum number of
+   * characters.
+   */
+  public static final int MAX_PRECISION = 12;
+
+  /**
+   * The default precision of geohashes.
+   */
+  public static final int DEFAULT_PRECISION = MAX_PRECISION;
+
+  /**
+   * The number of directions of neighbours of a geohash cell.
+   */
+  public static final int NEIGHBOURS = 8;
+
+  private static final int BITS_PER_CHAR = 5;
+
+  private static final int BITS_PER_COORDINATE = 30;
+
+  private static final int TOTAL_BITS = 2 * BITS_PER_COORDINATE;
+
+  private static final long LONGITUDE_RANGE = 360L * SCALE_FACTOR;
+
+  private static final long LATITUDE_RANGE = 180L * SCALE_FACTOR;
+
+  private static final int MAX_CELL = (1 << BITS_PER_COORDINATE) - 1;
+
+  private static final char[] DIGITS = ALPHABET.toCharArray();
+
+  private static final byte[] VALUES = new byte[128];
+
+  static {
+    Arrays.fill(VALUES, (byte) -1);
+    for (int i = 0; i < DIGITS.length; ++i) {
+      VALUES[DIGITS[i]] = (byte) i;
+    }
+  }
+
+  /**
+   * The offsets of longitude cells of the neighbours, in the order of N, NE,
+   * E, SE, S, SW, W, NW.
+   */
+  private static final int[] NEIGHBOUR_DX = {0, 1, 1, 1, 0, -1, -1, -1};
+
+  /**
+   * The offsets of latitude cells of the neighbours, in the order of N, NE,
+   * E, SE, S, SW, W, NW.
+   */
+  private static final int[] NEIGHBOUR_DY = {1, 1, 0, -1, -1, -1, 0, 1};
+
+  private final int precision;
+
+  /**
+   * Constructs a {@link GeoHashCodec} with the default precision.
+   */
+  public GeoHashCodec() {
+    this(DEFAULT_PRECISION);
+  }
+
+  /**
+   * Constructs a {@link GeoHashCodec}.
+   *
+   * @param precision
+   *     the precision of the geohashes, i.e., the number of characters, which
+   *     must be between 1 and {@value #MAX_PRECISION}.
+   */
+  public GeoHashCodec(final int precision) {
+    this.precision = checkPrecision(precision);
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Decodes a geohash into the location of the center of its cell.
+   *
+   * @param source
+   *     the geohash to be decoded, which can be of any precision.
+   * @return
+   *     the location of the center of the cell of the geohash, or {@code null}
+   *     if the argument is {@code null} or empty.
+   * @throws DecodingException
+   *     if the argument is not a valid geohash.
+   */
+  @Override
+  public Location decode(final String source) throws DecodingException {
+    if (source == null || source.length() == 0) {
+      return null;
+    }
+    final int p = source.length();
+    final long bits = parse(source, 0, p);
+    return new Location(fromMicroDegrees(centerLongitude(bits, p)),
+        fromMicroDegrees(centerLatitude(bits, p)));
+  }
+
+  /**
+   * Encodes a location into a geohash of the precision of this codec.
+   *
+   * @param source
+   *     the location to be encoded, which can be {@code null}.
+   * @return
+   *     the geohash of the location, or {@code null} if the argument is
+   *     {@code null} or any of its coordinates is {@code null}.
+   */
+  @Override
+  public String encode(final Location source) {
+    if (source == null) {
+      return null;
+    }
+    final BigDecimal lng = source.getLongitude();
+    final BigDecimal lat = source.getLatitude();
+    if (lng == null || lat == null) {
+      return null;
+    }
+    final long bits = encode(toMicroDegrees(lng), toMicroDegrees(lat), precision);
+    return toString(bits, precision);
+  }
+
+  /**
+   * Encodes a location into a geohash of the precision of this codec.
+   *
+   * @param source
+   *     the location to be encoded, which can be {@code null}.
+   * @return
+   *     the geohash of the location, or {@code null} if the argument is
+   *     {@code null}.
+   */
+  public String encode(final CompactLocation source) {
+    if (source == null) {
+      return null;
+    }
+    final long bits = encode(source.getMicroLongitude(),
+        source.getMicroLatitude(), precision);
+    return toString(bits, precision);
+  }
+
+  /**
+   * Computes the bits of the geohash of a location.
+   *
+   * @param longitude
+   *     the normalized longitude of the location, in micro-degrees.
+   * @param latitude
+   *     the normalized latitude of the location, in micro-degrees. Latitudes
+   *     outside of {@code [-90, 90]} are clamped.
+   * @param precision
+   *     the precision of the geohash, i.e., the number of characters.
+   * @return
+   *     the bits of the geohash, stored in the lowest {@code 5 * precision}
+   *     bits of the returned value.
+   */
+  public static long encode(final int longitude, final int latitude,
+      final int precision) {
+    final long x = ((longitude + LONGITUDE_RANGE / 2) << BITS_PER_COORDINATE)
+        / LONGITUDE_RANGE;
+    final long y = ((latitude + LATITUDE_RANGE / 2) << BITS_PER_COORDINATE)
+        / LATITUDE_RANGE;
+    final int cx = (int) Math.min(Math.max(x, 0), MAX_CELL);
+    final int cy = (int) Math.min(Math.max(y, 0), MAX_CELL);
+    return interleave(cx, cy) >>> (TOTAL_BITS - BITS_PER_CHAR * precision);
+  }
+
+  /**
+   * Parses a geohash into its bits.
+   *
+   * @param source
+   *     the character sequence containing the geohash.
+   * @param start
+   *     the index of the first character of the geohash.
+   * @param end
+   *     the index after the last character of the geohash. The precision of
+   *     the geohash is {@code end - start}.
+   * @return
+   *     the bits of the geohash.
+   * @throws DecodingException
+   *     if the specified range is not a valid geohash.
+   */
+  public static long parse(final CharSequence source, final int start,
+      final int end) throws DecodingException {
+    final int p = end - start;
+    if (p <= 0 || p > MAX_PRECISION) {
+      throw new DecodingException("Invalid geohash: " + source.subSequence(start, end));
+    }
+    long bits = 0;
+    for (int i = start; i < end; ++i) {
+      final char ch = Character.toLowerCase(source.charAt(i));
+      final int value = (ch < VALUES.length ? VALUES[ch] : -1);
+      if (value < 0) {
+        throw new DecodingException("Invalid geohash: " + source.subSequence(start, end));
+      }
+      bits = (bits << BITS_PER_CHAR) | value;
+    }
+    return bits;
+  }
+
+  /**
+   * Converts the bits of a geohash into its string form.
+   *
+   * @param bits
+   *     the bits of the geohash.
+   * @param precision
+   *     the precision of the geohash.
+   * @return
+   *     the string form of the geohash.
+   */
+  public static String toString(final long bits, final int precision) {
+    return appendTo(new StringBuilder(precision), bits, precision).toString();
+  }
+
+  /**
+   * Appends the string form of the bits of a geohash to a string builder.
+   *
+   * @param builder
+   *     the string builder to append to.
+   * @param bits
+   *     the bits of the geohash.
+   * @param precision
+   *     the precision of the geohash.
+   * @return
+   *     the specified string builder.
+   */
+  public static StringBuilder appendTo(final StringBuilder builder,
+      final long bits, final int precision) {
+    for (int i = precision - 1; i >= 0; --i) {
+      builder.append(DIGITS[(int) (bits >>> (BITS_PER_CHAR * i)) & 0x1F]);
+    }
+    return builder;
+  }
+
+  /**
+   * Gets the smallest key of the geohashes of the maximum precision inside the
+   * cell of a geohash.
+   *
+   * @param bits
+   *     the bits of the geohash.
+   * @param precision
+   *     the precision of the geohash.
+   * @return
+   *     the smallest key of the geohashes of the maximum precision inside the
+   *     cell of the geohash.
+   */
+  public static long minKey(final long bits, final int precision) {
+    return bits << (TOTAL_BITS - BITS_PER_CHAR * precision);
+  }
+
+  /**
+   * Gets the largest key of the geohashes of the maximum precision inside the
+   * cell of a geohash.
+   *
+   * @param bits
+   *     the bits of the geohash.
+   * @param precision
+   *     the precision of the geohash.
+   * @return
+   *     the largest key of the geohashes of the maximum precision inside the
+   *     cell of the geohash.
+   */
+  public static long maxKey(final long bits, final int precision) {
+    return ((bits + 1) << (TOTAL_BITS - BITS_PER_CHAR * precision)) - 1;
+  }
+
+  /**
+   * Gets the longitude of the center of the cell of a geohash.
+   *
+   * @param bits
+   *     the bits of the geohash.
+   * @param precision
+   *     the precision of the geohash.
+   * @return
+   *     the longitude of the center of the cell, in micro-degrees.
+   */
+  public static int centerLongitude(final long bits, final int precision) {
+    final int n = longitudeBits(precision);
+    final long cx = longitudeCell(bits, precision);
+    return (int) (((2 * cx + 1) * LONGITUDE_RANGE >> (n + 1)) - LONGITUDE_RANGE / 2);
+  }
+
+  /**
+   * Gets the latitude of the center of the cell of a geohash.
+   *
+   * @param bits
+   *     the bits of the geohash.
+   * @param precision
+   *     the precision of the geohash.
+   * @return
+   *     the latitude of the center of the cell, in micro-degrees.
+   */
+  public static int centerLatitude(final long bits, final int precision) {
+    final int n = latitudeBits(precision);
+    final long cy = latitudeCell(bits, precision);
+    return (int) (((2 * cy + 1) * LATITUDE_RANGE >> (n + 1)) - LATITUDE_RANGE / 2);
+  }
+
+  /**
+   * Enumerates the neighbour cells of the cell of a geohash.
+   * <p>
+   * The neighbours are stored in the order of N, NE, E, SE, S, SW, W, NW.
+   * Neighbours across the 180th meridian wrap around, while the neighbours
+   * beyond the poles do not exist and are skipped.
+   *
+   * @param bits
+   *     the bits of the geohash.
+   * @param precision
+   *     the precision of the geohash.
+   * @param neighbours
+   *     the array used to store the bits of the neighbours, whose length must
+   *     be at least {@value #NEIGHBOURS}.
+   * @return
+   *     the number of neighbours stored in the array.
+   */
+  public static int neighbours(final long bits, final int precision,
+      final long[] neighbours) {
+    final int nx = longitudeBits(precision);
+    final int ny = latitudeBits(precision);
+    final long cx = longitudeCell(bits, precision);
+    final long cy = latitudeCell(bits, precision);
+    final long maskX = (1L << nx) - 1;
+    final long maxY = (1L << ny) - 1;
+    final int shift = TOTAL_BITS - BITS_PER_CHAR * precision;
+    int count = 0;
+    for (int i = 0; i < NEIGHBOURS; ++i) {
+      final long y = cy + NEIGHBOUR_DY[i];
+      if (y < 0 || y > maxY) {
+        continue;
+      }
+      final long x = (cx + NEIGHBOUR_DX[i]) & maskX;
+      final int hx = (int) (x << (BITS_PER_COORDINATE - nx));
+      final int hy = (int) (y << (BITS_PER_COORDINATE - ny));
+      neighbours[count++] = interleave(hx, hy) >>> shift;
+    }
+    return count;
+  }
+
+  private static int longitudeBits(final int precision) {
+    return (BITS_PER_CHAR * precision + 1) / 2;
+  }
+
+  private static int latitudeBits(final int precision) {
+    return (BITS_PER_CHAR * precision) / 2;
+  }
+
+  private static long longitudeCell(final long bits, final int precision) {
+    final long full = bits << (TOTAL_BITS - BITS_PER_CHAR * precision);
+    return (compact(full >>> 1) & 0xFFFF_FFFFL)
+        >>> (BITS_PER_COORDINATE - longitudeBits(precision));
+  }
+
+  private static long latitudeCell(final long bits, final int precision) {
+    final long full = bits << (TOTAL_BITS - BITS_PER_CHAR * precision);
+    return (compact(full) & 0xFFFF_FFFFL)
+        >>> (BITS_PER_COORDINATE - latitudeBits(precision));
+  }
+
+  private static int checkPrecision(final int precision) {
+    if (precision <= 0 || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("Invalid geohash precision: " + precision);
+    }
+    return precision;
+  }
+}
@@ -8,10 +8,22 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.util.codec;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
+import ltd.qubit.commons.model.CompactLocation;
 import ltd.qubit.commons.model.Location;
 
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.SCALE;
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.appendMicroDegrees;
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.fromMicroDegrees;
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.isNormalized;
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.parseMicroDegrees;
+import static ltd.qubit.commons.util.codec.LocationCoordinateCodec.toMicroDegrees;
+
 /**
  * The encoder and decoder of geolocation locations.
  * <p>
@@ -24,6 +36,11 @@ import ltd.qubit.commons.model.Location;
  * </code></pre>
  * <p>
  * For example: "116.482086,39.990496"
+ * <p>
+ * Besides the {@link Codec} interface, this class also provides a set of
+ * hand-written scanning and printing functions working on the micro-degree
+ * coordinates, which do not create any intermediate objects and are suitable
+ * for decoding or encoding huge amount of locations.
  *
  * @author Haixing Hu
  */
@@ -35,17 +52,22 @@ public class LocationCodec implements Codec<Location, String> {
    */
   public static final String SPLITTER = ",";
 
+  /**
+   * The separator character between latitude and longitude coordinates.
+   */
+  public static final char SPLITTER_CHAR = ',';
+
   @Override
   public Location decode(final String source) throws DecodingException {
     if (source == null || source.length() == 0) {
       return null;
     }
-    final String[] values = source.split(SPLITTER);
-    if (values.length != 2) {
+    final int pos = source.indexOf(SPLITTER_CHAR);
+    if (pos < 0 || source.indexOf(SPLITTER_CHAR, pos + 1) >= 0) {
       throw new DecodingException("Invalid location format: " + source);
     }
     try {
-      return new Location(values[0], values[1]);
+      return new Location(source.substring(0, pos), source.substring(pos + 1));
     } catch (final DecodingException e) {
       throw new DecodingException("Invalid location format: " + source);
     }
@@ -56,9 +78,228 @@ public class LocationCodec implements Codec<Location, String> {
     if (source == null) {
       return null;
     }
-    final LocationCoordinateCodec codec = LocationCoordinateCodec.INSTANCE;
-    return codec.encode(source.getLongitude())
-        + SPLITTER
-        + codec.encode(source.getLatitude());
+    return encode(source, new StringBuilder()).toString();
+  }
+
+  /**
+   * Encodes a {@link Location} object into a string builder.
+   * <p>
+   * The normalized coordinates, which are the common case, are printed from
+   * their micro-degree values with exactly {@link LocationCoordinateCodec#SCALE}
+   * digits after the decimal point, and no intermediate object is created; the
+   * other coordinates are printed by {@link LocationCoordinateCodec#encode}.
+   *
+   * @param source
+   *     the location to be encoded.
+   * @param builder
+   *     the string builder where to append the encoded location.
+   * @return
+   *     the specified string builder.
+   */
+  public StringBuilder encode(final Location source, final StringBuilder builder) {
+    appendCoordinate(builder, source.getLongitude());
+    builder.append(SPLITTER_CHAR);
+    appendCoordinate(builder, source.getLatitude());
+    return builder;
+  }
+
+  /**
+   * Encodes a {@link Location} object into an {@link Appendable}.
+   *
+   * @param source
+   *     the location to be encoded.
+   * @param out
+   *     the {@link Appendable} where to append the encoded location.
+   * @throws IOException
+   *     if any I/O error occurs.
+   * @see #encode(Location, StringBuilder)
+   */
+  public void encode(final Location source, final Appendable out)
+      throws IOException {
+    appendCoordinate(out, source.getLongitude());
+    out.append(SPLITTER_CHAR);
+    appendCoordinate(out, source.getLatitude());
+  }
+
+  private static void appendCoordinate(final StringBuilder builder,
+      @Nullable final BigDecimal value) {
+    if (value != null && isNormalized(value, SCALE)) {
+      appendMicroDegrees(builder, toMicroDegrees(value));
+    } else {
+      builder.append(LocationCoordinateCodec.INSTANCE.encode(value));
+    }
+  }
+
+  private static void appendCoordinate(final Appendable out,
+      @Nullable final BigDecimal value) throws IOException {
+    if (value != null && isNormalized(value, SCALE)) {
+      appendMicroDegrees(out, toMicroDegrees(value));
+    } else {
+      out.append(LocationCoordinateCodec.INSTANCE.encode(value));
+    }
+  }
+
+  /**
+   * Decodes a range of a character sequence into a {@link Location} object.
+   * <p>
+   * The coordinates of the returned location are normalized with the default
+   * precision, and this function allocates nothing but the returned location.
+   *
+   * @param source
+   *     the character sequence to be decoded.
+   * @param start
+   *     the index of the first character of the encoded location.
+   * @param end
+   *     the index after the last character of the encoded location.
+   * @return
+   *     the decoded location.
+   * @throws DecodingException
+   *     if the specified range is not a valid encoding of a location.
+   */
+  public Location decode(final CharSequence source, final int start,
+      final int end) throws DecodingException {
+    final int pos = indexOfSplitter(source, start, end);
+    final int longitude = parseMicroDegrees(source, start, pos);
+    final int latitude = parseMicroDegrees(source, pos + 1, end);
+    return new Location(fromMicroDegrees(longitude), fromMicroDegrees(latitude));
+  }
+
+  /**
+   * Decodes a range of a character sequence into a {@link CompactLocation}
+   * object.
+   * <p>
+   * This function allocates nothing but the returned location.
+   *
+   * @param source
+   *     the character sequence to be decoded.
+   * @param start
+   *     the index of the first character of the encoded location.
+   * @param end
+   *     the index after the last character of the encoded location.
+   * @return
+   *     the decoded location.
+   * @throws DecodingException
+   *     if the specified range is not a valid encoding of a location.
+   */
+  public CompactLocation decodeCompact(final CharSequence source,
+      final int start, final int end) throws DecodingException {
+    final int pos = indexOfSplitter(source, start, end);
+    final int longitude = parseMicroDegrees(source, start, pos);
+    final int latitude = parseMicroDegrees(source, pos + 1, end);
+    return new CompactLocation(longitude, latitude);
+  }
+
+  /**
+   * Decodes a range of a character array into a {@link CompactLocation}
+   * object.
+   * <p>
+   * This function allocates nothing but the returned location.
+   *
+   * @param source
+   *     the character array to be decoded.
+   * @param offset
+   *     the index of the first character of the encoded location.
+   * @param length
+   *     the number of characters of the encoded location.
+   * @return
+   *     the decoded location.
+   * @throws DecodingException
+   *     if the specified range is not a valid encoding of a location.
+   */
+  public CompactLocation decodeCompact(final char[] source, final int offset,
+      final int length) throws DecodingException {
+    final int end = offset + length;
+    int pos = -1;
+    for (int i = offset; i < end; ++i) {
+      if (source[i] == SPLITTER_CHAR) {
+        if (pos >= 0) {
+          throw new DecodingException("Invalid location format: "
+              + new String(source, offset, length));
+        }
+        pos = i;
+      }
+    }
+    if (pos < 0) {
+      throw new DecodingException("Invalid location format: "
+          + new String(source, offset, length));
+    }
+    final int longitude = parseMicroDegrees(source, offset, pos - offset);
+    final int latitude = parseMicroDegrees(source, pos + 1, end - pos - 1);
+    return new CompactLocation(longitude, latitude);
+  }
+
+  private static int indexOfSplitter(final CharSequence source, final int start,
+      final int end) throws DecodingException {
+    int pos = -1;
+    for (int i = start; i < end; ++i) {
+      if (source.charAt(i) == SPLITTER_CHAR) {
+        if (pos >= 0) {
+          throw new DecodingException("Invalid location format: "
+              + source.subSequence(start, end));
+        }
+        pos = i;
+      }
+    }
+    if (pos < 0) {
+      throw new DecodingException("Invalid location format: "
+          + source.subSequence(start, end));
+    }
+    return pos;
+  }
+
+  /**
+   * Encodes a {@link CompactLocation} object.
+   *
+   * @param source
+   *     the location to be encoded, which can be {@code null}.
+   * @return
+   *     the encoded string, or {@code null} if the location is {@code null}.
+   */
+  public String encode(final CompactLocation source) {
+    if (source == null) {
+      return null;
+    }
+    return encode(source, new StringBuilder()).toString();
+  }
+
+  /**
+   * Encodes a {@link CompactLocation} object into a string builder.
+   * <p>
+   * The coordinates are printed with exactly {@link LocationCoordinateCodec#SCALE}
+   * digits after the decimal point, and no intermediate object is created.
+   *
+   * @param source
+   *     the location to be encoded.
+   * @param builder
+   *     the string builder where to append the encoded location.
+   * @return
+   *     the specified string builder.
+   */
+  public StringBuilder encode(final CompactLocation source,
+      final StringBuilder builder) {
+    appendMicroDegrees(builder, source.getMicroLongitude());
+    builder.append(SPLITTER_CHAR);
+    appendMicroDegrees(builder, source.getMicroLatitude());
+    return builder;
+  }
+
+  /**
+   * Encodes a {@link CompactLocation} object into an {@link Appendable}.
+   * <p>
+   * The coordinates are printed with exactly {@link LocationCoordinateCodec#SCALE}
+   * digits after the decimal point, and no intermediate object is created.
+   *
+   * @param source
+   *     the location to be encoded.
+   * @param out
+   *     the {@link Appendable} where to append the encoded location.
+   * @throws IOException
+   *     if any I/O error occurs.
+   */
+  public void encode(final CompactLocation source, final Appendable out)
+      throws IOException {
+    appendMicroDegrees(out, source.getMicroLongitude());
+    out.append(SPLITTER_CHAR);
+    appendMicroDegrees(out, source.getMicroLatitude());
   }
 }
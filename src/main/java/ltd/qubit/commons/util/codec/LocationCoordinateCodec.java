@@ -8,7 +8,9 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.util.codec;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
@@ -31,12 +33,45 @@ public class LocationCoordinateCodec extends BigDecimalCodec {
    */
   public static final int SCALE = 6;
 
+  /**
+   * The factor used to convert a coordinate in degrees into a scaled integer
+   * with {@link #SCALE} digits after the decimal point, i.e., the number of
+   * micro-degrees in one degree.
+   */
+  public static final int SCALE_FACTOR = 1_000_000;
+
+  private static final long MIN_MICRO_COORDINATE = -180L * SCALE_FACTOR;
+
+  private static final long MAX_MICRO_COORDINATE = 180L * SCALE_FACTOR;
+
+  private static final long ROUND_MICRO_DEGREE = 360L * SCALE_FACTOR;
+
+  /**
+   * The maximum value of the integral part of a coordinate accepted by the
+   * scanners, which prevents the scaled value from overflowing.
+   */
+  private static final long MAX_INTEGRAL_PART = 1_000_000_000_000L;
+
+  /**
+   * The powers of ten, enough for the digits of any {@code int} value.
+   */
+  private static final long[] POW10 = {
+      1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+      100_000_000L, 1_000_000_000L,
+  };
+
   public static final BigDecimal MIN_COORDINATE = BigDecimal.valueOf(-180);
 
   public static final BigDecimal MAX_COORDINATE = BigDecimal.valueOf(180);
 
   public static final BigDecimal ROUND_DEGREE = BigDecimal.valueOf(360);
 
+  /**
+   * The maximum number of characters of a coordinate value in micro-degrees
+   * formatted by {@link #formatMicroDegrees(int, char[], int)}.
+   */
+  public static final int MAX_FORMATTED_LENGTH = 12;
+
   public static final LocationCoordinateCodec INSTANCE = new LocationCoordinateCodec();
 
   public LocationCoordinateCodec() {
@@ -72,6 +107,9 @@ public class LocationCoordinateCodec extends BigDecimalCodec {
     if (value == null) {
       return null;
     }
+    if (isNormalized(value, scale)) {
+      return value;
+    }
     BigDecimal v = limitPrecision(value, scale);
     v = v.remainder(ROUND_DEGREE);
     if (v.compareTo(MIN_COORDINATE) < 0) {
@@ -81,4 +119,342 @@ public class LocationCoordinateCodec extends BigDecimalCodec {
     }
     return v;
   }
+
+  /**
+   * Tests whether a coordinate value is already normalized with the specified
+   * scale.
+   * <p>
+   * A coordinate value is normalized if it has no more than the specified
+   * number of digits after the decimal point and lies in the range of
+   * {@code [-180, 180]}. Normalizing such a value returns the value itself, so
+   * this test lets the normalization skip the rounding and modular arithmetic,
+   * which allocates intermediate objects, for the common case.
+   *
+   * @param value
+   *     the coordinate value to be tested, which cannot be {@code null}.
+   * @param scale
+   *     the specified scale.
+   * @return
+   *     {@code true} if the coordinate value is already normalized;
+   *     {@code false} otherwise.
+   */
+  public static boolean isNormalized(final BigDecimal value, final int scale) {
+    return (value.scale() <= scale)
+        && (value.compareTo(MIN_COORDINATE) >= 0)
+        && (value.compareTo(MAX_COORDINATE) <= 0);
+  }
+
+  /**
+   * Normalizes a coordinate value in micro-degrees into the range of
+   * {@code [-180, 180]} degrees.
+   *
+   * @param microDegrees
+   *     the coordinate value in micro-degrees to be normalized.
+   * @return
+   *     the normalized coordinate value in micro-degrees.
+   */
+  public static int normalize(final int microDegrees) {
+    if (microDegrees >= MIN_MICRO_COORDINATE && microDegrees <= MAX_MICRO_COORDINATE) {
+      return microDegrees;
+    }
+    return normalize((long) microDegrees);
+  }
+
+  /**
+   * Normalizes a coordinate value in micro-degrees into the range of
+   * {@code [-180, 180]} degrees.
+   *
+   * @param microDegrees
+   *     the coordinate value in micro-degrees to be normalized.
+   * @return
+   *     the normalized coordinate value in micro-degrees.
+   */
+  public static int normalize(final long microDegrees) {
+    long v = microDegrees % ROUND_MICRO_DEGREE;
+    if (v < MIN_MICRO_COORDINATE) {
+      v += ROUND_MICRO_DEGREE;
+    } else if (v > MAX_MICRO_COORDINATE) {
+      v -= ROUND_MICRO_DEGREE;
+    }
+    return (int) v;
+  }
+
+  /**
+   * Converts a coordinate value into micro-degrees, i.e., a scaled integer with
+   * {@link #SCALE} digits after the decimal point.
+   * <p>
+   * The value will be normalized with the default scale before conversion. An
+   * already normalized value, which is the common case, is converted exactly by
+   * moving its decimal point, without the rounding and modular arithmetic. Its
+   * unscaled value fits in a {@code long}, so the conversion does not go
+   * through a {@link java.math.BigInteger}, although moving the decimal point
+   * creates an intermediate {@link BigDecimal}.
+   *
+   * @param value
+   *     the coordinate value to be converted.
+   * @return
+   *     the normalized coordinate value in micro-degrees.
+   */
+  public static int toMicroDegrees(final BigDecimal value) {
+    if (isNormalized(value, SCALE)) {
+      // exact, since the value has at most SCALE digits after the decimal
+      // point; the result has the scale 0, so it is read without conversion
+      return value.movePointRight(SCALE).intValueExact();
+    }
+    final BigDecimal v = normalize(value, SCALE);
+    return v.setScale(SCALE, RoundingMode.HALF_UP)
+            .unscaledValue()
+            .intValue();
+  }
+
+  /**
+   * Converts a coordinate value in micro-degrees into a decimal coordinate
+   * value with {@link #SCALE} digits after the decimal point.
+   *
+   * @param microDegrees
+   *     the coordinate value in micro-degrees.
+   * @return
+   *     the corresponding decimal coordinate value.
+   */
+  public static BigDecimal fromMicroDegrees(final int microDegrees) {
+    return BigDecimal.valueOf(microDegrees, SCALE);
+  }
+
+  /**
+   * Parses a coordinate value in the decimal form directly into micro-degrees.
+   * <p>
+   * This function scans the characters by hand and does not create any
+   * intermediate object. Leading and trailing whitespaces are ignored. The
+   * digits after the {@link #SCALE}-th digit after the decimal point are
+   * rounded with the {@link RoundingMode#HALF_UP} mode, and the result is
+   * normalized into the range of {@code [-180, 180]}, which is the same as
+   * {@code toMicroDegrees(decode(...))}. The scientific notation is not
+   * supported.
+   *
+   * @param source
+   *     the character sequence to be parsed.
+   * @param start
+   *     the index of the first character of the coordinate value.
+   * @param end
+   *     the index after the last character of the coordinate value.
+   * @return
+   *     the normalized coordinate value in micro-degrees.
+   * @throws DecodingException
+   *     if the specified range is not a valid coordinate value.
+   */
+  public static int parseMicroDegrees(final CharSequence source, final int start,
+      final int end) throws DecodingException {
+    return parse(null, source, start, end);
+  }
+
+  /**
+   * Parses a coordinate value in the decimal form directly into micro-degrees.
+   * <p>
+   * This function has the same semantics as
+   * {@link #parseMicroDegrees(CharSequence, int, int)}, but scans a range of a
+   * character array, which is typically the internal buffer of a parser.
+   *
+   * @param source
+   *     the character array to be parsed.
+   * @param offset
+   *     the index of the first character of the coordinate value.
+   * @param length
+   *     the number of characters of the coordinate value.
+   * @return
+   *     the normalized coordinate value in micro-degrees.
+   * @throws DecodingException
+   *     if the specified range is not a valid coordinate value.
+   */
+  public static int parseMicroDegrees(final char[] source, final int offset,
+      final int length) throws DecodingException {
+    return parse(source, null, offset, offset + length);
+  }
+
+  /**
+   * Parses a coordinate value from either a character array or a character
+   * sequence, exactly one of which is not {@code null}, by indexing it
+   * directly.
+   */
+  private static int parse(@Nullable final char[] array,
+      @Nullable final CharSequence sequence, final int start, final int end)
+      throws DecodingException {
+    int i = start;
+    int j = end;
+    while (i < j && Character.isWhitespace(charAt(array, sequence, i))) {
+      ++i;
+    }
+    while (j > i && Character.isWhitespace(charAt(array, sequence, j - 1))) {
+      --j;
+    }
+    if (i >= j) {
+      throw invalidCoordinate(array, sequence, start, end);
+    }
+    boolean negative = false;
+    char ch = charAt(array, sequence, i);
+    if (ch == '-' || ch == '+') {
+      negative = (ch == '-');
+      ++i;
+    }
+    long integral = 0;
+    int digits = 0;
+    while (i < j && (ch = charAt(array, sequence, i)) >= '0' && ch <= '9') {
+      integral = integral * 10 + (ch - '0');
+      if (integral > MAX_INTEGRAL_PART) {
+        throw invalidCoordinate(array, sequence, start, end);
+      }
+      ++digits;
+      ++i;
+    }
+    long fraction = 0;
+    int fractionDigits = 0;
+    boolean roundUp = false;
+    if (i < j && charAt(array, sequence, i) == '.') {
+      ++i;
+      while (i < j && (ch = charAt(array, sequence, i)) >= '0' && ch <= '9') {
+        if (fractionDigits < SCALE) {
+          fraction = fraction * 10 + (ch - '0');
+        } else if (fractionDigits == SCALE) {
+          roundUp = (ch >= '5');
+        }
+        ++fractionDigits;
+        ++digits;
+        ++i;
+      }
+    }
+    if (digits == 0 || i != j) {
+      throw invalidCoordinate(array, sequence, start, end);
+    }
+    return combine(negative, integral, fraction, fractionDigits, roundUp);
+  }
+
+  private static char charAt(@Nullable final char[] array,
+      @Nullable final CharSequence sequence, final int index) {
+    return (array != null ? array[index] : sequence.charAt(index));
+  }
+
+  private static int combine(final boolean negative, final long integral,
+      final long fraction, final int fractionDigits, final boolean roundUp) {
+    long f = fraction;
+    for (int k = fractionDigits; k < SCALE; ++k) {
+      f *= 10;
+    }
+    long value = integral * SCALE_FACTOR + f + (roundUp ? 1 : 0);
+    if (negative) {
+      value = -value;
+    }
+    return normalize(value);
+  }
+
+  private static DecodingException invalidCoordinate(@Nullable final char[] array,
+      @Nullable final CharSequence sequence, final int start, final int end) {
+    final String text = (array != null
+                         ? new String(array, start, end - start)
+                         : sequence.subSequence(start, end).toString());
+    return new DecodingException("Invalid location coordinate: " + text);
+  }
+
+  /**
+   * Appends a coordinate value in micro-degrees to a string builder, in the
+   * decimal form with exactly {@link #SCALE} digits after the decimal point.
+   * <p>
+   * The characters are appended one by one, so no intermediate object is
+   * created.
+   *
+   * @param builder
+   *     the string builder to append to.
+   * @param microDegrees
+   *     the coordinate value in micro-degrees.
+   * @return
+   *     the specified string builder.
+   */
+  public static StringBuilder appendMicroDegrees(final StringBuilder builder,
+      final int microDegrees) {
+    final int length = formattedLength(microDegrees);
+    builder.ensureCapacity(builder.length() + length);
+    for (int i = 0; i < length; ++i) {
+      builder.append(formattedChar(microDegrees, length, i));
+    }
+    return builder;
+  }
+
+  /**
+   * Appends a coordinate value in micro-degrees to an {@link Appendable}, in
+   * the decimal form with exactly {@link #SCALE} digits after the decimal
+   * point.
+   * <p>
+   * The characters are appended one by one, so no intermediate object is
+   * created.
+   *
+   * @param out
+   *     the {@link Appendable} to append to.
+   * @param microDegrees
+   *     the coordinate value in micro-degrees.
+   * @throws IOException
+   *     if any I/O error occurs.
+   */
+  public static void appendMicroDegrees(final Appendable out,
+      final int microDegrees) throws IOException {
+    final int length = formattedLength(microDegrees);
+    for (int i = 0; i < length; ++i) {
+      out.append(formattedChar(microDegrees, length, i));
+    }
+  }
+
+  /**
+   * Formats a coordinate value in micro-degrees into a character array, in the
+   * decimal form with exactly {@link #SCALE} digits after the decimal point.
+   * <p>
+   * The characters are written directly into the array, so no intermediate
+   * object is created.
+   *
+   * @param microDegrees
+   *     the coordinate value in micro-degrees.
+   * @param buffer
+   *     the character array to write to, which must have at least
+   *     {@link #MAX_FORMATTED_LENGTH} characters available from the specified
+   *     offset.
+   * @param offset
+   *     the index of the first character to write.
+   * @return
+   *     the number of characters written.
+   */
+  public static int formatMicroDegrees(final int microDegrees, final char[] buffer,
+      final int offset) {
+    final int length = formattedLength(microDegrees);
+    for (int i = 0; i < length; ++i) {
+      buffer[offset + i] = formattedChar(microDegrees, length, i);
+    }
+    return length;
+  }
+
+  /**
+   * Gets the number of characters of the formatted coordinate value.
+   */
+  private static int formattedLength(final int microDegrees) {
+    final long integral = Math.abs((long) microDegrees) / SCALE_FACTOR;
+    int integralDigits = 1;
+    for (long d = 10; d <= integral; d *= 10) {
+      ++integralDigits;
+    }
+    return (microDegrees < 0 ? 1 : 0) + integralDigits + 1 + SCALE;
+  }
+
+  /**
+   * Gets the character at the specified index of the formatted coordinate
+   * value, which is the only formatting logic shared by all the printing
+   * functions.
+   */
+  private static char formattedChar(final int microDegrees, final int length,
+      final int index) {
+    if (index == 0 && microDegrees < 0) {
+      return '-';
+    }
+    final int fromEnd = length - 1 - index;
+    if (fromEnd == SCALE) {
+      return '.';
+    }
+    // the exponent of the digit in the absolute value in micro-degrees
+    final int exponent = (fromEnd < SCALE ? fromEnd : fromEnd - 1);
+    return (char) ('0' + (Math.abs((long) microDegrees) / POW10[exponent]) % 10);
+  }
 }
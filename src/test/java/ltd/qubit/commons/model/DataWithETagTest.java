@@ -0,0 +1,104 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test of the {@link DataWithETag} class.
+ *
+ * @author Haixing Hu
+ */
+public class DataWithETagTest {
+
+  private static final Instant CREATE_TIME = Instant.ofEpochSecond(1_700_000_000L);
+
+  private static DataWithETag<String> data(final long maxAge, final long version) {
+    return new DataWithETag<>("data", maxAge, CREATE_TIME, version);
+  }
+
+  @Test
+  public void testETag() throws Exception {
+    assertEquals("W/\"1a2b\"", data(1000, 0x1a2b).getETag());
+    assertEquals("W/\"0\"", data(1000, 0).getETag());
+    assertEquals("W/\"ffffffffffffffff\"", data(1000, -1).getETag());
+    assertNotEquals(data(1000, 1), data(1000, 2));
+    assertEquals(data(1000, 1), data(1000, 1));
+  }
+
+  @Test
+  public void testIsNotModifiedWithWildcard() throws Exception {
+    final DataWithETag<String> data = data(1000, 0x1a2b);
+    assertTrue(data.isNotModified("*"));
+    assertTrue(data.isNotModified(" *"));
+    assertFalse(data.isNotModified(null));
+    assertFalse(data.isNotModified(""));
+    assertFalse(data.isNotModified(" , "));
+  }
+
+  @Test
+  public void testIsNotModifiedWithWeakAndStrongTags() throws Exception {
+    final DataWithETag<String> data = data(1000, 0x1a2b);
+    assertTrue(data.isNotModified("W/\"1a2b\""));
+    // the weak comparison ignores the weakness of the tags
+    assertTrue(data.isNotModified("\"1a2b\""));
+    assertFalse(data.isNotModified("W/\"1a2c\""));
+    assertFalse(data.isNotModified("\"1a2\""));
+    assertFalse(data.isNotModified("\"1a2b"));
+    assertFalse(data.isNotModified("1a2b"));
+    assertFalse(data.isNotModified("W/"));
+  }
+
+  @Test
+  public void testIsNotModifiedWithList() throws Exception {
+    final DataWithETag<String> data = data(1000, 0x1a2b);
+    assertTrue(data.isNotModified("\"x\", W/\"1a2b\""));
+    assertTrue(data.isNotModified("W/\"x\",\"1a2b\""));
+    assertTrue(data.isNotModified("\"x\",\t\"y\" , W/\"1a2b\", \"z\""));
+    assertTrue(data.isNotModified("\"x\", *"));
+    // a comma inside a quoted tag does not separate the tags
+    assertFalse(data.isNotModified("\"x,1a2b\""));
+    assertFalse(data.isNotModified("\"x\", W/\"y\", \"1a2bc\""));
+    assertFalse(data.isNotModified("x, y, W/\"1a2\""));
+  }
+
+  @Test
+  public void testCacheControl() throws Exception {
+    // the max-age is rounded down to seconds, so it never outlives the data
+    assertEquals("max-age=1", data(1999, 1).getCacheControl());
+    assertEquals("max-age=0", data(999, 1).getCacheControl());
+    assertEquals("max-age=0", data(-1000, 1).getCacheControl());
+    final DataWithETag<String> data = data(10_000, 1);
+    assertEquals("max-age=10", data.getCacheControl(CREATE_TIME));
+    assertEquals("max-age=9", data.getCacheControl(CREATE_TIME.plusMillis(1)));
+    assertEquals("max-age=1", data.getCacheControl(CREATE_TIME.plusMillis(8001)));
+    assertEquals("max-age=0", data.getCacheControl(CREATE_TIME.plusMillis(9001)));
+    assertEquals("max-age=0", data.getCacheControl(CREATE_TIME.plusSeconds(20)));
+    // a clock behind the creation time does not extend the lifetime
+    assertEquals("max-age=10", data.getCacheControl(CREATE_TIME.minusSeconds(5)));
+  }
+
+  @Test
+  public void testRemainingAgeAndExpiry() throws Exception {
+    final DataWithETag<String> data = data(10_000, 1);
+    assertEquals(10_000L, data.getRemainingAge(CREATE_TIME));
+    assertEquals(1L, data.getRemainingAge(CREATE_TIME.plusMillis(9999)));
+    assertFalse(data.isExpired(CREATE_TIME.plusMillis(9999)));
+    assertEquals(0L, data.getRemainingAge(CREATE_TIME.plusMillis(10_000)));
+    assertTrue(data.isExpired(CREATE_TIME.plusMillis(10_000)));
+    assertTrue(data.isExpired(CREATE_TIME.plusSeconds(3600)));
+  }
+}
@@ -0,0 +1,224 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test of the {@link MaxAgeCache} class.
+ *
+ * @author Haixing Hu
+ */
+public class MaxAgeCacheTest {
+
+  /**
+   * A clock whose time is advanced manually.
+   */
+  private static final class ManualClock extends Clock {
+    private volatile long millis = 1_000_000L;
+
+    void advance(final long delta) {
+      millis += delta;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+  }
+
+  /**
+   * An executor collecting the tasks, which are run manually.
+   */
+  private static final class ManualExecutor implements Executor {
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(final Runnable task) {
+      tasks.add(task);
+    }
+
+    int runAll() {
+      final List<Runnable> list = new ArrayList<>(tasks);
+      tasks.clear();
+      list.forEach(Runnable::run);
+      return list.size();
+    }
+  }
+
+  @Test
+  public void testExpiry() throws Exception {
+    final ManualClock clock = new ManualClock();
+    final AtomicInteger version = new AtomicInteger();
+    final MaxAgeCache<String, String> cache = new MaxAgeCache<>(clock,
+        (key) -> new DataWithMaxAge<>(key + version.incrementAndGet(), 100), 10);
+    assertEquals("a1", cache.get("a"));
+    clock.advance(99);
+    assertEquals("a1", cache.get("a"));
+    clock.advance(1);
+    assertEquals("a2", cache.get("a"));
+    assertEquals(1, cache.size());
+    clock.advance(100);
+    assertEquals(1, cache.evictExpired());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testMissingValue() throws Exception {
+    final ManualClock clock = new ManualClock();
+    final MaxAgeCache<String, String> cache = new MaxAgeCache<>(clock,
+        (key) -> null, 10);
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testStaleWhileRevalidate() throws Exception {
+    final ManualClock clock = new ManualClock();
+    final ManualExecutor executor = new ManualExecutor();
+    final AtomicInteger version = new AtomicInteger();
+    final MaxAgeCache<String, String> cache = new MaxAgeCache<>(clock,
+        (key) -> new DataWithMaxAge<>(key + version.incrementAndGet(), 100),
+        10, 50, executor);
+    assertEquals("a1", cache.get("a"));
+    clock.advance(120);
+    // stale: the old value is returned, and a single refresh is scheduled
+    assertEquals("a1", cache.get("a"));
+    assertEquals("a1", cache.get("a"));
+    assertEquals(1, executor.runAll());
+    assertEquals("a2", cache.get("a"));
+    // beyond the stale window: the value is reloaded synchronously
+    clock.advance(150);
+    assertEquals("a3", cache.get("a"));
+    assertEquals(0, executor.runAll());
+  }
+
+  @Test
+  public void testFailedRefreshKeepsStaleValue() throws Exception {
+    final ManualClock clock = new ManualClock();
+    final ManualExecutor executor = new ManualExecutor();
+    final AtomicInteger calls = new AtomicInteger();
+    final MaxAgeCache<String, String> cache = new MaxAgeCache<>(clock, (key) -> {
+      if (calls.incrementAndGet() > 1) {
+        throw new IllegalStateException("failed");
+      }
+      return new DataWithMaxAge<>("a", 100);
+    }, 10, 50, executor);
+    assertEquals("a", cache.get("a"));
+    clock.advance(120);
+    assertEquals("a", cache.get("a"));
+    final List<Throwable> reported = new ArrayList<>();
+    final Thread thread = Thread.currentThread();
+    final Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+    thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+    try {
+      assertEquals(1, executor.runAll());
+    } finally {
+      thread.setUncaughtExceptionHandler(handler);
+    }
+    assertEquals(1, reported.size());
+    assertEquals("a", cache.get("a"));
+  }
+
+  @Test
+  public void testFifoEviction() throws Exception {
+    final ManualClock clock = new ManualClock();
+    final List<Integer> loaded = new ArrayList<>();
+    final MaxAgeCache<Integer, String> cache = new MaxAgeCache<>(clock, (key) -> {
+      loaded.add(key);
+      return new DataWithMaxAge<>("v" + key, key == 2 ? 10 : 10_000);
+    }, 3);
+    cache.get(1);
+    cache.get(2);
+    cache.get(3);
+    clock.advance(20);
+    // the expired entry 2 is evicted first, although it is not the oldest
+    cache.get(4);
+    assertEquals(3, cache.size());
+    // then the least recently loaded entry 1
+    cache.put(5, new DataWithMaxAge<>("v5", 10_000));
+    assertEquals(3, cache.size());
+    loaded.clear();
+    assertEquals("v3", cache.get(3));
+    assertEquals("v4", cache.get(4));
+    assertEquals("v5", cache.get(5));
+    assertEquals(List.of(), loaded);
+    // reading does not refresh the load order, so reloading 1 evicts 3
+    assertEquals("v1", cache.get(1));
+    assertEquals(List.of(1), loaded);
+    assertEquals("v3", cache.get(3));
+    assertEquals(List.of(1, 3), loaded);
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void testInvalidateDuringLoad() throws Exception {
+    final ManualClock clock = new ManualClock();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch gate = new CountDownLatch(1);
+    final AtomicInteger version = new AtomicInteger();
+    final MaxAgeCache<String, String> cache = new MaxAgeCache<>(clock, (key) -> {
+      final String value = key + version.incrementAndGet();
+      started.countDown();
+      try {
+        assertTrue(gate.await(10, TimeUnit.SECONDS));
+      } catch (final InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return new DataWithMaxAge<>(value, 10_000);
+    }, 10);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<String> slow = executor.submit(() -> cache.get("a"));
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      cache.put("a", new DataWithMaxAge<>("new", 10_000));
+      gate.countDown();
+      assertEquals("a1", slow.get(10, TimeUnit.SECONDS));
+      // the slow load did not overwrite the newer value
+      assertEquals("new", cache.get("a"));
+      cache.invalidate("a");
+      assertEquals("a2", cache.get("a"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,246 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import ltd.qubit.commons.model.util.Info;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test of the compact serialized forms of the models.
+ *
+ * @author Haixing Hu
+ */
+public class ModelSerializationTest {
+
+  //  The following streams were written in the default serialized forms by the
+  //  earlier versions of the classes, which have the same serialVersionUID.
+
+  private static final String DEFAULT_FORM_OF_INFO = ""
+      + "rO0ABXNyACFsdGQucXViaXQuY29tbW9ucy5tb2RlbC51dGlsLkluZm9lDKEqKeQV"
+      + "zwIABEwABGNvZGV0ABJMamF2YS9sYW5nL1N0cmluZztMAApkZWxldGVUaW1ldAAT"
+      + "TGphdmEvdGltZS9JbnN0YW50O0wAAmlkdAAQTGphdmEvbGFuZy9Mb25nO0wABG5h"
+      + "bWVxAH4AAXhwdAAEY29kZXNyAA1qYXZhLnRpbWUuU2VylV2EuhsiSLIMAAB4cHcN"
+      + "AgAAAABlU/EAB1vNFXhzcgAOamF2YS5sYW5nLkxvbmc7i+SQzI8j3wIAAUoABXZh"
+      + "bHVleHIAEGphdmEubGFuZy5OdW1iZXKGrJUdC5TgiwIAAHhwAAAAAAAAAAF0AARu"
+      + "YW1l";
+
+  private static final String DEFAULT_FORM_OF_TOKEN = ""
+      + "rO0ABXNyAB1sdGQucXViaXQuY29tbW9ucy5tb2RlbC5Ub2tlbn4VokcSLXqoAgAE"
+      + "TAAKY3JlYXRlVGltZXQAE0xqYXZhL3RpbWUvSW5zdGFudDtMAAZtYXhBZ2V0ABBM"
+      + "amF2YS9sYW5nL0xvbmc7TAANcHJldmlvdXNWYWx1ZXQAEkxqYXZhL2xhbmcvU3Ry"
+      + "aW5nO0wABXZhbHVlcQB+AAN4cHNyAA1qYXZhLnRpbWUuU2VylV2EuhsiSLIMAAB4"
+      + "cHcNAgAAAABlU/EAAAAAAHhzcgAOamF2YS5sYW5nLkxvbmc7i+SQzI8j3wIAAUoA"
+      + "BXZhbHVleHIAEGphdmEubGFuZy5OdW1iZXKGrJUdC5TgiwIAAHhwAAAAAAAADhB0"
+      + "AAhwcmV2aW91c3QABXZhbHVl";
+
+  private static final String DEFAULT_FORM_OF_LOCATION = ""
+      + "rO0ABXNyACBsdGQucXViaXQuY29tbW9ucy5tb2RlbC5Mb2NhdGlvbsVhDbw5xJLz"
+      + "AgACTAAIbGF0aXR1ZGV0ABZMamF2YS9tYXRoL0JpZ0RlY2ltYWw7TAAJbG9uZ2l0"
+      + "dWRlcQB+AAF4cHNyABRqYXZhLm1hdGguQmlnRGVjaW1hbFTHFVf5gShPAwACSQAF"
+      + "c2NhbGVMAAZpbnRWYWx0ABZMamF2YS9tYXRoL0JpZ0ludGVnZXI7eHIAEGphdmEu"
+      + "bGFuZy5OdW1iZXKGrJUdC5TgiwIAAHhwAAAABnNyABRqYXZhLm1hdGguQmlnSW50"
+      + "ZWdlcoz8nx+pO/sdAwAGSQAIYml0Q291bnRJAAliaXRMZW5ndGhJABNmaXJzdE5v"
+      + "bnplcm9CeXRlTnVtSQAMbG93ZXN0U2V0Qml0SQAGc2lnbnVtWwAJbWFnbml0dWRl"
+      + "dAACW0J4cQB+AAX///////////////7////+AAAAAXVyAAJbQqzzF/gGCFTgAgAA"
+      + "eHAAAAAEAmET73h4c3EAfgADAAAABnNxAH4AB////////////////v////4AAAAB"
+      + "dXEAfgAKAAAABAbwFEh4eA==";
+
+  private static final String DEFAULT_FORM_OF_ENVIRONMENT = ""
+      + "rO0ABXNyACNsdGQucXViaXQuY29tbW9ucy5tb2RlbC5FbnZpcm9ubWVudBB7Xl8X"
+      + "k97VAgAFTAACaXB0ABJMamF2YS9sYW5nL1N0cmluZztMAAhsb2NhdGlvbnQAIkxs"
+      + "dGQvcXViaXQvY29tbW9ucy9tb2RlbC9Mb2NhdGlvbjtMAAhwbGF0Zm9ybXQAIkxs"
+      + "dGQvcXViaXQvY29tbW9ucy9tb2RlbC9QbGF0Zm9ybTtMAAlwdXNoVG9rZW5xAH4A"
+      + "AUwABHVkaWRxAH4AAXhwdAALMTkyLjE2OC4wLjFzcgAgbHRkLnF1Yml0LmNvbW1v"
+      + "bnMubW9kZWwuTG9jYXRpb27FYQ28OcSS8wIAAkwACGxhdGl0dWRldAAWTGphdmEv"
+      + "bWF0aC9CaWdEZWNpbWFsO0wACWxvbmdpdHVkZXEAfgAHeHBzcgAUamF2YS5tYXRo"
+      + "LkJpZ0RlY2ltYWxUxxVX+YEoTwMAAkkABXNjYWxlTAAGaW50VmFsdAAWTGphdmEv"
+      + "bWF0aC9CaWdJbnRlZ2VyO3hyABBqYXZhLmxhbmcuTnVtYmVyhqyVHQuU4IsCAAB4"
+      + "cAAAAAJzcgAUamF2YS5tYXRoLkJpZ0ludGVnZXKM/J8fqTv7HQMABkkACGJpdENv"
+      + "dW50SQAJYml0TGVuZ3RoSQATZmlyc3ROb256ZXJvQnl0ZU51bUkADGxvd2VzdFNl"
+      + "dEJpdEkABnNpZ251bVsACW1hZ25pdHVkZXQAAltCeHEAfgAL///////////////+"
+      + "/////v////91cgACW0Ks8xf4BghU4AIAAHhwAAAAAeF4eHNxAH4ACQAAAAFzcQB+"
+      + "AA3///////////////7////+AAAAAXVxAH4AEAAAAAEPeHh+cgAgbHRkLnF1Yml0"
+      + "LmNvbW1vbnMubW9kZWwuUGxhdGZvcm0AAAAAAAAAABIAAHhyAA5qYXZhLmxhbmcu"
+      + "RW51bQAAAAAAAAAAEgAAeHB0AAdBTkRST0lEdAAKcHVzaC10b2tlbnQABHVkaWQ=";
+
+  @SuppressWarnings("unchecked")
+  private static <T> T roundTrip(final T obj)
+      throws IOException, ClassNotFoundException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(obj);
+    }
+    try (final ObjectInputStream in = new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      return (T) in.readObject();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T readDefaultForm(final String base64)
+      throws IOException, ClassNotFoundException {
+    final byte[] bytes = Base64.getDecoder().decode(base64);
+    try (final ObjectInputStream in = new ObjectInputStream(
+        new ByteArrayInputStream(bytes))) {
+      return (T) in.readObject();
+    }
+  }
+
+  private static int serializedSize(final Object obj) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(obj);
+    }
+    return bytes.size();
+  }
+
+  @Test
+  public void testInfo() throws Exception {
+    final Info info = new Info(1L, "code", "name");
+    info.setDeleteTime(Instant.ofEpochSecond(1700000000L, 123456789));
+    assertEquals(info, roundTrip(info));
+    assertEquals(new Info(), roundTrip(new Info()));
+    assertEquals(new Info(-2L), roundTrip(new Info(-2L)));
+  }
+
+  @Test
+  public void testToken() throws Exception {
+    final Token token = new Token("value");
+    token.setCreateTime(Instant.ofEpochSecond(1700000000L));
+    token.setMaxAge(3600L);
+    token.setPreviousValue("previous");
+    assertEquals(token, roundTrip(token));
+    assertEquals(new Token(), roundTrip(new Token()));
+  }
+
+  @Test
+  public void testTokenWithNullMaxAgeAndPreviousValue() throws Exception {
+    final Token token = new Token("value");
+    token.setCreateTime(Instant.ofEpochSecond(1700000000L, 500));
+    final Token actual = roundTrip(token);
+    assertEquals(token, actual);
+    assertNull(actual.getMaxAge());
+    assertNull(actual.getPreviousValue());
+    assertEquals(Long.MAX_VALUE, actual.expiredEpochSecond());
+  }
+
+  @Test
+  public void testNormalizedToken() throws Exception {
+    final Token token = new Token("  value  ");
+    token.setCreateTime(Instant.ofEpochSecond(1700000000L));
+    token.setMaxAge(60L);
+    token.normalize();
+    assertEquals("value", token.getValue());
+    final Token actual = roundTrip(token);
+    assertEquals(token, actual);
+    assertEquals(token.expiredEpochSecond(), actual.expiredEpochSecond());
+    // the normalized mark is not serialized, so the modified token read back
+    // must be normalized again
+    actual.setPreviousValue("  previous ");
+    actual.normalize();
+    assertEquals("previous", actual.getPreviousValue());
+    actual.normalize();
+    assertEquals("value", actual.getValue());
+  }
+
+  @Test
+  public void testLocation() throws Exception {
+    final Location location = new Location(new BigDecimal("116.397128"),
+        new BigDecimal("39.916527"));
+    assertEquals(location, roundTrip(location));
+    final Location big = new Location(new BigDecimal("123456789012.1234567"),
+        new BigDecimal("-0.5"));
+    assertEquals(big, roundTrip(big));
+    assertEquals(new Location(), roundTrip(new Location()));
+  }
+
+  @Test
+  public void testEnvironment() throws Exception {
+    final Environment env = new Environment();
+    env.setIp("192.168.0.1");
+    env.setLocation(new Location(new BigDecimal("1.5"), new BigDecimal("-2.25")));
+    env.setPlatform(Platform.ANDROID);
+    env.setUdid("udid");
+    env.setPushToken("push-token");
+    assertEquals(env, roundTrip(env));
+    assertEquals(new Environment(), roundTrip(new Environment()));
+  }
+
+  @Test
+  public void testReadDefaultForms() throws Exception {
+    final Info info = new Info(1L, "code", "name");
+    info.setDeleteTime(Instant.ofEpochSecond(1700000000L, 123456789));
+    assertEquals(info, readDefaultForm(DEFAULT_FORM_OF_INFO));
+
+    final Token token = new Token("value");
+    token.setCreateTime(Instant.ofEpochSecond(1700000000L));
+    token.setMaxAge(3600L);
+    token.setPreviousValue("previous");
+    final Token actualToken = readDefaultForm(DEFAULT_FORM_OF_TOKEN);
+    assertEquals(token, actualToken);
+    assertEquals(1700003600L, actualToken.expiredEpochSecond());
+
+    final Location location = new Location(new BigDecimal("116.397128"),
+        new BigDecimal("39.916527"));
+    assertEquals(location, readDefaultForm(DEFAULT_FORM_OF_LOCATION));
+
+    final Environment env = new Environment();
+    env.setIp("192.168.0.1");
+    env.setLocation(new Location(new BigDecimal("1.5"), new BigDecimal("-2.25")));
+    env.setPlatform(Platform.ANDROID);
+    env.setUdid("udid");
+    env.setPushToken("push-token");
+    assertEquals(env, readDefaultForm(DEFAULT_FORM_OF_ENVIRONMENT));
+  }
+
+  @Test
+  public void testCompactFormsAreSmaller() throws Exception {
+    final Info info = new Info(1L, "code", "name");
+    info.setDeleteTime(Instant.ofEpochSecond(1700000000L, 123456789));
+    assertTrue(serializedSize(info)
+        < Base64.getDecoder().decode(DEFAULT_FORM_OF_INFO).length);
+    final Location location = new Location(new BigDecimal("116.397128"),
+        new BigDecimal("39.916527"));
+    assertTrue(serializedSize(location)
+        < Base64.getDecoder().decode(DEFAULT_FORM_OF_LOCATION).length);
+  }
+
+  @Test
+  public void testSubclass() throws Exception {
+    final SubInfo info = new SubInfo(1L, "code", "name");
+    info.extra = "extra";
+    final SubInfo actual = roundTrip(info);
+    assertEquals(info, actual);
+    assertEquals("extra", actual.extra);
+  }
+
+  private static final class SubInfo extends Info {
+    private static final long serialVersionUID = 1L;
+
+    private String extra;
+
+    SubInfo(final Long id, final String code, final String name) {
+      super(id, code, name);
+    }
+  }
+}
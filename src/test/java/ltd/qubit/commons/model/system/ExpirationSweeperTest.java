@@ -0,0 +1,166 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.system;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import ltd.qubit.commons.model.Expired;
+import ltd.qubit.commons.model.ExpiredReason;
+import ltd.qubit.commons.model.Token;
+import ltd.qubit.commons.model.util.HasClock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Unit test of the {@link ExpirationSweeper} class.
+ *
+ * @author Haixing Hu
+ */
+public class ExpirationSweeperTest {
+
+  private static final long START = 1_700_000_000L;
+
+  private static final class TestExpirable implements Expirable {
+    private final long expiredEpochSecond;
+    private Expired expired;
+
+    TestExpirable(final long expiredEpochSecond) {
+      this.expiredEpochSecond = expiredEpochSecond;
+    }
+
+    @Override
+    public Expired getExpired() {
+      return expired;
+    }
+
+    @Override
+    public void setExpired(final Expired expired) {
+      this.expired = expired;
+    }
+  }
+
+  private static Token token(final String value, final long expiredEpochSecond) {
+    final Token token = new Token(value);
+    token.setCreateTime(Instant.ofEpochSecond(START));
+    token.setMaxAge(expiredEpochSecond - START);
+    return token;
+  }
+
+  private static HasClock clockAt(final long epochSecond, final long millis) {
+    final Clock clock = Clock.fixed(
+        Instant.ofEpochSecond(epochSecond).plusMillis(millis), ZoneOffset.UTC);
+    return () -> clock;
+  }
+
+  @Test
+  public void testSweepTokensAtBoundarySecond() throws Exception {
+    final long now = START + 100;
+    final Token before = token("before", now - 1);
+    final Token at = token("at", now);
+    final Token after = token("after", now + 1);
+    final Token never = new Token("never");
+    never.setCreateTime(Instant.ofEpochSecond(START));
+    final List<Token> tokens = Arrays.asList(after, at, null, never, before);
+    // the fraction of the current second does not change the result
+    for (final long millis : new long[]{0, 999}) {
+      final ExpirationSweeper.Result<Token> result =
+          ExpirationSweeper.sweepTokens(tokens, clockAt(now, millis));
+      assertEquals(now, result.getNow());
+      assertEquals(List.of(after, never), result.getLive());
+      assertEquals(List.of(at, before), result.getExpired());
+    }
+    final ExpirationSweeper.Result<Token> result =
+        ExpirationSweeper.sweepTokens(tokens, clockAt(now - 1, 999));
+    assertEquals(List.of(after, at, never), result.getLive());
+    assertEquals(List.of(before), result.getExpired());
+  }
+
+  @Test
+  public void testSweepTokenStream() throws Exception {
+    final long now = START + 100;
+    final Token live = token("live", now + 1);
+    final Token expired = token("expired", now);
+    final ExpirationSweeper.Result<Token> result = ExpirationSweeper.sweepTokens(
+        Stream.of(expired, live), clockAt(now, 0));
+    assertEquals(List.of(live), result.getLive());
+    assertEquals(List.of(expired), result.getExpired());
+  }
+
+  @Test
+  public void testSweepExpirable() throws Exception {
+    final long now = START + 100;
+    final TestExpirable before = new TestExpirable(now - 1);
+    final TestExpirable at = new TestExpirable(now);
+    final TestExpirable after = new TestExpirable(now + 1);
+    final TestExpirable never = new TestExpirable(Long.MAX_VALUE);
+    final TestExpirable marked = new TestExpirable(Long.MAX_VALUE);
+    final Expired logout = new Expired(Instant.ofEpochSecond(START),
+        ExpiredReason.LOGOUT);
+    marked.setExpired(logout);
+    final ExpirationSweeper.Result<TestExpirable> result =
+        ExpirationSweeper.sweepExpirable(
+            new LinkedHashSet<>(List.of(before, at, after, never, marked)),
+            (obj) -> obj.expiredEpochSecond, clockAt(now, 500));
+    assertEquals(List.of(after, never), result.getLive());
+    assertEquals(List.of(before, at, marked), result.getExpired());
+    assertEquals(new Expired(Instant.ofEpochSecond(now - 1), ExpiredReason.TIMEOUT),
+        before.getExpired());
+    assertEquals(new Expired(Instant.ofEpochSecond(now), ExpiredReason.TIMEOUT),
+        at.getExpired());
+    assertNull(after.getExpired());
+    assertNull(never.getExpired());
+    assertSame(logout, marked.getExpired());
+  }
+
+  @Test
+  public void testParallelThreshold() throws Exception {
+    final long now = START + 10_000;
+    final List<Token> tokens = new ArrayList<>();
+    for (int i = 0; i < 5000; ++i) {
+      tokens.add(i % 7 == 0 ? null : token("t" + i, now - 2500 + i));
+    }
+    final List<Token> live = new ArrayList<>();
+    final List<Token> expired = new ArrayList<>();
+    for (final Token token : tokens) {
+      if (token != null) {
+        (token.isExpired(now) ? expired : live).add(token);
+      }
+    }
+    for (final int threshold : new int[]{0, 4999, 5000, Integer.MAX_VALUE}) {
+      final ExpirationSweeper.Result<Token> result =
+          ExpirationSweeper.sweepTokens(tokens, clockAt(now, 0), threshold);
+      assertEquals(live, result.getLive());
+      assertEquals(expired, result.getExpired());
+    }
+    // a batch not larger than the threshold is evaluated in the current thread
+    final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    final List<TestExpirable> objects = new ArrayList<>();
+    for (int i = 0; i < 5000; ++i) {
+      objects.add(new TestExpirable(now + 1));
+    }
+    ExpirationSweeper.sweepExpirable(objects, (obj) -> {
+      threads.add(Thread.currentThread());
+      return obj.expiredEpochSecond;
+    }, clockAt(now, 0), 5000);
+    assertEquals(Set.of(Thread.currentThread()), threads);
+  }
+}
@@ -0,0 +1,177 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.system;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ltd.qubit.commons.model.Expired;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test of the {@link ExpirationWheel} class.
+ *
+ * @author Haixing Hu
+ */
+public class ExpirationWheelTest {
+
+  private static final long START = 1_700_000_000L;
+
+  private static final class TestExpirable implements Expirable {
+    private Expired expired;
+
+    @Override
+    public Expired getExpired() {
+      return expired;
+    }
+
+    @Override
+    public void setExpired(final Expired expired) {
+      this.expired = expired;
+    }
+  }
+
+  private static ExpirationWheel<String> wheel(final List<String> fired) {
+    final TokenStoreTest.ManualClock clock = new TokenStoreTest.ManualClock(START);
+    return new ExpirationWheel<>(clock, (obj, time) -> fired.add(obj));
+  }
+
+  @Test
+  public void testFireInFirstLevel() throws Exception {
+    final List<String> fired = new ArrayList<>();
+    final ExpirationWheel<String> wheel = wheel(fired);
+    wheel.schedule("b", START + 2);
+    wheel.schedule("a", START + 1);
+    wheel.schedule("past", START - 100);
+    assertEquals(3, wheel.size());
+    assertEquals(0, wheel.advance(START));
+    assertEquals(2, wheel.advance(START + 1));
+    assertEquals(List.of("a", "past"), fired);
+    assertEquals(1, wheel.advance(START + 2));
+    assertEquals(List.of("a", "past", "b"), fired);
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testCascadeAcrossLevels() throws Exception {
+    final List<String> fired = new ArrayList<>();
+    final ExpirationWheel<String> wheel = wheel(fired);
+    // the distances fall in the first, second, third, fourth and last levels
+    final long[] distances = {
+        255, 256, 300, 256L * 64 - 1, 256L * 64, 256L * 64 * 64 + 17,
+        256L * 64 * 64 * 64 + 5, 256L * 64 * 64 * 64 * 64 + 1,
+    };
+    for (final long distance : distances) {
+      wheel.schedule(String.valueOf(distance), START + distance);
+    }
+    for (final long distance : distances) {
+      fired.clear();
+      assertEquals(0, wheel.advance(START + distance - 1));
+      assertEquals(List.of(), fired);
+      assertEquals(1, wheel.advance(START + distance));
+      assertEquals(List.of(String.valueOf(distance)), fired);
+    }
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testRandomSchedule() throws Exception {
+    final Random random = new Random(12345);
+    final List<String> fired = new ArrayList<>();
+    final ExpirationWheel<String> wheel = wheel(fired);
+    final Map<String, Long> expected = new HashMap<>();
+    long now = START;
+    for (int round = 0; round < 200; ++round) {
+      for (int i = 0; i < 20; ++i) {
+        final int bits = 1 + random.nextInt(34);
+        final long expiry = now + 1 + (random.nextLong() & ((1L << bits) - 1));
+        final String name = round + ":" + i;
+        wheel.schedule(name, expiry);
+        expected.put(name, expiry);
+      }
+      now += (random.nextLong() & ((1L << (1 + random.nextInt(30))) - 1));
+      fired.clear();
+      wheel.advance(now);
+      for (final String name : fired) {
+        final long expiry = expected.remove(name);
+        assertTrue(expiry <= now, name);
+      }
+      for (final long expiry : expected.values()) {
+        assertTrue(expiry > now);
+      }
+      assertEquals(expected.size(), wheel.size());
+    }
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    final List<String> fired = new ArrayList<>();
+    final ExpirationWheel<String> wheel = wheel(fired);
+    final ExpirationWheel.Entry<String> a = wheel.schedule("a", START + 10);
+    final ExpirationWheel.Entry<String> b = wheel.schedule("b", START + 1000);
+    wheel.schedule("c", START + 1000);
+    assertTrue(wheel.cancel(a));
+    assertFalse(wheel.cancel(a));
+    assertTrue(wheel.cancel(b));
+    assertEquals(1, wheel.size());
+    assertEquals(1, wheel.advance(START + 1000));
+    assertEquals(List.of("c"), fired);
+  }
+
+  @Test
+  public void testThrowingListener() throws Exception {
+    final List<String> fired = new ArrayList<>();
+    final ExpirationWheel<String> wheel = new ExpirationWheel<>(
+        new TokenStoreTest.ManualClock(START), (obj, time) -> {
+          fired.add(obj);
+          if (obj.startsWith("error")) {
+            throw new AssertionError(obj);
+          } else if (obj.startsWith("exception")) {
+            throw new IllegalStateException(obj);
+          }
+        });
+    wheel.schedule("error", START + 1);
+    wheel.schedule("ok1", START + 1);
+    wheel.schedule("exception", START + 1);
+    wheel.schedule("ok2", START + 1);
+    final AssertionError error = assertThrows(AssertionError.class,
+        () -> wheel.advance(START + 1));
+    assertEquals("error", error.getMessage());
+    assertEquals(1, error.getSuppressed().length);
+    assertSame(IllegalStateException.class, error.getSuppressed()[0].getClass());
+    assertEquals(List.of("error", "ok1", "exception", "ok2"), fired);
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testExpirableWheel() throws Exception {
+    final List<Instant> fired = new ArrayList<>();
+    final TokenStoreTest.ManualClock clock = new TokenStoreTest.ManualClock(START);
+    final ExpirationWheel<TestExpirable> wheel = ExpirationWheel.ofExpirable(
+        clock, (obj) -> fired.add(obj.getExpired().getTime()));
+    final TestExpirable obj = new TestExpirable();
+    wheel.schedule(obj, Instant.ofEpochSecond(START + 5, 1));
+    clock.advance(5);
+    assertEquals(0, wheel.advance());
+    clock.advance(1);
+    assertEquals(1, wheel.advance());
+    assertEquals(List.of(Instant.ofEpochSecond(START + 6)), fired);
+  }
+}
@@ -0,0 +1,179 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.system;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import ltd.qubit.commons.model.Token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test of the {@link TokenStore} class.
+ *
+ * @author Haixing Hu
+ */
+public class TokenStoreTest {
+
+  /**
+   * A clock whose time is advanced manually.
+   */
+  static final class ManualClock extends Clock {
+    private volatile long millis;
+
+    ManualClock(final long epochSecond) {
+      this.millis = epochSecond * 1000L;
+    }
+
+    void advance(final long seconds) {
+      millis += seconds * 1000L;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+  }
+
+  private static Token token(final Clock clock, final String value,
+      final long maxAge) {
+    final Token token = new Token(value);
+    token.setCreateTime(clock.instant());
+    token.setMaxAge(maxAge);
+    return token;
+  }
+
+  @Test
+  public void testPutAndGet() throws Exception {
+    final ManualClock clock = new ManualClock(1_700_000_000L);
+    final TokenStore store = new TokenStore(clock);
+    store.put(token(clock, "a", 100));
+    assertEquals("a", store.get("a").getValue());
+    assertNull(store.get("b"));
+    clock.advance(99);
+    assertNotNull(store.get("a"));
+    clock.advance(1);
+    assertNull(store.get("a"));
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  public void testReturnedTokensAreCopies() throws Exception {
+    final ManualClock clock = new ManualClock(1_700_000_000L);
+    final TokenStore store = new TokenStore(clock);
+    final Token stored = store.put(token(clock, "a", 100));
+    stored.setValue("x");
+    stored.setMaxAge(1L);
+    final Token found = store.get("a");
+    found.setValue("y");
+    assertEquals("a", store.get("a").getValue());
+    assertEquals(Long.valueOf(100L), store.get("a").getMaxAge());
+    assertNull(store.get("x"));
+    assertNull(store.get("y"));
+  }
+
+  @Test
+  public void testRotate() throws Exception {
+    final ManualClock clock = new ManualClock(1_700_000_000L);
+    final TokenStore store = new TokenStore(clock, 10);
+    store.put(token(clock, "a", 100));
+    clock.advance(50);
+    final Token rotated = store.rotate("a", "b");
+    assertEquals("b", rotated.getValue());
+    assertEquals("a", rotated.getPreviousValue());
+    assertEquals(clock.instant(), rotated.getCreateTime());
+    assertNull(store.get("a"));
+    assertEquals("b", store.get("b").getValue());
+    assertEquals("b", store.getByPreviousValue("a").getValue());
+    assertEquals("b", store.find("a").getValue());
+    assertEquals("b", store.find("b").getValue());
+    assertEquals(1, store.size());
+    // rotating again retires the old previous value at once
+    final Token again = store.rotate("b", "c");
+    assertEquals("b", again.getPreviousValue());
+    assertNull(store.getByPreviousValue("a"));
+    assertNull(store.find("a"));
+    assertEquals("c", store.find("b").getValue());
+    // the old value could not be rotated any more
+    assertNull(store.rotate("a", "d"));
+  }
+
+  @Test
+  public void testRotateRejectsInvalidValues() throws Exception {
+    final ManualClock clock = new ManualClock(1_700_000_000L);
+    final TokenStore store = new TokenStore(clock);
+    store.put(token(clock, "a", 100));
+    store.put(token(clock, "b", 100));
+    assertThrows(IllegalArgumentException.class, () -> store.rotate("a", "a"));
+    assertThrows(IllegalStateException.class, () -> store.rotate("a", "b"));
+    assertThrows(IllegalArgumentException.class, () -> store.rotate("a", "c", -1));
+    assertEquals("a", store.get("a").getValue());
+  }
+
+  @Test
+  public void testGracePeriodOfPreviousValue() throws Exception {
+    final ManualClock clock = new ManualClock(1_700_000_000L);
+    final TokenStore store = new TokenStore(clock, 10);
+    store.put(token(clock, "a", 3600));
+    store.rotate("a", "b");
+    clock.advance(9);
+    assertEquals("b", store.find("a").getValue());
+    clock.advance(1);
+    assertNull(store.getByPreviousValue("a"));
+    assertNull(store.find("a"));
+    assertEquals("b", store.find("b").getValue());
+    // a per-rotation grace period overrides the default one
+    store.rotate("b", "c", 0);
+    assertNull(store.getByPreviousValue("b"));
+    assertEquals("c", store.get("c").getValue());
+  }
+
+  @Test
+  public void testEvictExpired() throws Exception {
+    final ManualClock clock = new ManualClock(1_700_000_000L);
+    final TokenStore store = new TokenStore(clock, 100);
+    store.put(token(clock, "a", 10));
+    store.put(token(clock, "x", 1000));
+    store.rotate("a", "b");
+    clock.advance(10);
+    assertEquals(1, store.evictExpired());
+    assertEquals(1, store.size());
+    assertNull(store.get("b"));
+    assertNull(store.getByPreviousValue("a"));
+    assertNull(store.find("a"));
+    assertEquals("x", store.get("x").getValue());
+    // a new token could reuse the values of the evicted one
+    store.put(token(clock, "b", 10));
+    assertEquals("b", store.get("b").getValue());
+    assertNull(store.getByPreviousValue("a"));
+  }
+}
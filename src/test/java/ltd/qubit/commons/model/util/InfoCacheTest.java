@@ -0,0 +1,183 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test of the {@link InfoCache} class.
+ *
+ * @author Haixing Hu
+ */
+public class InfoCacheTest {
+
+  /**
+   * A loader whose loads block until released, and whose results are built
+   * from the names assigned to the IDs when the loads start.
+   */
+  private static final class BlockingLoader implements InfoLoader {
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    volatile CountDownLatch gate = new CountDownLatch(0);
+    final Map<Long, String> names = new HashMap<>();
+
+    @Override
+    public Map<Long, Info> loadByIds(final Collection<Long> ids) {
+      calls.incrementAndGet();
+      final Map<Long, Info> result = new HashMap<>();
+      synchronized (names) {
+        for (final Long id : ids) {
+          final String name = names.get(id);
+          if (name != null) {
+            result.put(id, new Info(id, "c" + id, name));
+          }
+        }
+      }
+      started.countDown();
+      try {
+        assertTrue(gate.await(10, TimeUnit.SECONDS));
+      } catch (final InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return result;
+    }
+
+    @Override
+    public Map<String, Info> loadByCodes(final Collection<String> codes) {
+      final List<Long> ids = new ArrayList<>();
+      for (final String code : codes) {
+        ids.add(Long.valueOf(code.substring(1)));
+      }
+      final Map<String, Info> result = new HashMap<>();
+      for (final Info info : loadByIds(ids).values()) {
+        result.put(info.getCode(), info);
+      }
+      return result;
+    }
+
+    void setName(final long id, final String name) {
+      synchronized (names) {
+        names.put(id, name);
+      }
+    }
+  }
+
+  @Test
+  public void testGetAndGetAll() throws Exception {
+    final BlockingLoader loader = new BlockingLoader();
+    loader.setName(1L, "a");
+    loader.setName(2L, "b");
+    final InfoCache cache = new InfoCache(loader, 10);
+    assertEquals("a", cache.get(1L).getName());
+    assertEquals("a", cache.getByCode("c1").getName());
+    assertEquals(1, loader.calls.get());
+    final Map<Long, Info> all = cache.getAll(List.of(2L, 1L, 3L));
+    assertEquals(List.of(2L, 1L), new ArrayList<>(all.keySet()));
+    assertEquals(2, loader.calls.get());
+    assertNull(cache.get(3L));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testSingleFlightLoad() throws Exception {
+    final BlockingLoader loader = new BlockingLoader();
+    loader.setName(1L, "a");
+    loader.gate = new CountDownLatch(1);
+    final InfoCache cache = new InfoCache(loader, 10);
+    final int threads = 8;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<Info>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; ++i) {
+        futures.add(executor.submit(() -> cache.get(1L)));
+      }
+      assertTrue(loader.started.await(10, TimeUnit.SECONDS));
+      Thread.sleep(100);      // lets the other threads join the load
+      loader.gate.countDown();
+      for (final Future<Info> future : futures) {
+        assertEquals("a", future.get(10, TimeUnit.SECONDS).getName());
+      }
+      assertEquals(1, loader.calls.get());
+      assertEquals(1L, cache.getLoadCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testInvalidateDuringLoad() throws Exception {
+    final BlockingLoader loader = new BlockingLoader();
+    loader.setName(1L, "old");
+    loader.gate = new CountDownLatch(1);
+    final InfoCache cache = new InfoCache(loader, 10);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<Info> slow = executor.submit(() -> cache.get(1L));
+      assertTrue(loader.started.await(10, TimeUnit.SECONDS));
+      loader.setName(1L, "new");
+      cache.invalidate(1L);
+      loader.gate.countDown();
+      // the slow load returns its own result, but does not cache it
+      assertEquals("old", slow.get(10, TimeUnit.SECONDS).getName());
+      assertEquals(0, cache.size());
+      assertEquals("new", cache.get(1L).getName());
+      assertEquals(2, loader.calls.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPutDuringLoad() throws Exception {
+    final BlockingLoader loader = new BlockingLoader();
+    loader.setName(1L, "old");
+    loader.gate = new CountDownLatch(1);
+    final InfoCache cache = new InfoCache(loader, 10);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<Info> slow = executor.submit(() -> cache.getByCode("c1"));
+      assertTrue(loader.started.await(10, TimeUnit.SECONDS));
+      cache.put(new Info(1L, "c1", "new"));
+      loader.gate.countDown();
+      assertEquals("old", slow.get(10, TimeUnit.SECONDS).getName());
+      assertEquals("new", cache.get(1L).getName());
+      assertEquals("new", cache.getByCode("c1").getName());
+      assertEquals(1, loader.calls.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    final BlockingLoader loader = new BlockingLoader();
+    final InfoCache cache = new InfoCache(loader, 4);
+    for (long id = 1; id <= 20; ++id) {
+      cache.put(new Info(id, "c" + id, "n" + id));
+    }
+    assertEquals(4, cache.size());
+    assertEquals(16L, cache.getEvictionCount());
+  }
+}
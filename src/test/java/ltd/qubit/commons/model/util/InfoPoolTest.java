@@ -0,0 +1,86 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test of the {@link InfoPool} class.
+ *
+ * @author Haixing Hu
+ */
+public class InfoPoolTest {
+
+  private static final class WithoutClone extends Info {
+    private static final long serialVersionUID = 1L;
+
+    WithoutClone(final Long id) {
+      super(id);
+    }
+  }
+
+  @Test
+  public void testIntern() throws Exception {
+    final InfoPool pool = new InfoPool();
+    assertNull(pool.intern(null));
+    final Info info = new Info(1L, "code", "name");
+    final Info canonical = pool.intern(info);
+    assertNotSame(info, canonical);
+    assertEquals(info, canonical);
+    assertSame(canonical, pool.intern(new Info(1L, "code", "name")));
+    assertSame(canonical, pool.intern(canonical));
+    assertNotSame(canonical, pool.intern(new Info(1L, "code", "other")));
+    assertEquals(2, pool.size());
+    pool.clear();
+    assertEquals(0, pool.size());
+  }
+
+  @Test
+  public void testCanonicalInstanceIsReadOnly() throws Exception {
+    final InfoPool pool = new InfoPool();
+    final Info info = new Info(1L, "code", "name");
+    final Info canonical = pool.intern(info);
+    assertTrue(canonical.isFrozen());
+    assertThrows(UnsupportedOperationException.class, () -> canonical.setId(2L));
+    assertThrows(UnsupportedOperationException.class, () -> canonical.setCode("x"));
+    assertThrows(UnsupportedOperationException.class, () -> canonical.setName("x"));
+    assertThrows(UnsupportedOperationException.class,
+        () -> canonical.setDeleteTime(Instant.ofEpochSecond(1700000000L)));
+    assertThrows(UnsupportedOperationException.class,
+        () -> canonical.assign(new Info(2L)));
+    assertThrows(UnsupportedOperationException.class, canonical::normalize);
+    assertEquals(new Info(1L, "code", "name"), canonical);
+    // the interned object and the copies of the canonical instance stay modifiable
+    assertFalse(info.isFrozen());
+    info.setName("renamed");
+    assertEquals("name", canonical.getName());
+    final Info copy = canonical.clone();
+    assertFalse(copy.isFrozen());
+    copy.setName("renamed");
+    assertEquals("renamed", copy.getName());
+    assertSame(canonical, pool.intern(new Info(1L, "code", "name")));
+  }
+
+  @Test
+  public void testSubclassWithoutClone() throws Exception {
+    final InfoPool pool = new InfoPool();
+    assertThrows(IllegalArgumentException.class,
+        () -> pool.intern(new WithoutClone(1L)));
+  }
+}
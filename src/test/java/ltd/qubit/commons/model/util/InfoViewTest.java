@@ -0,0 +1,130 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import ltd.qubit.commons.model.WithCode;
+import ltd.qubit.commons.model.WithName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test of the {@link InfoView} class.
+ *
+ * @author Haixing Hu
+ */
+public class InfoViewTest {
+
+  private static class IdOnly implements HasInfo {
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    IdOnly(final Long id) {
+      this.id = id;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public void setId(final Long id) {
+      this.id = id;
+    }
+  }
+
+  private static final class Full extends IdOnly implements WithCode, WithName,
+      Deletable {
+    private static final long serialVersionUID = 1L;
+
+    private String code;
+    private String name;
+    private Instant deleteTime;
+
+    Full(final Long id, final String code, final String name) {
+      super(id);
+      this.code = code;
+      this.name = name;
+    }
+
+    @Override
+    public String getCode() {
+      return code;
+    }
+
+    @Override
+    public void setCode(final String code) {
+      this.code = code;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public void setName(final String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Instant getDeleteTime() {
+      return deleteTime;
+    }
+
+    @Override
+    public void setDeleteTime(final Instant deleteTime) {
+      this.deleteTime = deleteTime;
+    }
+  }
+
+  @Test
+  public void testReadThroughBoundObject() throws Exception {
+    final Full full = new Full(1L, "code", "name");
+    final InfoView view = new InfoView(full);
+    assertSame(full, view.getObject());
+    assertEquals(Long.valueOf(1L), view.getId());
+    assertEquals("code", view.getCode());
+    assertEquals("name", view.getName());
+    assertFalse(view.isDeleted());
+    // the view is backed by the object, not a copy of it
+    full.setName("renamed");
+    full.setDeleteTime(Instant.ofEpochSecond(1700000000L));
+    assertEquals("renamed", view.getName());
+    assertTrue(view.isDeleted());
+    assertEquals(full.getInfo(), view.toInfo());
+  }
+
+  @Test
+  public void testRebindToAnotherClass() throws Exception {
+    final InfoView view = new InfoView();
+    assertNull(view.getObject());
+    view.bind(new Full(1L, "code", "name"));
+    assertEquals("code", view.getCode());
+    view.bind(new IdOnly(2L));
+    assertEquals(Long.valueOf(2L), view.getId());
+    assertNull(view.getCode());
+    assertNull(view.getName());
+    assertNull(view.getDeleteTime());
+    assertEquals(new Info(2L), view.toInfo());
+    view.bind(new Full(3L, "c3", "n3"));
+    assertEquals("c3", view.getCode());
+    assertEquals("n3", view.getName());
+    assertEquals(new Info(3L, "c3", "n3"), view.toInfo());
+  }
+}
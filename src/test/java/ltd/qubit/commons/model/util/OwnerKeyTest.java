@@ -0,0 +1,142 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test of the {@link OwnerKey} class.
+ *
+ * @author Haixing Hu
+ */
+public class OwnerKeyTest {
+
+  private static final long[] IDS = {
+      Long.MIN_VALUE, Long.MIN_VALUE + 1, -1L << 32, -2, -1, 0, 1, 2,
+      1L << 32, Long.MAX_VALUE - 1, Long.MAX_VALUE,
+  };
+
+  private static int compareBytes(final byte[] x, final byte[] y) {
+    for (int i = 0; i < x.length; ++i) {
+      final int result = Integer.compare(x[i] & 0xFF, y[i] & 0xFF);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return Integer.compare(x.length, y.length);
+  }
+
+  @Test
+  public void testFields() throws Exception {
+    for (final long id : IDS) {
+      final OwnerKey key = OwnerKey.of("OWNER_KEY_TEST", id, "AVATAR");
+      assertEquals("OWNER_KEY_TEST", key.getType());
+      assertEquals(id, key.getId());
+      assertEquals("AVATAR", key.getProperty());
+      assertEquals(Owner.of("OWNER_KEY_TEST", id, "AVATAR"), key.toOwner());
+      assertEquals(key, Owner.of("OWNER_KEY_TEST", id, "AVATAR").toKey());
+      final OwnerKey noProperty = OwnerKey.of("OWNER_KEY_TEST", id, null);
+      assertNull(noProperty.getProperty());
+      assertNotEquals(key, noProperty);
+    }
+  }
+
+  @Test
+  public void testOrderWithNegativeIds() throws Exception {
+    final List<OwnerKey> keys = new ArrayList<>();
+    for (final long id : IDS) {
+      keys.add(OwnerKey.of("OWNER_KEY_TEST", id, null));
+      keys.add(OwnerKey.of("OWNER_KEY_TEST", id, "AVATAR"));
+    }
+    // the IDs are ordered as signed numbers, and the null property first
+    for (int i = 1; i < keys.size(); ++i) {
+      final OwnerKey x = keys.get(i - 1);
+      final OwnerKey y = keys.get(i);
+      assertTrue(x.compareTo(y) < 0, x + " < " + y);
+      assertTrue(y.compareTo(x) > 0, y + " > " + x);
+      assertTrue(compareBytes(x.toBytes(), y.toBytes()) < 0, x + " < " + y);
+    }
+  }
+
+  @Test
+  public void testBytesRoundTrip() throws Exception {
+    for (final long id : IDS) {
+      for (final String property : new String[]{null, "AVATAR", "NAME"}) {
+        final OwnerKey key = OwnerKey.of("OWNER_KEY_TEST", id, property);
+        final byte[] bytes = key.toBytes();
+        assertEquals(OwnerKey.BYTES, bytes.length);
+        final OwnerKey decoded = OwnerKey.fromBytes(bytes);
+        assertEquals(key, decoded);
+        assertEquals(key.hashCode(), decoded.hashCode());
+        assertEquals(0, key.compareTo(decoded));
+        assertEquals(property, decoded.getProperty());
+      }
+    }
+    assertThrows(IllegalArgumentException.class,
+        () -> OwnerKey.fromBytes(new byte[OwnerKey.BYTES - 1]));
+    // the ordinal 0 of the types is never interned
+    assertThrows(IllegalArgumentException.class,
+        () -> OwnerKey.fromBytes(new byte[OwnerKey.BYTES]));
+    final byte[] unknown = OwnerKey.of("OWNER_KEY_TEST", 1, null).toBytes();
+    unknown[0] = (byte) 0x7F;
+    assertThrows(IllegalArgumentException.class, () -> OwnerKey.fromBytes(unknown));
+  }
+
+  @Test
+  public void testBounds() throws Exception {
+    final NavigableMap<OwnerKey, String> map = new TreeMap<>();
+    for (final String type : new String[]{"OWNER_KEY_A", "OWNER_KEY_B"}) {
+      for (final long id : IDS) {
+        map.put(OwnerKey.of(type, id, null), type + "/" + id);
+        map.put(OwnerKey.of(type, id, "AVATAR"), type + "/" + id + "/AVATAR");
+      }
+    }
+    assertEquals(2 * IDS.length, map.subMap(OwnerKey.lowerBound("OWNER_KEY_A"),
+        true, OwnerKey.upperBound("OWNER_KEY_A"), true).size());
+    for (final String value : map.subMap(OwnerKey.lowerBound("OWNER_KEY_B"), true,
+        OwnerKey.upperBound("OWNER_KEY_B"), true).values()) {
+      assertTrue(value.startsWith("OWNER_KEY_B/"), value);
+    }
+    for (final long id : IDS) {
+      assertEquals(List.of("OWNER_KEY_A/" + id, "OWNER_KEY_A/" + id + "/AVATAR"),
+          new ArrayList<>(map.subMap(OwnerKey.lowerBound("OWNER_KEY_A", id), true,
+              OwnerKey.upperBound("OWNER_KEY_A", id), true).values()));
+    }
+  }
+
+  @Test
+  public void testBoundsOfUnknownType() throws Exception {
+    final NavigableMap<OwnerKey, String> map = new TreeMap<>();
+    map.put(OwnerKey.of("OWNER_KEY_C", Long.MIN_VALUE, null), "min");
+    map.put(OwnerKey.of("OWNER_KEY_C", Long.MAX_VALUE, "AVATAR"), "max");
+    final OwnerKey lower = OwnerKey.lowerBound("OWNER_KEY_NEVER_INTERNED");
+    final OwnerKey upper = OwnerKey.upperBound("OWNER_KEY_NEVER_INTERNED");
+    assertTrue(lower.compareTo(upper) < 0);
+    assertTrue(map.subMap(lower, true, upper, true).isEmpty());
+    assertTrue(map.subMap(OwnerKey.lowerBound("OWNER_KEY_NEVER_INTERNED", 0), true,
+        OwnerKey.upperBound("OWNER_KEY_NEVER_INTERNED", 0), true).isEmpty());
+    // the bounds did not intern the type
+    assertThrows(IllegalArgumentException.class, lower::getType);
+    final OwnerKey key = OwnerKey.of("OWNER_KEY_NEVER_INTERNED", 1, null);
+    assertNotEquals(lower, OwnerKey.lowerBound("OWNER_KEY_NEVER_INTERNED"));
+    assertTrue(OwnerKey.lowerBound("OWNER_KEY_NEVER_INTERNED").compareTo(key) < 0);
+    assertTrue(OwnerKey.upperBound("OWNER_KEY_NEVER_INTERNED").compareTo(key) > 0);
+  }
+}
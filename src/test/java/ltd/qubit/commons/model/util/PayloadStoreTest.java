@@ -0,0 +1,159 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.model.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test of the {@link PayloadStore} class.
+ *
+ * @author Haixing Hu
+ */
+public class PayloadStoreTest {
+
+  private static Payload payload(final String type, final Long id,
+      final String property, final String key) {
+    final Payload payload = new Payload();
+    payload.setOwner(Owner.of(type, id, property));
+    payload.setKey(key);
+    payload.setValue(type + "/" + id + "/" + property + "/" + key);
+    return payload;
+  }
+
+  private static List<String> values(final Collection<Payload> payloads) {
+    final List<String> result = new ArrayList<>();
+    for (final Payload payload : payloads) {
+      result.add(payload.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * Creates a store whose payloads are put in a shuffled order.
+   */
+  private static PayloadStore createStore() {
+    final PayloadStore store = new PayloadStore();
+    store.putAll(List.of(
+        payload("USER", 2L, "AVATAR", "b"),
+        payload("USER", 1L, null, "x"),
+        payload("USER", -1L, null, "x"),
+        payload("ORDER", 1L, null, "x"),
+        payload("USER", 2L, null, "a"),
+        payload("USER", 2L, "AVATAR", "a"),
+        payload("USER", null, null, "x"),
+        payload("USER", 2L, "NAME", "a"),
+        payload("USERS", 1L, null, "x"),
+        payload("USER", 3L, null, "x"),
+        payload("USER", 2L, null, "b")));
+    return store;
+  }
+
+  @Test
+  public void testGetPutAndRemove() throws Exception {
+    final PayloadStore store = createStore();
+    assertEquals(11, store.size());
+    final Owner owner = Owner.of("USER", 2L, "AVATAR");
+    assertEquals("USER/2/AVATAR/a", store.get(owner, "a").getValue());
+    assertNull(store.get(owner, "c"));
+    assertNull(store.get(Owner.of("USER", 2L, null), "c"));
+    final Payload payload = payload("USER", 2L, "AVATAR", "a");
+    payload.setValue("new");
+    assertEquals("USER/2/AVATAR/a", store.put(payload).getValue());
+    // the store keeps a copy of the payload
+    payload.setValue("changed");
+    assertEquals("new", store.get(owner, "a").getValue());
+    assertEquals("new", store.remove(owner, "a").getValue());
+    assertNull(store.remove(owner, "a"));
+    assertEquals(10, store.size());
+    assertThrows(NullPointerException.class, () -> store.put(new Payload()));
+  }
+
+  @Test
+  public void testScanType() throws Exception {
+    final PayloadStore store = createStore();
+    assertEquals(List.of(
+        "USER/null/null/x",
+        "USER/-1/null/x",
+        "USER/1/null/x",
+        "USER/2/null/a",
+        "USER/2/null/b",
+        "USER/2/AVATAR/a",
+        "USER/2/AVATAR/b",
+        "USER/2/NAME/a",
+        "USER/3/null/x"), values(store.scan("USER")));
+    assertEquals(List.of("ORDER/1/null/x"), values(store.scan("ORDER")));
+    assertEquals(List.of("USERS/1/null/x"), values(store.scan("USERS")));
+    assertEquals(List.of(), values(store.scan("USE")));
+    assertEquals(List.of(), values(store.scan("ZZZ")));
+  }
+
+  @Test
+  public void testScanTypeAndId() throws Exception {
+    final PayloadStore store = createStore();
+    assertEquals(List.of(
+        "USER/2/null/a",
+        "USER/2/null/b",
+        "USER/2/AVATAR/a",
+        "USER/2/AVATAR/b",
+        "USER/2/NAME/a"), values(store.scan("USER", 2L)));
+    assertEquals(List.of("USER/-1/null/x"), values(store.scan("USER", -1L)));
+    assertEquals(List.of("USER/null/null/x"), values(store.scan("USER", null)));
+    assertEquals(List.of(), values(store.scan("USER", 4L)));
+    assertEquals(List.of(), values(store.scan("ORDER", 2L)));
+  }
+
+  @Test
+  public void testScanTypeIdAndProperty() throws Exception {
+    final PayloadStore store = createStore();
+    assertEquals(List.of("USER/2/AVATAR/a", "USER/2/AVATAR/b"),
+        values(store.scan("USER", 2L, "AVATAR")));
+    assertEquals(List.of("USER/2/NAME/a"),
+        values(store.scan(Owner.of("USER", 2L, "NAME"))));
+    // the null property only matches the payloads attached to the owner itself
+    assertEquals(List.of("USER/2/null/a", "USER/2/null/b"),
+        values(store.scan("USER", 2L, null)));
+    assertEquals(List.of("USER/null/null/x"),
+        values(store.scan("USER", null, null)));
+    assertEquals(List.of(), values(store.scan("USER", 2L, "AGE")));
+    assertEquals(List.of(), values(store.scan("USER", 1L, "AVATAR")));
+  }
+
+  @Test
+  public void testScanIsUnmodifiableView() throws Exception {
+    final PayloadStore store = createStore();
+    final Collection<Payload> view = store.scan("USER", 2L, "AVATAR");
+    assertThrows(UnsupportedOperationException.class, view::clear);
+    store.put(payload("USER", 2L, "AVATAR", "c"));
+    assertEquals(3, view.size());
+  }
+
+  @Test
+  public void testRemoveAllAndSnapshot() throws Exception {
+    final PayloadStore store = createStore();
+    assertEquals(2, store.removeAll(Owner.of("USER", 2L, null)));
+    assertEquals(0, store.removeAll(Owner.of("USER", 2L, null)));
+    assertEquals(List.of("USER/2/AVATAR/a", "USER/2/AVATAR/b", "USER/2/NAME/a"),
+        values(store.scan("USER", 2L)));
+    final List<Payload> snapshot = store.snapshot();
+    assertEquals(9, snapshot.size());
+    assertEquals("ORDER/1/null/x", snapshot.get(0).getValue());
+    assertEquals("USERS/1/null/x", snapshot.get(8).getValue());
+    store.clear();
+    assertEquals(0, store.size());
+    assertEquals(9, snapshot.size());
+  }
+}
@@ -0,0 +1,55 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.text.jackson.deserializer;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Test;
+
+import ltd.qubit.commons.model.Location;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit test of the {@link LocationDeserializer} class.
+ *
+ * @author Haixing Hu
+ */
+public class LocationDeserializerTest {
+
+  private final ObjectMapper mapper = new ObjectMapper()
+      .registerModule(new SimpleModule()
+          .addDeserializer(Location.class, new LocationDeserializer()));
+
+  private Location read(final String json) throws Exception {
+    return mapper.readValue(json, Location.class);
+  }
+
+  @Test
+  public void testDecimalNumbers() throws Exception {
+    final Location expected = new Location(new BigDecimal("116.397128"),
+        new BigDecimal("39.916527"));
+    assertEquals(expected,
+        read("{\"longitude\":116.397128,\"latitude\":39.916527}"));
+    assertEquals(expected, read("[116.397128,39.916527]"));
+    assertEquals(expected, read("\"116.397128,39.916527\""));
+  }
+
+  @Test
+  public void testExponentNumbers() throws Exception {
+    final Location expected = new Location(new BigDecimal("116.000000"),
+        new BigDecimal("100.000000"));
+    assertEquals(expected, read("{\"longitude\":1.16e2,\"latitude\":1E+2}"));
+    assertEquals(expected, read("[1.16E2,1e2]"));
+    assertEquals(new Location(new BigDecimal("0.001234"),
+        new BigDecimal("-39.916527")), read("[1.234e-3,-3.9916527E1]"));
+  }
+}
@@ -0,0 +1,232 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.util.codec;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.Test;
+
+import ltd.qubit.commons.model.Environment;
+import ltd.qubit.commons.model.Expired;
+import ltd.qubit.commons.model.ExpiredReason;
+import ltd.qubit.commons.model.Location;
+import ltd.qubit.commons.model.Platform;
+import ltd.qubit.commons.model.Token;
+import ltd.qubit.commons.model.util.Info;
+import ltd.qubit.commons.model.util.Owner;
+import ltd.qubit.commons.model.util.Payload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test of the {@link BinaryModelCodec} class.
+ *
+ * @author Haixing Hu
+ */
+public class BinaryModelCodecTest {
+
+  private static final Instant TIME = Instant.ofEpochSecond(1_700_000_000L);
+
+  private interface Reader<T> {
+    T read(ByteBuffer buffer) throws DecodingException;
+  }
+
+  private static <T> byte[] encode(final T obj,
+      final BiConsumer<ByteBuffer, T> writer) {
+    final ByteBuffer buffer = ByteBuffer.allocate(1024);
+    writer.accept(buffer, obj);
+    final byte[] result = new byte[buffer.position()];
+    buffer.flip();
+    buffer.get(result);
+    return result;
+  }
+
+  /**
+   * Checks that an object is read back equal to itself, and that every
+   * truncated prefix of its encoding is rejected.
+   */
+  private static <T> void checkRoundTrip(final T obj,
+      final BiConsumer<ByteBuffer, T> writer, final Reader<T> reader)
+      throws Exception {
+    final byte[] bytes = encode(obj, writer);
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    assertEquals(obj, reader.read(buffer));
+    assertEquals(0, buffer.remaining());
+    // the direct buffers have no backing arrays
+    final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    assertEquals(obj, reader.read(direct));
+    for (int n = 0; n < bytes.length; ++n) {
+      final ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, n);
+      assertThrows(DecodingException.class, () -> reader.read(truncated),
+          "prefix of " + n + " bytes");
+    }
+  }
+
+  private static ByteBuffer bytes(final int... values) {
+    final byte[] result = new byte[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      result[i] = (byte) values[i];
+    }
+    return ByteBuffer.wrap(result);
+  }
+
+  private static Location location(final String longitude, final String latitude) {
+    return new Location(new BigDecimal(longitude), new BigDecimal(latitude));
+  }
+
+  @Test
+  public void testInfo() throws Exception {
+    final Info info = new Info(1L, "code", "名称 😀");
+    info.setDeleteTime(TIME);
+    checkRoundTrip(info, BinaryModelCodec::write, BinaryModelCodec::readInfo);
+    checkRoundTrip(new Info(), BinaryModelCodec::write, BinaryModelCodec::readInfo);
+    checkRoundTrip(new Info(Long.MIN_VALUE), BinaryModelCodec::write,
+        BinaryModelCodec::readInfo);
+  }
+
+  @Test
+  public void testToken() throws Exception {
+    final Token token = new Token("value");
+    token.setCreateTime(TIME);
+    token.setMaxAge(3600L);
+    token.setPreviousValue("previous");
+    checkRoundTrip(token, BinaryModelCodec::write, BinaryModelCodec::readToken);
+    checkRoundTrip(new Token(), BinaryModelCodec::write, BinaryModelCodec::readToken);
+  }
+
+  @Test
+  public void testExpired() throws Exception {
+    checkRoundTrip(new Expired(TIME, ExpiredReason.TIMEOUT),
+        BinaryModelCodec::write, BinaryModelCodec::readExpired);
+    checkRoundTrip(new Expired(), BinaryModelCodec::write,
+        BinaryModelCodec::readExpired);
+  }
+
+  @Test
+  public void testEnvironment() throws Exception {
+    final Environment env = new Environment();
+    env.setIp("192.168.0.1");
+    env.setLocation(location("116.397128", "39.916527"));
+    env.setPlatform(Platform.ANDROID);
+    env.setUdid("udid");
+    env.setPushToken("push-token");
+    checkRoundTrip(env, BinaryModelCodec::write, BinaryModelCodec::readEnvironment);
+    checkRoundTrip(new Environment(), BinaryModelCodec::write,
+        BinaryModelCodec::readEnvironment);
+  }
+
+  @Test
+  public void testPayload() throws Exception {
+    final Payload payload = new Payload();
+    payload.setId(7L);
+    payload.setOwner(Owner.of("USER", 2L, "AVATAR"));
+    payload.setKey("key");
+    payload.setValue("value");
+    payload.setDescription("description");
+    checkRoundTrip(payload, BinaryModelCodec::write, BinaryModelCodec::readPayload);
+    checkRoundTrip(new Payload(), BinaryModelCodec::write,
+        BinaryModelCodec::readPayload);
+  }
+
+  @Test
+  public void testOwner() throws Exception {
+    checkRoundTrip(Owner.of("USER", -1L, "AVATAR"), BinaryModelCodec::write,
+        BinaryModelCodec::readOwner);
+    checkRoundTrip(Owner.of("USER", 1L, null), BinaryModelCodec::write,
+        BinaryModelCodec::readOwner);
+  }
+
+  @Test
+  public void testLocation() throws Exception {
+    checkRoundTrip(location("116.397128", "39.916527"), BinaryModelCodec::write,
+        BinaryModelCodec::readLocation);
+    checkRoundTrip(location("-180.000000", "180.000000"), BinaryModelCodec::write,
+        BinaryModelCodec::readLocation);
+    checkRoundTrip(new Location(), BinaryModelCodec::write,
+        BinaryModelCodec::readLocation);
+    // the extra digits are rounded
+    final ByteBuffer buffer = ByteBuffer.wrap(encode(
+        location("1.23456789", "-0.0000005"), BinaryModelCodec::write));
+    assertEquals(location("1.234568", "-0.000001"),
+        BinaryModelCodec.readLocation(buffer));
+  }
+
+  @Test
+  public void testOutOfRangeCoordinates() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocate(1024);
+    assertThrows(IllegalArgumentException.class,
+        () -> BinaryModelCodec.write(buffer, location("180.000001", "0")));
+    assertThrows(IllegalArgumentException.class,
+        () -> BinaryModelCodec.write(buffer, location("0", "-200")));
+    final Environment env = new Environment();
+    env.setLocation(location("360", "0"));
+    assertThrows(IllegalArgumentException.class,
+        () -> BinaryModelCodec.write(buffer, env));
+  }
+
+  @Test
+  public void testVersion() throws Exception {
+    final byte[] bytes = encode(new Info(1L), BinaryModelCodec::write);
+    assertEquals(BinaryModelCodec.VERSION, bytes[0]);
+    for (final byte version : new byte[]{0, BinaryModelCodec.VERSION + 1, -1}) {
+      bytes[0] = version;
+      assertThrows(DecodingException.class,
+          () -> BinaryModelCodec.readInfo(ByteBuffer.wrap(bytes)));
+    }
+  }
+
+  @Test
+  public void testVarLong() throws Exception {
+    final long[] values = {0, 1, 127, 128, 300, Integer.MAX_VALUE, -1,
+        Long.MIN_VALUE, Long.MAX_VALUE};
+    for (final long value : values) {
+      final ByteBuffer buffer = ByteBuffer.allocate(20);
+      BinaryModelCodec.writeVarLong(buffer, value);
+      BinaryModelCodec.writeLong(buffer, value);
+      buffer.flip();
+      assertEquals(value, BinaryModelCodec.readVarLong(buffer));
+      assertEquals(value, BinaryModelCodec.readLong(buffer));
+      assertEquals(0, buffer.remaining());
+    }
+    // the 10th byte may only hold the highest bit of the value
+    assertEquals(-1L, BinaryModelCodec.readVarLong(bytes(
+        0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01)));
+    assertThrows(DecodingException.class, () -> BinaryModelCodec.readVarLong(bytes(
+        0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x02)));
+    assertThrows(DecodingException.class, () -> BinaryModelCodec.readVarLong(bytes(
+        0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x7F)));
+    assertThrows(DecodingException.class, () -> BinaryModelCodec.readVarLong(bytes(
+        0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x00)));
+  }
+
+  @Test
+  public void testMalformedInput() throws Exception {
+    final int version = BinaryModelCodec.VERSION;
+    // the length of the code exceeds the remaining bytes
+    assertThrows(DecodingException.class,
+        () -> BinaryModelCodec.readInfo(bytes(version, 0x02, 100, 'a')));
+    // the ordinal of the reason is out of range
+    assertThrows(DecodingException.class,
+        () -> BinaryModelCodec.readExpired(bytes(version, 0x02, 100)));
+    assertThrows(DecodingException.class,
+        () -> BinaryModelCodec.readEnvironment(bytes(version, 0x04, 100)));
+    // the epoch second is out of the range of Instant
+    final ByteBuffer buffer = ByteBuffer.allocate(16);
+    buffer.put((byte) version);
+    buffer.put((byte) 0x01);
+    BinaryModelCodec.writeLong(buffer, Long.MAX_VALUE);
+    buffer.flip();
+    assertThrows(DecodingException.class, () -> BinaryModelCodec.readExpired(buffer));
+  }
+}
@@ -0,0 +1,96 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.util.codec;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import ltd.qubit.commons.model.CompactLocation;
+import ltd.qubit.commons.model.Location;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test of the {@link LocationCoordinateCodec} class.
+ *
+ * @author Haixing Hu
+ */
+public class LocationCoordinateCodecTest {
+
+  private static String format(final int microDegrees) {
+    final char[] buffer = new char[LocationCoordinateCodec.MAX_FORMATTED_LENGTH + 2];
+    final int length = LocationCoordinateCodec.formatMicroDegrees(microDegrees,
+        buffer, 2);
+    return new String(buffer, 2, length);
+  }
+
+  @Test
+  public void testFormatMicroDegrees() throws Exception {
+    final int[] values = {0, 5, -5, 1_000_000, -500_000, 116_397_128,
+        -180_000_000, 180_000_000, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    final String[] expected = {"0.000000", "0.000005", "-0.000005", "1.000000",
+        "-0.500000", "116.397128", "-180.000000", "180.000000", "2147.483647",
+        "-2147.483648"};
+    for (int i = 0; i < values.length; ++i) {
+      assertEquals(expected[i], format(values[i]));
+      assertEquals("<" + expected[i], LocationCoordinateCodec.appendMicroDegrees(
+          new StringBuilder("<"), values[i]).toString());
+      final StringWriter writer = new StringWriter();
+      LocationCoordinateCodec.appendMicroDegrees(writer, values[i]);
+      assertEquals(expected[i], writer.toString());
+    }
+  }
+
+  @Test
+  public void testParseMicroDegrees() throws Exception {
+    final char[] array = "xx -116.3971285 yy".toCharArray();
+    assertEquals(-116397129, LocationCoordinateCodec.parseMicroDegrees(array, 2, 13));
+    assertEquals(-116397129, LocationCoordinateCodec.parseMicroDegrees(
+        "xx -116.3971285 yy", 2, 15));
+    assertEquals(-170_000_000, LocationCoordinateCodec.parseMicroDegrees("190", 0, 3));
+    assertEquals(1_500_000, LocationCoordinateCodec.parseMicroDegrees("+1.5".toCharArray(), 0, 4));
+    assertThrows(DecodingException.class,
+        () -> LocationCoordinateCodec.parseMicroDegrees(array, 0, 5));
+    assertThrows(DecodingException.class,
+        () -> LocationCoordinateCodec.parseMicroDegrees("1.5e2", 0, 5));
+    assertThrows(DecodingException.class,
+        () -> LocationCoordinateCodec.parseMicroDegrees(" . ", 0, 3));
+  }
+
+  @Test
+  public void testToMicroDegrees() throws Exception {
+    final String[] values = {"116.397128", "116.4", "116", "1E+2", "-0.000001",
+        "-180", "180.000000", "0E-10", "116.3971285", "-116.3971285", "181",
+        "-540.5"};
+    final int[] expected = {116_397_128, 116_400_000, 116_000_000, 100_000_000,
+        -1, -180_000_000, 180_000_000, 0, 116_397_129, -116_397_129,
+        -179_000_000, 179_500_000};
+    for (int i = 0; i < values.length; ++i) {
+      assertEquals(expected[i],
+          LocationCoordinateCodec.toMicroDegrees(new BigDecimal(values[i])),
+          values[i]);
+    }
+  }
+
+  @Test
+  public void testEncodeLocation() throws Exception {
+    final LocationCodec codec = new LocationCodec();
+    final Location location = new Location(new BigDecimal("116.397128"),
+        new BigDecimal("-39.9"));
+    assertEquals("116.397128,-39.900000", codec.encode(location));
+    final StringWriter writer = new StringWriter();
+    codec.encode(location, writer);
+    assertEquals("116.397128,-39.900000", writer.toString());
+    assertEquals("1.000000,-2.500000",
+        codec.encode(new CompactLocation(1_000_000, -2_500_000)));
+  }
+}